@@ -1,6 +1,12 @@
 package com.rhinoforms;
 
 import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.ServletContext;
 
@@ -11,16 +17,24 @@ import org.htmlcleaner.SimpleHtmlSerializer;
 import org.htmlcleaner.TagInfo;
 import org.mozilla.javascript.Context;
 
+import com.rhinoforms.flow.FieldSourceProxyEngine;
 import com.rhinoforms.flow.FormFlowFactory;
 import com.rhinoforms.flow.FormSubmissionHelper;
 import com.rhinoforms.flow.RemoteSubmissionHelper;
 import com.rhinoforms.flow.SubmissionTimeKeeper;
 import com.rhinoforms.flow.TransformHelper;
+import com.rhinoforms.flowstore.FlowStore;
+import com.rhinoforms.flowstore.FlowStoreException;
+import com.rhinoforms.flowstore.FlowStoreFactory;
 import com.rhinoforms.formparser.FormParser;
 import com.rhinoforms.formparser.HtmlTags;
 import com.rhinoforms.formparser.ValueInjector;
 import com.rhinoforms.js.JSMasterScope;
 import com.rhinoforms.js.RhinoFormsMasterScopeFactory;
+import com.rhinoforms.js.RhinoformsContextFactory;
+import com.rhinoforms.net.ConnectionFactory;
+import com.rhinoforms.net.ConnectionFactoryImpl;
+import com.rhinoforms.net.PooledConnectionFactory;
 import com.rhinoforms.resourceloader.ClasspathResourceLoader;
 import com.rhinoforms.resourceloader.ResourceLoader;
 import com.rhinoforms.resourceloader.ResourceLoaderException;
@@ -40,9 +54,13 @@ public class ApplicationContext {
 	private FormParser formParser;
 	private SubmissionTimeKeeper submissionTimeKeeper;
 	private JSMasterScope masterScope;
+	private RhinoformsContextFactory contextFactory;
 	private FormSubmissionHelper formSubmissionHelper;
 	private FormFlowFactory formFlowFactory;
 	private RemoteSubmissionHelper remoteSubmissionHelper;
+	private ExecutorService submissionExecutor;
+	private ConnectionFactory connectionFactory;
+	private FieldSourceProxyEngine fieldSourceProxyEngine;
 	private TransformHelper transformHelper;
 	private FormProducer formProducer;
 	private FlowRequestFactory flowRequestFactory;
@@ -50,10 +68,11 @@ public class ApplicationContext {
 	private ServletHelper servletHelper;
 	private HtmlCleaner htmlCleaner;
 	private ValueInjector valueInjector;
+	private FlowStore flowStore;
 
 	public ApplicationContext(ServletContext servletContext) throws ResourceLoaderException, IOException {
-		RhinoFormsMasterScopeFactory.enableDynamicScopeFeature();
-		Context jsContext = Context.enter();
+		this.contextFactory = RhinoFormsMasterScopeFactory.getContextFactory();
+		Context jsContext = contextFactory.enterContext();
 		try {
 			this.servletContext = servletContext;
 			this.rhinoformsProperties = RhinoformsProperties.getInstance();
@@ -68,11 +87,24 @@ public class ApplicationContext {
 			this.valueInjector = new ValueInjector(htmlCleaner, simpleHtmlSerializer, new HtmlTags());
 			
 			this.formParser = new FormParser(htmlCleaner, valueInjector, resourceLoader, submissionTimeKeeper);
-			this.masterScope = new RhinoFormsMasterScopeFactory().createMasterScope(jsContext, resourceLoader);
+			resourceLoader.addFormResourcesChangedListener(formParser);
+			this.connectionFactory = createConnectionFactory();
+			this.masterScope = new RhinoFormsMasterScopeFactory().createMasterScope(jsContext, resourceLoader, connectionFactory);
+			resourceLoader.addFormResourcesChangedListener(masterScope);
 			this.formSubmissionHelper = new FormSubmissionHelper(masterScope);
 			this.formFlowFactory = new FormFlowFactory(resourceLoader, valueInjector, masterScope, servletContext.getContextPath(), submissionTimeKeeper);
+			resourceLoader.addFormResourcesChangedListener(formFlowFactory);
 			this.transformHelper = new TransformHelper(resourceLoader);
+			resourceLoader.addFormResourcesChangedListener(transformHelper);
 			this.remoteSubmissionHelper = new RemoteSubmissionHelper(resourceLoader, valueInjector, transformHelper);
+			remoteSubmissionHelper.setConnectionFactory(connectionFactory);
+			this.submissionExecutor = createSubmissionExecutor();
+			remoteSubmissionHelper.setExecutorService(submissionExecutor);
+			remoteSubmissionHelper.setChunkedRequests(rhinoformsProperties.isSubmissionChunkedRequests());
+			this.fieldSourceProxyEngine = new FieldSourceProxyEngine(connectionFactory, rhinoformsProperties.getFieldSourceProxyCacheTimeToLive(),
+					rhinoformsProperties.getFieldSourceProxyCacheMaxSize(), rhinoformsProperties.getFieldSourceProxyConnectTimeout(),
+					rhinoformsProperties.getFieldSourceProxyReadTimeout());
+			this.flowStore = createFlowStore();
 			this.flowRequestFactory = new FlowRequestFactory();
 			this.servletHelper = new ServletHelper();
 			this.formActionRequestFactory = new FormActionRequestFactory(servletHelper);
@@ -100,6 +132,45 @@ public class ApplicationContext {
 		return cleanerProperties;
 	}
 
+	protected ConnectionFactory createConnectionFactory() {
+		if (rhinoformsProperties.isConnectionPooling()) {
+			return new PooledConnectionFactory(rhinoformsProperties);
+		} else {
+			return new ConnectionFactoryImpl();
+		}
+	}
+
+	protected FlowStore createFlowStore() {
+		try {
+			return new FlowStoreFactory().createFlowStore(rhinoformsProperties.getFlowStore(), rhinoformsProperties);
+		} catch (FlowStoreException e) {
+			throw new RuntimeException("Failed to create flow store.", e);
+		}
+	}
+
+	/**
+	 * @return the executor used to send parallel submissions or null if they are sent one after another
+	 */
+	protected ExecutorService createSubmissionExecutor() {
+		int threads = rhinoformsProperties.getSubmissionThreads();
+		if (threads < 1) {
+			return null;
+		}
+		// When the pool and queue are full the request thread sends the submission itself rather than failing
+		ThreadPoolExecutor submissionExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(threads * 10), new ThreadFactory() {
+					private AtomicInteger threadNumber = new AtomicInteger();
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "rhinoforms-submission-" + threadNumber.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		submissionExecutor.allowCoreThreadTimeOut(true);
+		return submissionExecutor;
+	}
+
 	protected ResourceLoader createResourceLoader() throws ResourceLoaderException {
 		String formResourcesSource = rhinoformsProperties.getFormResourceLoader();
 		
@@ -118,6 +189,10 @@ public class ApplicationContext {
 		return resourceLoader;
 	}
 	
+	public FlowStore getFlowStore() {
+		return flowStore;
+	}
+
 	public DocumentHelper getDocumentHelper() {
 		return documentHelper;
 	}
@@ -134,6 +209,10 @@ public class ApplicationContext {
 		return submissionTimeKeeper;
 	}
 
+	public RhinoformsContextFactory getContextFactory() {
+		return contextFactory;
+	}
+
 	public JSMasterScope getMasterScope() {
 		return masterScope;
 	}
@@ -150,6 +229,21 @@ public class ApplicationContext {
 		return remoteSubmissionHelper;
 	}
 	
+	public ConnectionFactory getConnectionFactory() {
+		return connectionFactory;
+	}
+	
+	/**
+	 * @return the executor which sends submissions in parallel, or null if submissions are sent by the request thread
+	 */
+	public ExecutorService getSubmissionExecutor() {
+		return submissionExecutor;
+	}
+	
+	public FieldSourceProxyEngine getFieldSourceProxyEngine() {
+		return fieldSourceProxyEngine;
+	}
+	
 	public TransformHelper getTransformHelper(){
 		return transformHelper;
 	}
@@ -1,7 +1,6 @@
 package com.rhinoforms;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.PrintWriter;
 import java.util.Map;
 
@@ -23,11 +22,13 @@ import com.rhinoforms.flow.FormSubmissionResult;
 import com.rhinoforms.flow.RemoteSubmissionHelper;
 import com.rhinoforms.flow.SubmissionTimeKeeper;
 import com.rhinoforms.flow.TransformHelper;
+import com.rhinoforms.flowstore.FlowStore;
+import com.rhinoforms.flowstore.FlowStoreException;
 import com.rhinoforms.formparser.FormParser;
 import com.rhinoforms.formparser.FormParserException;
 import com.rhinoforms.js.FlowExceptionFileNotFound;
 import com.rhinoforms.js.JSMasterScope;
-import com.rhinoforms.resourceloader.ResourceLoader;
+import com.rhinoforms.js.RhinoformsContextFactory;
 import com.rhinoforms.xml.DocumentHelper;
 import com.rhinoforms.xml.FlowExceptionXPath;
 
@@ -36,30 +37,33 @@ public class FormProducer {
 	private FormFlowFactory formFlowFactory;
 	private DocumentHelper documentHelper;
 	private JSMasterScope masterScope;
-	private ResourceLoader resourceLoader;
 	private FormParser formParser;
 	private FormSubmissionHelper formSubmissionHelper;
 	private RemoteSubmissionHelper remoteSubmissionHelper;
 	private SubmissionTimeKeeper submissionTimeKeeper;
 	private TransformHelper transformHelper;
+	private RhinoformsContextFactory contextFactory;
+	private FlowStore flowStore;
 
 	public FormProducer(ApplicationContext appContext) {
 		formFlowFactory = appContext.getFormFlowFactory();
 		documentHelper = appContext.getDocumentHelper();
 		masterScope = appContext.getMasterScope();
-		resourceLoader = appContext.getResourceLoader();
 		formParser = appContext.getFormParser();
 		formSubmissionHelper = appContext.getFormSubmissionHelper();
 		remoteSubmissionHelper = appContext.getRemoteSubmissionHelper();
 		submissionTimeKeeper = appContext.getSubmissionTimeKeeper();
 		transformHelper = appContext.getTransformHelper();
+		contextFactory = appContext.getContextFactory();
+		flowStore = appContext.getFlowStore();
 	}
 
-	public FormFlow createFlowWriteForm(FlowCreationRequest flowRequest, HttpSession session, HttpServletResponse response) throws IOException, FormFlowFactoryException, FlowExceptionActionError, FlowExceptionXPath, FormParserException {
-		Context.enter();
+	public FormFlow createFlowWriteForm(FlowCreationRequest flowRequest, HttpSession session, HttpServletResponse response) throws IOException, FormFlowFactoryException, FlowExceptionActionError, FlowExceptionXPath, FormParserException,
+			FlowStoreException {
+		contextFactory.enterContext();
 		try {
 			FormFlow newFormFlow = formFlowFactory.createFlow(flowRequest.getFormFlowPath(), flowRequest.getInitData());
-			SessionHelper.setFlow(newFormFlow, session);
+			flowStore.setFlow(newFormFlow, session);
 
 			String formPath = newFormFlow.navigateToFirstForm(documentHelper);
 			writeForm(response, newFormFlow, formPath, flowRequest.isSuppressDebugBar());
@@ -69,10 +73,21 @@ public class FormProducer {
 		}
 	}
 
-	public void doActionWriteForm(FormActionRequest formActionRequest, FormFlow formFlow, HttpServletResponse response) throws IOException, FlowExceptionActionError,
-			FormSubmissionHelperException, FlowExceptionBadRequest, FlowExceptionFileNotFound, FlowExceptionJavaScript, FlowExceptionXPath, FormParserException, TransformerException {
-		Context.enter();
+	/**
+	 * @return true if the flow has finished and has been removed from the flow store
+	 */
+	public boolean doActionWriteForm(FormActionRequest formActionRequest, FormFlow formFlow, HttpSession session, HttpServletResponse response) throws IOException,
+			FlowExceptionActionError, FormSubmissionHelperException, FlowExceptionBadRequest, FlowExceptionFileNotFound, FlowExceptionJavaScript, FlowExceptionXPath,
+			FormParserException, TransformerException, FlowStoreException {
+		contextFactory.enterContext();
 		try {
+			try {
+				formFlowFactory.attachFlowDefinition(formFlow);
+			} catch (FormFlowFactoryException e) {
+				// The flow can not continue, end it
+				flowStore.removeFlow(formFlow, session);
+				throw new FlowExceptionActionError("Failed to attach flow definition.", "This form has changed, please start again.", e);
+			}
 			formFlow.setRemoteSubmissionHelper(remoteSubmissionHelper);
 			formFlow.setSubmissionTimeKeeper(submissionTimeKeeper);
 			formFlow.setTransformHelper(transformHelper);
@@ -83,12 +98,15 @@ public class FormProducer {
 			String nextUrl = submissionResult.getNextUrl();
 			if (nextUrl != null) {
 				writeForm(response, formFlow, nextUrl, formActionRequest.isSuppressDebugBar());
+				return false;
 			} else {
 				// End of flow. Spit out XML.
 				response.setContentType("text/plain");
 				response.setHeader("rf.responseType", "data");
 				PrintWriter writer = response.getWriter();
 				documentHelper.documentToWriterPretty(formFlow.getDataDocument(), writer);
+				flowStore.removeFlow(formFlow, session);
+				return true;
 			}
 		} finally {
 			Context.exit();
@@ -106,9 +124,8 @@ public class FormProducer {
 			response.setHeader("rf.disableInputsOnSubmit", "false");
 		}
 
-		InputStream formStream = resourceLoader.getFormResourceAsStream(formPath);
 		response.setContentType("text/html");
-		formParser.parseForm(formStream, formFlow, response.getWriter(), masterScope, suppressDebugBar);
+		formParser.parseForm(formPath, formFlow, response.getWriter(), masterScope, suppressDebugBar);
 	}
 
 }
@@ -1,21 +1,27 @@
 package com.rhinoforms;
 
 import com.rhinoforms.flow.FieldSourceProxy;
+import com.rhinoforms.flow.FieldSourceProxyAsyncRequest;
+import com.rhinoforms.flow.FieldSourceProxyEngine;
 import com.rhinoforms.flow.FieldSourceProxyException;
 import com.rhinoforms.flow.FlowException;
 import com.rhinoforms.flow.FlowExceptionBadRequest;
 import com.rhinoforms.flow.FormFlow;
 import com.rhinoforms.flow.FormFlowFactoryException;
 import com.rhinoforms.flow.FormSubmissionHelperException;
+import com.rhinoforms.flowstore.FlowStore;
+import com.rhinoforms.flowstore.FlowStoreException;
 import com.rhinoforms.formparser.FormParserException;
 import com.rhinoforms.resourceloader.ResourceLoader;
 import com.rhinoforms.resourceloader.ResourceLoaderException;
+import com.rhinoforms.util.ClearableThreadLocal;
 import com.rhinoforms.util.ServletHelper;
 import com.rhinoforms.xml.DocumentHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -27,6 +33,13 @@ import java.io.IOException;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings("serial")
 public class FormServlet extends HttpServlet {
@@ -37,6 +50,11 @@ public class FormServlet extends HttpServlet {
 	private FlowRequestFactory flowRequestFactory;
 	private FormActionRequestFactory formActionRequestFactory;
 	private FormProducer formProducer;
+	private FlowStore flowStore;
+	private FieldSourceProxyEngine fieldSourceProxyEngine;
+	private ThreadPoolExecutor fieldSourceProxyExecutor;
+	private ExecutorService submissionExecutor;
+	private long fieldSourceProxyAsyncTimeout;
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(FormServlet.class);
 	private static final String PROXY_PATH_PREFIX = "/proxy/";
@@ -54,6 +72,9 @@ public class FormServlet extends HttpServlet {
 			this.flowRequestFactory = appContext.getFlowRequestFactory();
 			this.formActionRequestFactory = appContext.getFormActionRequestFactory();
 			this.formProducer = appContext.getFormProducer();
+			this.flowStore = appContext.getFlowStore();
+			this.submissionExecutor = appContext.getSubmissionExecutor();
+			initFieldSourceProxy(appContext.getFieldSourceProxyEngine(), appContext.getRhinoformsProperties());
 		} catch (ResourceLoaderException e) {
 			String message = "Failed to create ResourceLoader.";
 			LOGGER.error(message, e);
@@ -65,6 +86,42 @@ public class FormServlet extends HttpServlet {
 		}
 	}
 
+	private void initFieldSourceProxy(FieldSourceProxyEngine fieldSourceProxyEngine, RhinoformsProperties rhinoformsProperties) {
+		this.fieldSourceProxyEngine = fieldSourceProxyEngine;
+		int threads = rhinoformsProperties.getFieldSourceProxyThreads();
+		this.fieldSourceProxyExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
+				rhinoformsProperties.getFieldSourceProxyQueueSize()), new ThreadFactory() {
+			private AtomicInteger threadNumber = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "rhinoforms-proxy-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.fieldSourceProxyExecutor.allowCoreThreadTimeOut(true);
+		int connectTimeout = rhinoformsProperties.getFieldSourceProxyConnectTimeout();
+		int readTimeout = rhinoformsProperties.getFieldSourceProxyReadTimeout();
+		// Allow time for queueing on top of the upstream timeouts, no async timeout if the upstream can wait forever
+		this.fieldSourceProxyAsyncTimeout = connectTimeout > 0 && readTimeout > 0 ? connectTimeout + readTimeout + 5000 : 0;
+	}
+
+	@Override
+	public void destroy() {
+		if (fieldSourceProxyExecutor != null) {
+			fieldSourceProxyExecutor.shutdownNow();
+		}
+		if (submissionExecutor != null) {
+			submissionExecutor.shutdownNow();
+		}
+		if (flowStore != null) {
+			flowStore.close();
+		}
+		// Container threads outlive the application, release what they hold for it
+		ClearableThreadLocal.clearAll();
+		super.destroy();
+	}
+
 	@Override
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		String pathInfo = request.getPathInfo();
@@ -74,9 +131,9 @@ public class FormServlet extends HttpServlet {
 		if (pathInfo == null) {
 			// New flow request
 			FormFlow formFlow = doGetCreateFormFlow(request, response, session);
-			// Setting the formFlow session attribute again to trigger session serialisation in
-			// Google App Engine deployment or Shiro framework.
-			SessionHelper.setFlow(formFlow, request.getSession());
+			if (formFlow != null) {
+				updateFlow(formFlow, session);
+			}
 		} else {
 			LOGGER.debug("pathInfo = {}", pathInfo);
 			if (pathInfo.startsWith(VIEW_DATA_DOC_PATH_PREFIX)) {
@@ -101,11 +158,10 @@ public class FormServlet extends HttpServlet {
 		
 		if (formFlow != null) {
 			
+			HttpSession session = request.getSession();
+			boolean finished = false;
 			try {
-				formProducer.doActionWriteForm(formActionRequest, formFlow, response);
-				// Setting the formFlow session attribute again to trigger session serialisation in
-				// Google App Engine deployment or Shiro framework.
-				SessionHelper.setFlow(formFlow, request.getSession());
+				finished = formProducer.doActionWriteForm(formActionRequest, formFlow, session, response);
 			} catch (FlowExceptionBadRequest e) {
 				String message = e.getMessage();
 				LOGGER.info(message, e);
@@ -130,6 +186,16 @@ public class FormServlet extends HttpServlet {
 				String message = "Failed to output DataDocument";
 				LOGGER.error(message, e);
 				sendFrontendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message, response);
+			} catch (FlowStoreException e) {
+				String message = "Failed to remove finished form flow.";
+				LOGGER.error(message, e);
+				sendFrontendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message, response);
+			} finally {
+				// Store the flow again only if the request changed it, including a failed action which changed it
+				// before failing. A validation error changes nothing. A finished flow has been removed.
+				if (!finished) {
+					updateFlow(formFlow, session);
+				}
 			}
 		} else {
 			sendFrontendError(HttpServletResponse.SC_FORBIDDEN, "Your session has expired.", response);
@@ -149,6 +215,10 @@ public class FormServlet extends HttpServlet {
 			String message = "Failed to load the first form.";
 			LOGGER.error(message, e);
 			sendFrontendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message, response);
+		} catch (FlowStoreException e) {
+			String message = "Failed to store the new form flow.";
+			LOGGER.error(message, e);
+			sendFrontendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message, response);
 		} catch (FlowException e) {
 			String message = "Failed to navigate to the first form.";
 			LOGGER.error(message, e);
@@ -163,7 +233,7 @@ public class FormServlet extends HttpServlet {
 
 	private void doGetShowDataDocument(HttpServletResponse response, HttpSession session, String flowId) throws IOException,
 			ServletException {
-		FormFlow formFlow = SessionHelper.getFlow(flowId, session);
+		FormFlow formFlow = getFlow(flowId, session);
 		if (formFlow != null) {
 			Document dataDocument = formFlow.getDataDocument();
 			try {
@@ -196,12 +266,26 @@ public class FormServlet extends HttpServlet {
 			for (String paramToRemove : paramsToRemove) {
 				parameterMap.remove(paramToRemove);
 			}
-			try {
-				fieldSourceProxy.makeRequest(parameterMap, response);
-			} catch (FieldSourceProxyException e) {
-				String message = "Failed to perform proxy request.";
-				LOGGER.debug(message, e);
-				sendFrontendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message, response);
+			if (request.isAsyncSupported()) {
+				// Release the container thread while the upstream request is made
+				String url = fieldSourceProxy.resolveUrl(parameterMap);
+				AsyncContext asyncContext = request.startAsync();
+				asyncContext.setTimeout(fieldSourceProxyAsyncTimeout);
+				FieldSourceProxyAsyncRequest asyncRequest = new FieldSourceProxyAsyncRequest(url, fieldSourceProxyEngine, asyncContext);
+				try {
+					fieldSourceProxyExecutor.execute(asyncRequest);
+				} catch (RejectedExecutionException e) {
+					LOGGER.warn("Proxy request queue full, rejecting request for url '{}'", url);
+					asyncRequest.reject();
+				}
+			} else {
+				try {
+					fieldSourceProxy.makeRequest(parameterMap, response, fieldSourceProxyEngine);
+				} catch (FieldSourceProxyException e) {
+					String message = "Failed to perform proxy request.";
+					LOGGER.debug(message, e);
+					sendFrontendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message, response);
+				}
 			}
 		} else {
 			String message = "Your session has expired.";
@@ -225,13 +309,28 @@ public class FormServlet extends HttpServlet {
 		if (parameter != null && parameter.matches("\\d+")) {
 			String flowId = parameter;
 			HttpSession session = request.getSession();
-			FormFlow formFlow = SessionHelper.getFlow(flowId, session);
-			return formFlow;
+			return getFlow(flowId, session);
 		} else {
 			throw new ServletException("Missing " + Constants.FLOW_ID_FIELD_NAME + ".");
 		}
 	}
 
+	private FormFlow getFlow(String flowId, HttpSession session) throws ServletException {
+		try {
+			return flowStore.getFlow(flowId, session);
+		} catch (FlowStoreException e) {
+			throw new ServletException("Failed to get form flow.", e);
+		}
+	}
+
+	private void updateFlow(FormFlow formFlow, HttpSession session) throws ServletException {
+		try {
+			flowStore.updateFlow(formFlow, session);
+		} catch (FlowStoreException e) {
+			throw new ServletException("Failed to store form flow.", e);
+		}
+	}
+
 	private void sendFrontendError(int errorCode, String message, HttpServletResponse response) throws IOException {
 		response.setStatus(errorCode);
 		response.setContentType("text/plain");
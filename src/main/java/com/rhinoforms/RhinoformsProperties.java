@@ -9,6 +9,37 @@ public class RhinoformsProperties {
 	private static RhinoformsProperties instance;
 	private boolean showDebugBar;
 	private String formResourceLoader;
+	private boolean formResourceCaching;
+	private int jsOptimizationLevel;
+	private int jsLanguageVersion;
+	private int jsInstructionObserverThreshold;
+	private boolean jsContextReuse = true;
+	private long jsInstructionBudget;
+	private long jsTimeLimit;
+	private long netUtilCacheTimeToLive = 60000;
+	private int netUtilCacheMaxSize = 500;
+	private int netUtilConnectTimeout = 10000;
+	private int netUtilReadTimeout = 30000;
+	private long fieldSourceProxyCacheTimeToLive = 60000;
+	private int fieldSourceProxyCacheMaxSize = 1000;
+	private int fieldSourceProxyConnectTimeout = 5000;
+	private int fieldSourceProxyReadTimeout = 10000;
+	private int fieldSourceProxyThreads = 20;
+	private int fieldSourceProxyQueueSize = 500;
+	private boolean connectionPooling = true;
+	private int connectionMaxPerHost = 20;
+	private int connectionConnectTimeout = 10000;
+	private int connectionReadTimeout = 60000;
+	private boolean connectionGzipResponses = true;
+	private boolean connectionGzipRequests;
+	private int submissionThreads = 10;
+	private boolean submissionChunkedRequests = true;
+	private boolean flowSerialisationCompression = true;
+	private String flowStore;
+	private int flowStoreMaxSize = 10000;
+	private int flowStoreMaxIdleSeconds = 1800;
+	private String flowStoreDirectory;
+	private int flowStoreFileMaxAgeSeconds = 86400;
 	
 	public static RhinoformsProperties getInstance() {
 		if (instance == null) {
@@ -37,6 +68,254 @@ public class RhinoformsProperties {
 		this.formResourceLoader = formResourcesSource;
 	}
 	
+	public boolean isFormResourceCaching() {
+		return formResourceCaching;
+	}
+	
+	public void setFormResourceCaching(boolean formResourceCaching) {
+		this.formResourceCaching = formResourceCaching;
+	}
+	
+	public int getJsOptimizationLevel() {
+		return jsOptimizationLevel;
+	}
+	
+	public void setJsOptimizationLevel(int jsOptimizationLevel) {
+		this.jsOptimizationLevel = jsOptimizationLevel;
+	}
+	
+	public int getJsLanguageVersion() {
+		return jsLanguageVersion;
+	}
+	
+	public void setJsLanguageVersion(int jsLanguageVersion) {
+		this.jsLanguageVersion = jsLanguageVersion;
+	}
+	
+	public int getJsInstructionObserverThreshold() {
+		return jsInstructionObserverThreshold;
+	}
+	
+	public void setJsInstructionObserverThreshold(int jsInstructionObserverThreshold) {
+		this.jsInstructionObserverThreshold = jsInstructionObserverThreshold;
+	}
+	
+	public boolean isJsContextReuse() {
+		return jsContextReuse;
+	}
+	
+	public void setJsContextReuse(boolean jsContextReuse) {
+		this.jsContextReuse = jsContextReuse;
+	}
+	
+	public long getJsInstructionBudget() {
+		return jsInstructionBudget;
+	}
+	
+	public void setJsInstructionBudget(long jsInstructionBudget) {
+		this.jsInstructionBudget = jsInstructionBudget;
+	}
+	
+	public long getJsTimeLimit() {
+		return jsTimeLimit;
+	}
+	
+	public void setJsTimeLimit(long jsTimeLimit) {
+		this.jsTimeLimit = jsTimeLimit;
+	}
+	
+	public long getNetUtilCacheTimeToLive() {
+		return netUtilCacheTimeToLive;
+	}
+	
+	public void setNetUtilCacheTimeToLive(long netUtilCacheTimeToLive) {
+		this.netUtilCacheTimeToLive = netUtilCacheTimeToLive;
+	}
+	
+	public int getNetUtilCacheMaxSize() {
+		return netUtilCacheMaxSize;
+	}
+	
+	public void setNetUtilCacheMaxSize(int netUtilCacheMaxSize) {
+		this.netUtilCacheMaxSize = netUtilCacheMaxSize;
+	}
+	
+	public int getNetUtilConnectTimeout() {
+		return netUtilConnectTimeout;
+	}
+	
+	public void setNetUtilConnectTimeout(int netUtilConnectTimeout) {
+		this.netUtilConnectTimeout = netUtilConnectTimeout;
+	}
+	
+	public int getNetUtilReadTimeout() {
+		return netUtilReadTimeout;
+	}
+	
+	public void setNetUtilReadTimeout(int netUtilReadTimeout) {
+		this.netUtilReadTimeout = netUtilReadTimeout;
+	}
+	
+	public long getFieldSourceProxyCacheTimeToLive() {
+		return fieldSourceProxyCacheTimeToLive;
+	}
+	
+	public void setFieldSourceProxyCacheTimeToLive(long fieldSourceProxyCacheTimeToLive) {
+		this.fieldSourceProxyCacheTimeToLive = fieldSourceProxyCacheTimeToLive;
+	}
+	
+	public int getFieldSourceProxyCacheMaxSize() {
+		return fieldSourceProxyCacheMaxSize;
+	}
+	
+	public void setFieldSourceProxyCacheMaxSize(int fieldSourceProxyCacheMaxSize) {
+		this.fieldSourceProxyCacheMaxSize = fieldSourceProxyCacheMaxSize;
+	}
+	
+	public int getFieldSourceProxyConnectTimeout() {
+		return fieldSourceProxyConnectTimeout;
+	}
+	
+	public void setFieldSourceProxyConnectTimeout(int fieldSourceProxyConnectTimeout) {
+		this.fieldSourceProxyConnectTimeout = fieldSourceProxyConnectTimeout;
+	}
+	
+	public int getFieldSourceProxyReadTimeout() {
+		return fieldSourceProxyReadTimeout;
+	}
+	
+	public void setFieldSourceProxyReadTimeout(int fieldSourceProxyReadTimeout) {
+		this.fieldSourceProxyReadTimeout = fieldSourceProxyReadTimeout;
+	}
+	
+	public int getFieldSourceProxyThreads() {
+		return fieldSourceProxyThreads;
+	}
+	
+	public void setFieldSourceProxyThreads(int fieldSourceProxyThreads) {
+		this.fieldSourceProxyThreads = fieldSourceProxyThreads;
+	}
+	
+	public int getFieldSourceProxyQueueSize() {
+		return fieldSourceProxyQueueSize;
+	}
+	
+	public void setFieldSourceProxyQueueSize(int fieldSourceProxyQueueSize) {
+		this.fieldSourceProxyQueueSize = fieldSourceProxyQueueSize;
+	}
+	
+	public boolean isConnectionPooling() {
+		return connectionPooling;
+	}
+	
+	public void setConnectionPooling(boolean connectionPooling) {
+		this.connectionPooling = connectionPooling;
+	}
+	
+	public int getConnectionMaxPerHost() {
+		return connectionMaxPerHost;
+	}
+	
+	public void setConnectionMaxPerHost(int connectionMaxPerHost) {
+		this.connectionMaxPerHost = connectionMaxPerHost;
+	}
+	
+	public int getConnectionConnectTimeout() {
+		return connectionConnectTimeout;
+	}
+	
+	public void setConnectionConnectTimeout(int connectionConnectTimeout) {
+		this.connectionConnectTimeout = connectionConnectTimeout;
+	}
+	
+	public int getConnectionReadTimeout() {
+		return connectionReadTimeout;
+	}
+	
+	public void setConnectionReadTimeout(int connectionReadTimeout) {
+		this.connectionReadTimeout = connectionReadTimeout;
+	}
+	
+	public boolean isConnectionGzipResponses() {
+		return connectionGzipResponses;
+	}
+	
+	public void setConnectionGzipResponses(boolean connectionGzipResponses) {
+		this.connectionGzipResponses = connectionGzipResponses;
+	}
+	
+	public boolean isConnectionGzipRequests() {
+		return connectionGzipRequests;
+	}
+	
+	public void setConnectionGzipRequests(boolean connectionGzipRequests) {
+		this.connectionGzipRequests = connectionGzipRequests;
+	}
+
+	public int getSubmissionThreads() {
+		return submissionThreads;
+	}
+
+	public void setSubmissionThreads(int submissionThreads) {
+		this.submissionThreads = submissionThreads;
+	}
+
+	public boolean isSubmissionChunkedRequests() {
+		return submissionChunkedRequests;
+	}
+
+	public void setSubmissionChunkedRequests(boolean submissionChunkedRequests) {
+		this.submissionChunkedRequests = submissionChunkedRequests;
+	}
+
+	public boolean isFlowSerialisationCompression() {
+		return flowSerialisationCompression;
+	}
+
+	public void setFlowSerialisationCompression(boolean flowSerialisationCompression) {
+		this.flowSerialisationCompression = flowSerialisationCompression;
+	}
+
+	public String getFlowStore() {
+		return flowStore;
+	}
+
+	public void setFlowStore(String flowStore) {
+		this.flowStore = flowStore;
+	}
+
+	public int getFlowStoreMaxSize() {
+		return flowStoreMaxSize;
+	}
+
+	public void setFlowStoreMaxSize(int flowStoreMaxSize) {
+		this.flowStoreMaxSize = flowStoreMaxSize;
+	}
+
+	public int getFlowStoreMaxIdleSeconds() {
+		return flowStoreMaxIdleSeconds;
+	}
+
+	public void setFlowStoreMaxIdleSeconds(int flowStoreMaxIdleSeconds) {
+		this.flowStoreMaxIdleSeconds = flowStoreMaxIdleSeconds;
+	}
+
+	public String getFlowStoreDirectory() {
+		return flowStoreDirectory;
+	}
+
+	public void setFlowStoreDirectory(String flowStoreDirectory) {
+		this.flowStoreDirectory = flowStoreDirectory;
+	}
+
+	public int getFlowStoreFileMaxAgeSeconds() {
+		return flowStoreFileMaxAgeSeconds;
+	}
+
+	public void setFlowStoreFileMaxAgeSeconds(int flowStoreFileMaxAgeSeconds) {
+		this.flowStoreFileMaxAgeSeconds = flowStoreFileMaxAgeSeconds;
+	}
+	
 	static void setInstance(RhinoformsProperties instance) {
 		RhinoformsProperties.instance = instance;
 	}
@@ -50,7 +329,68 @@ public class RhinoformsProperties {
 			try {
 				properties.load(propertiesStream);
 				rhinoformsProperties.setShowDebugBar("true".equalsIgnoreCase(properties.getProperty("showDebugBar")));
-				rhinoformsProperties.setFormResourceLoader(properties.getProperty("formResourceLoader"));
+				String formResourceLoader = properties.getProperty("formResourceLoader");
+				rhinoformsProperties.setFormResourceLoader(formResourceLoader);
+				// Changes to form resources should show immediately when using the DevResourceLoader
+				rhinoformsProperties.setFormResourceCaching(getBoolean(properties, "formResourceCaching", formResourceLoader == null
+						|| !formResourceLoader.contains("DevResourceLoader")));
+				rhinoformsProperties.setJsOptimizationLevel(getInt(properties, "jsOptimizationLevel",
+						rhinoformsProperties.getJsOptimizationLevel()));
+				rhinoformsProperties.setJsLanguageVersion(getInt(properties, "jsLanguageVersion",
+						rhinoformsProperties.getJsLanguageVersion()));
+				rhinoformsProperties.setJsInstructionObserverThreshold(getInt(properties, "jsInstructionObserverThreshold",
+						rhinoformsProperties.getJsInstructionObserverThreshold()));
+				rhinoformsProperties.setJsContextReuse(getBoolean(properties, "jsContextReuse", rhinoformsProperties.isJsContextReuse()));
+				rhinoformsProperties.setJsInstructionBudget(getLong(properties, "jsInstructionBudget",
+						rhinoformsProperties.getJsInstructionBudget()));
+				rhinoformsProperties.setJsTimeLimit(getLong(properties, "jsTimeLimit", rhinoformsProperties.getJsTimeLimit()));
+				rhinoformsProperties.setNetUtilCacheTimeToLive(getLong(properties, "netUtilCacheTimeToLive",
+						rhinoformsProperties.getNetUtilCacheTimeToLive()));
+				rhinoformsProperties.setNetUtilCacheMaxSize(getInt(properties, "netUtilCacheMaxSize",
+						rhinoformsProperties.getNetUtilCacheMaxSize()));
+				rhinoformsProperties.setNetUtilConnectTimeout(getInt(properties, "netUtilConnectTimeout",
+						rhinoformsProperties.getNetUtilConnectTimeout()));
+				rhinoformsProperties.setNetUtilReadTimeout(getInt(properties, "netUtilReadTimeout",
+						rhinoformsProperties.getNetUtilReadTimeout()));
+				rhinoformsProperties.setFieldSourceProxyCacheTimeToLive(getLong(properties, "fieldSourceProxyCacheTimeToLive",
+						rhinoformsProperties.getFieldSourceProxyCacheTimeToLive()));
+				rhinoformsProperties.setFieldSourceProxyCacheMaxSize(getInt(properties, "fieldSourceProxyCacheMaxSize",
+						rhinoformsProperties.getFieldSourceProxyCacheMaxSize()));
+				rhinoformsProperties.setFieldSourceProxyConnectTimeout(getInt(properties, "fieldSourceProxyConnectTimeout",
+						rhinoformsProperties.getFieldSourceProxyConnectTimeout()));
+				rhinoformsProperties.setFieldSourceProxyReadTimeout(getInt(properties, "fieldSourceProxyReadTimeout",
+						rhinoformsProperties.getFieldSourceProxyReadTimeout()));
+				rhinoformsProperties.setFieldSourceProxyThreads(getInt(properties, "fieldSourceProxyThreads",
+						rhinoformsProperties.getFieldSourceProxyThreads()));
+				rhinoformsProperties.setFieldSourceProxyQueueSize(getInt(properties, "fieldSourceProxyQueueSize",
+						rhinoformsProperties.getFieldSourceProxyQueueSize()));
+				rhinoformsProperties.setConnectionPooling(getBoolean(properties, "connectionPooling",
+						rhinoformsProperties.isConnectionPooling()));
+				rhinoformsProperties.setConnectionMaxPerHost(getInt(properties, "connectionMaxPerHost",
+						rhinoformsProperties.getConnectionMaxPerHost()));
+				rhinoformsProperties.setConnectionConnectTimeout(getInt(properties, "connectionConnectTimeout",
+						rhinoformsProperties.getConnectionConnectTimeout()));
+				rhinoformsProperties.setConnectionReadTimeout(getInt(properties, "connectionReadTimeout",
+						rhinoformsProperties.getConnectionReadTimeout()));
+				rhinoformsProperties.setConnectionGzipResponses(getBoolean(properties, "connectionGzipResponses",
+						rhinoformsProperties.isConnectionGzipResponses()));
+				rhinoformsProperties.setConnectionGzipRequests(getBoolean(properties, "connectionGzipRequests",
+						rhinoformsProperties.isConnectionGzipRequests()));
+				rhinoformsProperties.setSubmissionThreads(getInt(properties, "submissionThreads",
+						rhinoformsProperties.getSubmissionThreads()));
+				rhinoformsProperties.setSubmissionChunkedRequests(getBoolean(properties, "submissionChunkedRequests",
+						rhinoformsProperties.isSubmissionChunkedRequests()));
+				rhinoformsProperties.setFlowSerialisationCompression(getBoolean(properties, "flowSerialisationCompression",
+						rhinoformsProperties.isFlowSerialisationCompression()));
+				rhinoformsProperties.setFlowStore(getString(properties, "flowStore", rhinoformsProperties.getFlowStore()));
+				rhinoformsProperties.setFlowStoreMaxSize(getInt(properties, "flowStoreMaxSize",
+						rhinoformsProperties.getFlowStoreMaxSize()));
+				rhinoformsProperties.setFlowStoreMaxIdleSeconds(getInt(properties, "flowStoreMaxIdleSeconds",
+						rhinoformsProperties.getFlowStoreMaxIdleSeconds()));
+				rhinoformsProperties.setFlowStoreDirectory(getString(properties, "flowStoreDirectory",
+						rhinoformsProperties.getFlowStoreDirectory()));
+				rhinoformsProperties.setFlowStoreFileMaxAgeSeconds(getInt(properties, "flowStoreFileMaxAgeSeconds",
+						rhinoformsProperties.getFlowStoreFileMaxAgeSeconds()));
 				return rhinoformsProperties;
 			} catch (IOException e) {
 				throw new RuntimeException("Failed to load " + filename);
@@ -59,5 +399,48 @@ public class RhinoformsProperties {
 			throw new RuntimeException("Failed to find " + filename);
 		}
 	}
+
+	private static int getInt(Properties properties, String name, int defaultValue) {
+		String value = getString(properties, name, null);
+		if (value != null) {
+			try {
+				return Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				throw new RuntimeException("Invalid value for property " + name + ": '" + value + "'", e);
+			}
+		}
+		return defaultValue;
+	}
+
+	private static long getLong(Properties properties, String name, long defaultValue) {
+		String value = getString(properties, name, null);
+		if (value != null) {
+			try {
+				return Long.parseLong(value);
+			} catch (NumberFormatException e) {
+				throw new RuntimeException("Invalid value for property " + name + ": '" + value + "'", e);
+			}
+		}
+		return defaultValue;
+	}
+
+	private static boolean getBoolean(Properties properties, String name, boolean defaultValue) {
+		String value = getString(properties, name, null);
+		if (value != null) {
+			return "true".equalsIgnoreCase(value);
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * @return the trimmed value of the property or the default if it is missing or blank
+	 */
+	private static String getString(Properties properties, String name, String defaultValue) {
+		String value = properties.getProperty(name);
+		if (value != null && !value.trim().isEmpty()) {
+			return value.trim();
+		}
+		return defaultValue;
+	}
 	
-}
\ No newline at end of file
+}
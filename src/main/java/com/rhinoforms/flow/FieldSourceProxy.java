@@ -1,10 +1,7 @@
 package com.rhinoforms.flow;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.Serializable;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletResponse;
@@ -12,7 +9,6 @@ import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.rhinoforms.util.StreamUtils;
 import com.rhinoforms.util.URIUtil;
 
 public class FieldSourceProxy implements Serializable {
@@ -20,7 +16,6 @@ public class FieldSourceProxy implements Serializable {
 	private String urlString;
 	private String proxyPath;
 
-	private static StreamUtils streamUtils = new StreamUtils();
 	private static URIUtil uriUtil = new URIUtil();
 
 	private static final Logger logger = LoggerFactory.getLogger(FieldSourceProxy.class);
@@ -39,7 +34,22 @@ public class FieldSourceProxy implements Serializable {
 		return proxyPath;
 	}
 
-	public void makeRequest(Map<String, String> parameterMap, HttpServletResponse response) throws FieldSourceProxyException {
+	public void makeRequest(Map<String, String> parameterMap, HttpServletResponse response, FieldSourceProxyEngine proxyEngine)
+			throws FieldSourceProxyException {
+		String thisUrl = resolveUrl(parameterMap);
+		logger.debug("Proxying url {}", thisUrl);
+		FieldSourceProxyResponse proxyResponse = proxyEngine.request(thisUrl);
+		try {
+			proxyResponse.writeTo(response);
+		} catch (IOException e) {
+			throw new FieldSourceProxyException("Failed to write proxy response for url '" + thisUrl + "'", e);
+		}
+	}
+
+	/**
+	 * @return the upstream URL with the input value and any other request parameters added
+	 */
+	public String resolveUrl(Map<String, String> parameterMap) {
 		String thisUrl = urlString;
 
 		// If present inject input value into URL
@@ -60,40 +70,7 @@ public class FieldSourceProxy implements Serializable {
 			thisUrl += paramsFromProxyCall;
 		}
 
-		logger.debug("Proxying url {}", thisUrl);
-
-		connectViaUrlConnection(thisUrl, response);
-	}
-
-	private void connectViaUrlConnection(String thisUrl, HttpServletResponse response) throws FieldSourceProxyException {
-		HttpURLConnection connection = null;
-		InputStream inputStream = null;
-		try {
-			connection = (HttpURLConnection) new URL(thisUrl).openConnection();
-			int responseCode = connection.getResponseCode();
-			if (responseCode == 200) {
-				response.setContentLength(connection.getContentLength());
-				response.setContentType(connection.getContentType());
-				inputStream = connection.getInputStream();
-				streamUtils.copyInputStreamToOutputStream(inputStream, response.getOutputStream());
-			} else {
-				response.sendError(responseCode, connection.getResponseMessage());
-			}
-		} catch (IOException e) {
-			logger.error("Proxy URL problem '{}'", thisUrl, e);
-			throw new FieldSourceProxyException();
-		} finally {
-			if (inputStream != null) {
-				try {
-					inputStream.close();
-				} catch (IOException e) {
-					logger.error("Failed to close connection to proxy url.", e);
-				}
-			}
-			if (connection != null) {
-				connection.disconnect();
-			}
-		}
+		return thisUrl;
 	}
 
 }
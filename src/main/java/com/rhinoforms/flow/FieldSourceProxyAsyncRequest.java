@@ -0,0 +1,104 @@
+package com.rhinoforms.flow;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a field source proxy request on a worker thread and completes the servlet's asynchronous request, so that the
+ * container thread is not held for the upstream round trip.
+ * Whichever of the upstream response, an error or the async timeout comes first is written, the others are ignored.
+ */
+public class FieldSourceProxyAsyncRequest implements Runnable, AsyncListener {
+
+	private String url;
+	private FieldSourceProxyEngine proxyEngine;
+	private AsyncContext asyncContext;
+	private final AtomicBoolean finished = new AtomicBoolean();
+
+	private static final Logger logger = LoggerFactory.getLogger(FieldSourceProxyAsyncRequest.class);
+
+	public FieldSourceProxyAsyncRequest(String url, FieldSourceProxyEngine proxyEngine, AsyncContext asyncContext) {
+		this.url = url;
+		this.proxyEngine = proxyEngine;
+		this.asyncContext = asyncContext;
+		asyncContext.addListener(this);
+	}
+
+	@Override
+	public void run() {
+		try {
+			FieldSourceProxyResponse proxyResponse = proxyEngine.request(url);
+			if (finished.compareAndSet(false, true)) {
+				try {
+					proxyResponse.writeTo(getResponse());
+				} finally {
+					asyncContext.complete();
+				}
+			}
+		} catch (FieldSourceProxyException e) {
+			logger.debug("Failed to perform proxy request.", e);
+			finish(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to perform proxy request.");
+		} catch (IOException e) {
+			logger.debug("Failed to write proxy response for url '{}'", url, e);
+		}
+	}
+
+	/**
+	 * Called when the request can not be queued.
+	 */
+	public void reject() {
+		finish(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Proxy request queue full.");
+	}
+
+	@Override
+	public void onTimeout(AsyncEvent event) throws IOException {
+		logger.debug("Proxy request timed out for url '{}'", url);
+		finish(HttpServletResponse.SC_GATEWAY_TIMEOUT, "Proxy request timed out.");
+	}
+
+	@Override
+	public void onError(AsyncEvent event) throws IOException {
+		logger.debug("Proxy request failed for url '{}'", url, event.getThrowable());
+		finish(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to perform proxy request.");
+	}
+
+	@Override
+	public void onComplete(AsyncEvent event) throws IOException {
+	}
+
+	@Override
+	public void onStartAsync(AsyncEvent event) throws IOException {
+	}
+
+	private void finish(int errorCode, String message) {
+		if (finished.compareAndSet(false, true)) {
+			try {
+				HttpServletResponse response = getResponse();
+				response.setStatus(errorCode);
+				response.setContentType("text/plain");
+				response.getWriter().write(message);
+			} catch (IOException e) {
+				logger.debug("Failed to write proxy error response for url '{}'", url, e);
+			} finally {
+				asyncContext.complete();
+			}
+		}
+	}
+
+	private HttpServletResponse getResponse() {
+		return (HttpServletResponse) asyncContext.getResponse();
+	}
+
+	public boolean isFinished() {
+		return finished.get();
+	}
+
+}
@@ -0,0 +1,161 @@
+package com.rhinoforms.flow;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rhinoforms.net.ConnectionFactory;
+import com.rhinoforms.util.StreamUtils;
+
+/**
+ * Makes the upstream requests for every {@link FieldSourceProxy}.
+ * 
+ * Successful responses are cached by URL for a time to live. Identical requests made while one is already in flight wait
+ * for and share its response rather than going upstream again. Connections are not disconnected after use so that they
+ * are kept alive and reused by the ConnectionFactory.
+ */
+public class FieldSourceProxyEngine {
+
+	public static final int MAX_CACHEABLE_RESPONSE_SIZE = 256 * 1024;
+
+	private ConnectionFactory connectionFactory;
+	private long cacheTimeToLive;
+	private int connectTimeout;
+	private int readTimeout;
+	private Map<String, CachedResponse> responseCache;
+	private ConcurrentMap<String, FutureTask<FieldSourceProxyResponse>> inFlightRequests;
+	private StreamUtils streamUtils;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	private static final Logger logger = LoggerFactory.getLogger(FieldSourceProxyEngine.class);
+
+	/**
+	 * @param cacheTimeToLive milliseconds a successful response is cached for, 0 disables the cache
+	 * @param cacheMaxSize the maximum number of URLs cached, the least recently used is removed first
+	 * @param connectTimeout connect timeout in milliseconds, 0 for no timeout
+	 * @param readTimeout read timeout in milliseconds, 0 for no timeout
+	 */
+	public FieldSourceProxyEngine(ConnectionFactory connectionFactory, long cacheTimeToLive, final int cacheMaxSize, int connectTimeout,
+			int readTimeout) {
+		this.connectionFactory = connectionFactory;
+		this.cacheTimeToLive = cacheMaxSize > 0 ? cacheTimeToLive : 0;
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+		this.responseCache = Collections.synchronizedMap(new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+				return size() > cacheMaxSize;
+			}
+		});
+		this.inFlightRequests = new ConcurrentHashMap<String, FutureTask<FieldSourceProxyResponse>>();
+		this.streamUtils = new StreamUtils();
+	}
+
+	public FieldSourceProxyResponse request(final String url) throws FieldSourceProxyException {
+		if (cacheTimeToLive > 0) {
+			CachedResponse cachedResponse = responseCache.get(url);
+			if (cachedResponse != null && System.currentTimeMillis() < cachedResponse.expires) {
+				hitCount.incrementAndGet();
+				return cachedResponse.response;
+			}
+		}
+
+		FutureTask<FieldSourceProxyResponse> task = new FutureTask<FieldSourceProxyResponse>(new Callable<FieldSourceProxyResponse>() {
+			@Override
+			public FieldSourceProxyResponse call() throws IOException {
+				FieldSourceProxyResponse response = fetch(url);
+				if (cacheTimeToLive > 0 && response.getResponseCode() == HttpURLConnection.HTTP_OK
+						&& response.getBody().length <= MAX_CACHEABLE_RESPONSE_SIZE) {
+					responseCache.put(url, new CachedResponse(response, System.currentTimeMillis() + cacheTimeToLive));
+				}
+				return response;
+			}
+		});
+		FutureTask<FieldSourceProxyResponse> inFlightRequest = inFlightRequests.putIfAbsent(url, task);
+		if (inFlightRequest == null) {
+			missCount.incrementAndGet();
+			try {
+				task.run();
+			} finally {
+				inFlightRequests.remove(url, task);
+			}
+			inFlightRequest = task;
+		} else {
+			logger.debug("Waiting for in flight request to proxy url {}", url);
+			coalescedCount.incrementAndGet();
+		}
+
+		try {
+			return inFlightRequest.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FieldSourceProxyException("Interrupted while waiting for proxy url '" + url + "'", e);
+		} catch (ExecutionException e) {
+			logger.error("Proxy URL problem '{}'", url, e.getCause());
+			throw new FieldSourceProxyException("Proxy URL problem '" + url + "'", e.getCause());
+		}
+	}
+
+	private FieldSourceProxyResponse fetch(String url) throws IOException {
+		HttpURLConnection connection = connectionFactory.openConnection(url);
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		int responseCode = connection.getResponseCode();
+		if (responseCode == HttpURLConnection.HTTP_OK) {
+			byte[] body = streamUtils.readStream(connection.getInputStream());
+			return new FieldSourceProxyResponse(responseCode, connection.getResponseMessage(), connection.getContentType(), body);
+		} else {
+			// Read any error body so that the connection can be reused
+			InputStream errorStream = connection.getErrorStream();
+			if (errorStream != null) {
+				streamUtils.readStream(errorStream);
+			}
+			return new FieldSourceProxyResponse(responseCode, connection.getResponseMessage(), null, null);
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "FieldSourceProxyEngine hits:" + hitCount + ", misses:" + missCount + ", coalesced:" + coalescedCount;
+	}
+
+	private static class CachedResponse {
+
+		private FieldSourceProxyResponse response;
+		private long expires;
+
+		public CachedResponse(FieldSourceProxyResponse response, long expires) {
+			this.response = response;
+			this.expires = expires;
+		}
+
+	}
+
+}
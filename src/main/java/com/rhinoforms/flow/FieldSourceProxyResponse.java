@@ -0,0 +1,51 @@
+package com.rhinoforms.flow;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A complete upstream response held in memory so that it can be cached and shared by coalesced requests.
+ */
+public class FieldSourceProxyResponse {
+
+	private int responseCode;
+	private String responseMessage;
+	private String contentType;
+	private byte[] body;
+
+	public FieldSourceProxyResponse(int responseCode, String responseMessage, String contentType, byte[] body) {
+		this.responseCode = responseCode;
+		this.responseMessage = responseMessage;
+		this.contentType = contentType;
+		this.body = body;
+	}
+
+	public void writeTo(HttpServletResponse response) throws IOException {
+		if (responseCode == HttpServletResponse.SC_OK) {
+			response.setContentLength(body.length);
+			response.setContentType(contentType);
+			response.getOutputStream().write(body);
+			response.getOutputStream().flush();
+		} else {
+			response.sendError(responseCode, responseMessage);
+		}
+	}
+
+	public int getResponseCode() {
+		return responseCode;
+	}
+
+	public String getResponseMessage() {
+		return responseMessage;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public byte[] getBody() {
+		return body;
+	}
+
+}
@@ -0,0 +1,190 @@
+package com.rhinoforms.flow;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The static part of a flow, the result of loading a flow definition file and its properties file.
+ * Populated by flow-loader.js then frozen, after which it is not modified.
+ *
+ * A shared definition is used by every flow created from the same path. When serialised only the flow path and version
+ * are written, the definition must be attached again using {@link FormFlowFactory#attachFlowDefinition(FormFlow)}.
+ * A definition which uses the flow id belongs to a single flow and is serialised in full.
+ */
+public class FlowDefinition implements Serializable {
+
+	private String flowPath;
+	private long version;
+	private boolean shared;
+	private transient boolean resolved;
+	private transient boolean frozen;
+	private transient String resourcesBase;
+	private transient Properties properties;
+	private transient String flowDocBase;
+	private transient String defaultInitialData;
+	private transient List<String> libraries;
+	private transient Map<String, List<Form>> formLists;
+	private transient boolean disableInputsOnSubmit;
+	private static final long serialVersionUID = 2270834169472914816L;
+
+	FlowDefinition(String flowPath, String resourcesBase, Properties properties) {
+		this.flowPath = flowPath;
+		this.resourcesBase = resourcesBase;
+		this.properties = properties;
+		this.resolved = true;
+		this.libraries = new ArrayList<String>();
+		this.formLists = new HashMap<String, List<Form>>();
+		this.disableInputsOnSubmit = true;
+	}
+
+	/**
+	 * @return an unresolved reference to a shared definition, as read back from a serialised flow
+	 */
+	static FlowDefinition createSharedReference(String flowPath, long version) {
+		FlowDefinition reference = new FlowDefinition(flowPath, null, null);
+		reference.version = version;
+		reference.shared = true;
+		reference.resolved = false;
+		return reference;
+	}
+
+	/**
+	 * Called once loading is complete. The definition can not be modified afterwards.
+	 */
+	void freeze(long version, boolean shared) {
+		this.version = version;
+		this.shared = shared;
+		for (String formListName : formLists.keySet()) {
+			formLists.put(formListName, Collections.unmodifiableList(formLists.get(formListName)));
+		}
+		this.formLists = Collections.unmodifiableMap(formLists);
+		this.libraries = Collections.unmodifiableList(libraries);
+		this.frozen = true;
+	}
+
+	public String resolveResourcePathIfRelative(String formResourcePath) {
+		if (formResourcePath.charAt(0) != '/') {
+			formResourcePath = resourcesBase + formResourcePath;
+		}
+		return formResourcePath;
+	}
+
+	public String getFlowPath() {
+		return flowPath;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public boolean isShared() {
+		return shared;
+	}
+
+	/**
+	 * @return false if this is a shared definition which has been deserialised but not yet attached again
+	 */
+	public boolean isResolved() {
+		return resolved;
+	}
+
+	public String getResourcesBase() {
+		return resourcesBase;
+	}
+
+	/**
+	 * The properties loaded from the flow's properties file before placeholders are filled.
+	 */
+	public Properties getProperties() {
+		return properties;
+	}
+
+	public String getFlowDocBase() {
+		return flowDocBase;
+	}
+
+	public void setFlowDocBase(String flowDocBase) {
+		checkNotFrozen();
+		this.flowDocBase = flowDocBase;
+	}
+
+	public String getDefaultInitialData() {
+		return defaultInitialData;
+	}
+
+	public void setDefaultInitialData(String defaultInitialData) {
+		checkNotFrozen();
+		this.defaultInitialData = defaultInitialData;
+	}
+
+	public List<String> getLibraries() {
+		return libraries;
+	}
+
+	public Map<String, List<Form>> getFormLists() {
+		return formLists;
+	}
+
+	public void addFormList(String listName, List<Form> formList) {
+		checkNotFrozen();
+		this.formLists.put(listName, formList);
+	}
+
+	public boolean isDisableInputsOnSubmit() {
+		return disableInputsOnSubmit;
+	}
+
+	public void setDisableInputsOnSubmit(boolean disableInputsOnSubmit) {
+		checkNotFrozen();
+		this.disableInputsOnSubmit = disableInputsOnSubmit;
+	}
+
+	private void checkNotFrozen() {
+		if (frozen) {
+			throw new IllegalStateException("Flow definition '" + flowPath + "' has already been loaded and can not be modified.");
+		}
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		if (!shared) {
+			out.writeObject(resourcesBase);
+			out.writeObject(properties);
+			out.writeObject(flowDocBase);
+			out.writeObject(defaultInitialData);
+			out.writeObject(new ArrayList<String>(libraries));
+			out.writeObject(new HashMap<String, List<Form>>(formLists));
+			out.writeBoolean(disableInputsOnSubmit);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (!shared) {
+			resourcesBase = (String) in.readObject();
+			properties = (Properties) in.readObject();
+			flowDocBase = (String) in.readObject();
+			defaultInitialData = (String) in.readObject();
+			libraries = (List<String>) in.readObject();
+			formLists = (Map<String, List<Form>>) in.readObject();
+			disableInputsOnSubmit = in.readBoolean();
+			resolved = true;
+			freeze(version, shared);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "FlowDefinition path:" + flowPath + ", version:" + version + ", shared:" + shared;
+	}
+
+}
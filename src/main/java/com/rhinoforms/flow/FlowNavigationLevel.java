@@ -1,30 +1,33 @@
 package com.rhinoforms.flow;
 
 import java.io.Serializable;
-import java.util.List;
 
+/**
+ * A position within the flow. Forms are referenced by list name and index so that the navigation stack does not hold
+ * any part of the flow definition.
+ */
 public class FlowNavigationLevel implements Serializable {
 
-	private List<Form> currentFormList;
-	private Form currentForm;
+	private String formListName;
+	private int currentFormIndex;
 	private String docBase;
-	private static final long serialVersionUID = -8322834501530178520L;
+	private static final long serialVersionUID = 3160930815328562466L;
 
-	public FlowNavigationLevel(List<Form> currentFormList, Form currentForm) {
-		this.currentFormList = currentFormList;
-		this.currentForm = currentForm;
+	public FlowNavigationLevel(String formListName, int currentFormIndex) {
+		this.formListName = formListName;
+		this.currentFormIndex = currentFormIndex;
 	}
 	
-	public List<Form> getCurrentFormList() {
-		return currentFormList;
+	public String getFormListName() {
+		return formListName;
 	}
 	
-	public Form getCurrentForm() {
-		return currentForm;
+	public int getCurrentFormIndex() {
+		return currentFormIndex;
 	}
 	
-	public void setCurrentForm(Form currentForm) {
-		this.currentForm = currentForm;
+	public void setCurrentFormIndex(int currentFormIndex) {
+		this.currentFormIndex = currentFormIndex;
 	}
 
 	public String getDocBase() {
@@ -1,14 +1,26 @@
 package com.rhinoforms.flow;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
 import java.io.IOException;
-import java.io.Serializable;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Stack;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.dom.DOMResult;
@@ -18,18 +30,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 
+import com.rhinoforms.RhinoformsProperties;
+import com.rhinoforms.xml.BinaryDocumentCodec;
 import com.rhinoforms.xml.DocumentHelper;
 import com.rhinoforms.xml.FlowExceptionXPath;
 
-public class FormFlow implements Serializable {
+/**
+ * The state of one user's progress through a flow, held in the session.
+ * Serialised with {@link #writeExternal(ObjectOutput)} rather than default serialisation to keep session replication
+ * and passivation small.
+ */
+public class FormFlow implements Externalizable {
 
 	private String flowId;
-	private String flowDocBase;
-	private String defaultInitialData;
-	private List<String> libraries;
-	private Map<String, List<Form>> formLists;
+	private FlowDefinition flowDefinition;
 	private Document dataDocument;
-	private Properties properties;
+	private transient Properties properties;
 
 	private Stack<FlowNavigationLevel> navigationStack;
 	private List<InputPojo> currentInputPojos;
@@ -38,34 +54,47 @@ public class FormFlow implements Serializable {
 	private transient RemoteSubmissionHelper remoteSubmissionHelper;
 	private transient SubmissionTimeKeeper submissionTimeKeeper;
 	private transient TransformHelper transformHelper;
-
-	private boolean disableInputsOnSubmit;
+	private transient volatile boolean changed = true;
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(FormFlow.class);
-	private static final long serialVersionUID = -5683469121328756822L;
-
+	private static final long serialVersionUID = 6210436514209437312L;
+
+	private static final int SERIAL_FORMAT_VERSION = 1;
+	private static final int SERIAL_FLAG_COMPRESSED = 1;
+	private static final int DEFINITION_NONE = 0;
+	private static final int DEFINITION_SHARED_REFERENCE = 1;
+	private static final int DEFINITION_INCLUDED = 2;
+	private static final BinaryDocumentCodec DOCUMENT_CODEC = new BinaryDocumentCodec();
+	private static final AtomicLong SERIALISED_COUNT = new AtomicLong();
+	private static final AtomicLong SERIALISED_BYTES = new AtomicLong();
+
+	/**
+	 * Used when reading a serialised flow, new flows are created by {@link FormFlowFactory} with their id.
+	 */
 	public FormFlow() {
-		this.flowId = (int) (Math.random() * 100000000f) + "";
-		this.formLists = new HashMap<String, List<Form>>();
 		this.navigationStack = new Stack<FlowNavigationLevel>();
 		this.fieldSourceProxies = new HashMap<String, FieldSourceProxy>();
-		this.libraries = new ArrayList<String>();
-		
-		this.disableInputsOnSubmit = true;
+	}
+
+	public FormFlow(String flowId) {
+		this();
+		this.flowId = flowId;
 	}
 
 	public String navigateToFirstForm(DocumentHelper documentHelper) throws FlowExceptionActionError, FlowExceptionXPath {
 		String listId = "main";
-		List<Form> formList = formLists.get(listId);
-		FlowNavigationLevel currentNavigationLevel = new FlowNavigationLevel(formList, formList.iterator().next());
+		FlowNavigationLevel currentNavigationLevel = new FlowNavigationLevel(listId, 0);
+		markChanged();
 		navigationStack.push(currentNavigationLevel);
-		String newDocBase = resolveNewDocBase("NewFlowFirstForm", currentNavigationLevel.getCurrentForm().getDocBase(), null, null, documentHelper);
+		String newDocBase = resolveNewDocBase("NewFlowFirstForm", getCurrentForm().getDocBase(), null, null, documentHelper);
 		currentNavigationLevel.setDocBase(newDocBase);
 		prepDataDocument(getCurrentDocBase(), null, false, documentHelper);
-		return currentNavigationLevel.getCurrentForm().getPath();
+		return getCurrentForm().getPath();
 	}
 
 	public String doAction(String actionName, Map<String, String> paramsFromFontend, DocumentHelper documentHelper) throws FlowExceptionActionError, FlowExceptionXPath {
+		// Any action moves through the flow or edits the Data Document
+		markChanged();
 		clearPreviousFormResources();
 
 		FlowAction flowAction = getAction(actionName);
@@ -79,17 +108,11 @@ public class FormFlow implements Serializable {
 		
 		List<Submission> submissions = flowAction.getSubmissions();
 		if (submissions != null) {
-			List<Integer> times = new ArrayList<Integer>();
-			long startTime;
-			for (Submission submission : submissions) {
-				startTime = new Date().getTime();
-				Map<String, String> xsltParameters = new HashMap<String, String>();
-				xsltParameters.put("rf.flowId", flowId);
-				xsltParameters.put("rf.formId", getCurrentFormId());
-				xsltParameters.put("rf.actionName", actionName);
-				remoteSubmissionHelper.handleSubmission(submission, xsltParameters, this);
-				times.add((int) (startTime - new Date().getTime()));
-			}
+			Map<String, String> xsltParameters = new HashMap<String, String>();
+			xsltParameters.put("rf.flowId", flowId);
+			xsltParameters.put("rf.formId", getCurrentFormId());
+			xsltParameters.put("rf.actionName", actionName);
+			List<Integer> times = remoteSubmissionHelper.handleSubmissions(submissions, xsltParameters, this);
 			LOGGER.debug("submissionTimeKeeper {} formId {} actionName {} times {}", new Object[] {submissionTimeKeeper, getCurrentFormId(), actionName, times});
 			submissionTimeKeeper.recordTimeTaken(getCurrentFormId(), actionName, times);
 		}
@@ -110,15 +133,15 @@ public class FormFlow implements Serializable {
 		if (actionTarget.isEmpty()) {
 			if (actionType == FlowActionType.NEXT || actionType == FlowActionType.BACK || actionType == FlowActionType.CANCEL) {
 				// Moving forward or back in list. May pop up to next level if end of current list.
-				int currentFormIndexInList = currentNavigationLevel.getCurrentForm().getIndexInList();
+				int currentFormIndexInList = currentNavigationLevel.getCurrentFormIndex();
 				int nextIndex;
 				if (actionType == FlowActionType.NEXT) {
 					nextIndex = currentFormIndexInList + 1;
 				} else {
 					nextIndex = currentFormIndexInList - 1;
 				}
-				if (isValidIndex(nextIndex, currentNavigationLevel.getCurrentFormList().size())) {
-					changeFormInCurrentList(nextIndex);
+				if (isValidIndex(nextIndex, getFormList(currentNavigationLevel).size())) {
+					currentNavigationLevel.setCurrentFormIndex(nextIndex);
 				} else {
 					if (navigationStack.size() > 1) {
 						currentNavigationLevel = moveUpNavStack();
@@ -145,48 +168,50 @@ public class FormFlow implements Serializable {
 			}
 		} else {
 			// Moving to a named form
-			List<Form> formList = currentNavigationLevel.getCurrentFormList();
+			String formListName = currentNavigationLevel.getFormListName();
 			String actionTargetFormId;
+			boolean newFormList = false;
 			if (actionTarget.contains(".")) {
 				// Navigating to another form list
 				String[] actionTargetParts = actionTarget.split("\\.");
-				formList = formLists.get(actionTargetParts[0]);
+				formListName = actionTargetParts[0];
 				actionTargetFormId = actionTargetParts[1];
-				currentNavigationLevel = new FlowNavigationLevel(formList, null);
-				navigationStack.push(currentNavigationLevel);
+				newFormList = true;
 			} else {
 				actionTargetFormId = actionTarget;
 			}
-			Form nextForm = null;
-			for (Form form : formList) {
-				if (form.getId().equals(actionTargetFormId)) {
-					nextForm = form;
+			List<Form> formList = getFormLists().get(formListName);
+			int nextFormIndex = -1;
+			for (int i = 0; i < formList.size(); i++) {
+				if (formList.get(i).getId().equals(actionTargetFormId)) {
+					nextFormIndex = i;
 				}
 			}
-			if (nextForm != null) {
-				currentNavigationLevel.setCurrentForm(nextForm);
+			if (nextFormIndex != -1) {
+				if (newFormList) {
+					currentNavigationLevel = new FlowNavigationLevel(formListName, nextFormIndex);
+					navigationStack.push(currentNavigationLevel);
+				} else {
+					currentNavigationLevel.setCurrentFormIndex(nextFormIndex);
+				}
 			} else {
 				throw new FlowExceptionActionError("Did not find form with id '" + actionTargetFormId + "'.");
 			}
 		}
 		
 		if (!movedUpNavStack) {
-			String newDocBase = resolveNewDocBase(actionName, currentNavigationLevel.getCurrentForm().getDocBase(), actionParams, lastDocBase, documentHelper);
+			String newDocBase = resolveNewDocBase(actionName, getCurrentForm().getDocBase(), actionParams, lastDocBase, documentHelper);
 			currentNavigationLevel.setDocBase(newDocBase);
 		}
 		prepDataDocument(getCurrentDocBase(), lastDocBase, flowAction.isClearTargetFormDocBase(), documentHelper);
 		
-		return currentNavigationLevel.getCurrentForm().getPath();
+		return getCurrentForm().getPath();
 	}
 
 	private boolean isValidIndex(int nextIndex, int listSize) {
 		return nextIndex >= 0 && nextIndex < listSize;
 	}
 
-	private void changeFormInCurrentList(int nextIndex) {
-		getCurrentNavigationLevel().setCurrentForm(getCurrentNavigationLevel().getCurrentFormList().get(nextIndex));
-	}
-
 	private FlowNavigationLevel moveUpNavStack() {
 		// Discard top item in stack
 		navigationStack.pop();
@@ -234,13 +259,13 @@ public class FormFlow implements Serializable {
 	}
 
 	public FlowAction getAction(String action) throws FlowExceptionActionError {
-		Map<String, FlowAction> actions = getCurrentNavigationLevel().getCurrentForm().getActions();
+		Map<String, FlowAction> actions = getCurrentForm().getActions();
 		if (actions.containsKey(action)) {
 			return actions.get(action);
 		} else {
 			StringBuilder builder = new StringBuilder();
 			builder.append("Action not valid for the current form. ");
-			builder.append("Current formId: ").append(getCurrentNavigationLevel().getCurrentForm().getId()).append(", ");
+			builder.append("Current formId: ").append(getCurrentForm().getId()).append(", ");
 			builder.append("valid actions: ").append(actions.keySet()).append(", ");
 			builder.append("requested action: ").append(action);
 			throw new FlowExceptionActionError(builder.toString());
@@ -273,24 +298,30 @@ public class FormFlow implements Serializable {
 		return navigationStack.peek();
 	}
 	
+	private List<Form> getFormList(FlowNavigationLevel navigationLevel) {
+		return getFormLists().get(navigationLevel.getFormListName());
+	}
+	
+	private Form getCurrentForm() {
+		FlowNavigationLevel currentNavigationLevel = getCurrentNavigationLevel();
+		return getFormList(currentNavigationLevel).get(currentNavigationLevel.getCurrentFormIndex());
+	}
+	
 	public String getCurrentPath() {
-		return getCurrentNavigationLevel().getCurrentForm().getPath();
+		return getCurrentForm().getPath();
 	}
 	
 	public String getCurrentFormId() {
-		return getCurrentNavigationLevel().getCurrentForm().getId();
+		return getCurrentForm().getId();
 	}
 
 	public Map<String, FlowAction> getCurrentActions() {
-		return getCurrentNavigationLevel().getCurrentForm().getActions();
-	}
-	
-	public void addFormList(String listName, List<Form> formList) {
-		this.formLists.put(listName, formList);
+		return getCurrentForm().getActions();
 	}
 
 	public void addFieldSourceProxy(FieldSourceProxy fieldSourceProxy) {
 		fieldSourceProxies.put(fieldSourceProxy.getProxyPath(), fieldSourceProxy);
+		markChanged();
 	}
 
 	public FieldSourceProxy getFieldSourceProxy(String proxyPath) {
@@ -298,27 +329,30 @@ public class FormFlow implements Serializable {
 	}
 
 	public void clearFieldSourceProxies() {
-		fieldSourceProxies.clear();
+		if (!fieldSourceProxies.isEmpty()) {
+			fieldSourceProxies.clear();
+			markChanged();
+		}
 	}
 
 	public String getId() {
 		return flowId;
 	}
 	
-	public String getDefaultInitialData() {
-		return defaultInitialData;
+	public FlowDefinition getFlowDefinition() {
+		return flowDefinition;
 	}
 	
-	public void setDefaultInitialData(String defaultInitalData) {
-		this.defaultInitialData = defaultInitalData;
+	public void setFlowDefinition(FlowDefinition flowDefinition) {
+		this.flowDefinition = flowDefinition;
+	}
+	
+	public String getDefaultInitialData() {
+		return flowDefinition.getDefaultInitialData();
 	}
 
 	public List<String> getLibraries() {
-		return libraries;
-	}
-	
-	public void setLibraries(List<String> libraries) {
-		this.libraries = libraries;
+		return flowDefinition.getLibraries();
 	}
 	
 	public List<InputPojo> getCurrentInputPojos() {
@@ -327,14 +361,11 @@ public class FormFlow implements Serializable {
 
 	public void setCurrentInputPojos(List<InputPojo> currentInputPojos) {
 		this.currentInputPojos = currentInputPojos;
+		markChanged();
 	}
 
 	public Map<String, List<Form>> getFormLists() {
-		return formLists;
-	}
-
-	public void setFormLists(Map<String, List<Form>> formLists) {
-		this.formLists = formLists;
+		return flowDefinition.getFormLists();
 	}
 
 	public Document getDataDocument() {
@@ -343,6 +374,7 @@ public class FormFlow implements Serializable {
 
 	public void setDataDocument(Document dataDocument) {
 		this.dataDocument = dataDocument;
+		markChanged();
 	}
 
 	public String getCurrentDocBase() {
@@ -350,15 +382,16 @@ public class FormFlow implements Serializable {
 	}
 
 	public String getFlowDocBase() {
-		return flowDocBase;
+		return flowDefinition.getFlowDocBase();
 	}
 
-	public void setFlowDocBase(String flowDocBase) {
-		this.flowDocBase = flowDocBase;
+	public String getResourcesBase() {
+		return resourcesBase;
 	}
 
 	public void setResourcesBase(String resourcesBase) {
 		this.resourcesBase = resourcesBase;
+		markChanged();
 	}
 	
 	public void setRemoteSubmissionHelper(RemoteSubmissionHelper remoteSubmissionHelper) {
@@ -373,12 +406,8 @@ public class FormFlow implements Serializable {
 		this.transformHelper = transformHelper;
 	}
 
-	public void setDisableInputsOnSubmit(boolean disableInputsOnSubmit) {
-		this.disableInputsOnSubmit = disableInputsOnSubmit;
-	}
-	
 	public boolean isDisableInputsOnSubmit() {
-		return disableInputsOnSubmit;
+		return flowDefinition.isDisableInputsOnSubmit();
 	}
 	
 	public void setProperties(Properties properties) {
@@ -388,5 +417,186 @@ public class FormFlow implements Serializable {
 	public Properties getProperties() {
 		return properties;
 	}
-	
+
+	/**
+	 * @return true if the flow has changed since {@link #clearChanged()} was last called, so the stored copy is out of
+	 *         date. A new flow is changed, a flow which has just been deserialised is not.
+	 */
+	public boolean isChanged() {
+		return changed;
+	}
+
+	/**
+	 * Records that the state of the flow has been modified. Called by anything which edits the Data Document directly.
+	 */
+	public void markChanged() {
+		changed = true;
+	}
+
+	public void clearChanged() {
+		changed = false;
+	}
+
+	/**
+	 * Writes the flow in a compact versioned format: a shared flow definition is written as a reference and the Data
+	 * Document in binary. The format version and flags are written first, followed by the length of the rest which is
+	 * deflated if flowSerialisationCompression is enabled.
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		boolean compress = RhinoformsProperties.getInstance().isFlowSerialisationCompression();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+		try {
+			ObjectOutputStream bodyOut = new ObjectOutputStream(compress ? new DeflaterOutputStream(bytes, deflater, 8192) : bytes);
+			writeBody(bodyOut);
+			bodyOut.close();
+		} finally {
+			if (deflater != null) {
+				deflater.end();
+			}
+		}
+		out.writeInt(SERIAL_FORMAT_VERSION);
+		out.writeByte(compress ? SERIAL_FLAG_COMPRESSED : 0);
+		out.writeInt(bytes.size());
+		out.write(bytes.toByteArray());
+		SERIALISED_COUNT.incrementAndGet();
+		SERIALISED_BYTES.addAndGet(bytes.size());
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		int version = in.readInt();
+		if (version != SERIAL_FORMAT_VERSION) {
+			throw new InvalidClassException(FormFlow.class.getName(), "Unknown serialised form format version " + version);
+		}
+		int flags = in.readByte();
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		InputStream bodyStream = new ByteArrayInputStream(bytes);
+		if ((flags & SERIAL_FLAG_COMPRESSED) != 0) {
+			bodyStream = new InflaterInputStream(bodyStream);
+		}
+		ObjectInputStream bodyIn = new ObjectInputStream(bodyStream);
+		try {
+			readBody(bodyIn);
+		} finally {
+			bodyIn.close();
+		}
+		// The same as the stored copy
+		changed = false;
+	}
+
+	/**
+	 * @return the number of times a flow has been serialised, by session replication or passivation
+	 */
+	public static long getSerialisedCount() {
+		return SERIALISED_COUNT.get();
+	}
+
+	/**
+	 * @return the total size in bytes of the flows serialised
+	 */
+	public static long getSerialisedBytes() {
+		return SERIALISED_BYTES.get();
+	}
+
+	private void writeBody(ObjectOutput out) throws IOException {
+		BinaryDocumentCodec.writeText(flowId, out);
+		BinaryDocumentCodec.writeText(resourcesBase, out);
+
+		if (flowDefinition == null) {
+			out.writeByte(DEFINITION_NONE);
+		} else if (flowDefinition.isShared()) {
+			out.writeByte(DEFINITION_SHARED_REFERENCE);
+			BinaryDocumentCodec.writeText(flowDefinition.getFlowPath(), out);
+			out.writeLong(flowDefinition.getVersion());
+		} else {
+			out.writeByte(DEFINITION_INCLUDED);
+			out.writeObject(flowDefinition);
+		}
+
+		BinaryDocumentCodec.writeLength(navigationStack.size(), out);
+		for (FlowNavigationLevel navigationLevel : navigationStack) {
+			BinaryDocumentCodec.writeText(navigationLevel.getFormListName(), out);
+			BinaryDocumentCodec.writeLength(navigationLevel.getCurrentFormIndex(), out);
+			BinaryDocumentCodec.writeText(navigationLevel.getDocBase(), out);
+		}
+
+		out.writeBoolean(currentInputPojos != null);
+		if (currentInputPojos != null) {
+			BinaryDocumentCodec.writeLength(currentInputPojos.size(), out);
+			for (InputPojo inputPojo : currentInputPojos) {
+				BinaryDocumentCodec.writeText(inputPojo.getName(), out);
+				BinaryDocumentCodec.writeText(inputPojo.getType(), out);
+				BinaryDocumentCodec.writeText(inputPojo.getValue(), out);
+				Map<String, String> rfAttributes = inputPojo.getRfAttributes();
+				BinaryDocumentCodec.writeLength(rfAttributes.size(), out);
+				for (Map.Entry<String, String> rfAttribute : rfAttributes.entrySet()) {
+					BinaryDocumentCodec.writeText(rfAttribute.getKey(), out);
+					BinaryDocumentCodec.writeText(rfAttribute.getValue(), out);
+				}
+			}
+		}
+
+		BinaryDocumentCodec.writeLength(fieldSourceProxies.size(), out);
+		for (FieldSourceProxy fieldSourceProxy : fieldSourceProxies.values()) {
+			BinaryDocumentCodec.writeText(fieldSourceProxy.getProxyPath(), out);
+			BinaryDocumentCodec.writeText(fieldSourceProxy.getUrl(), out);
+		}
+
+		DOCUMENT_CODEC.writeDocument(dataDocument, out);
+	}
+
+	private void readBody(ObjectInput in) throws IOException, ClassNotFoundException {
+		flowId = BinaryDocumentCodec.readText(in);
+		resourcesBase = BinaryDocumentCodec.readText(in);
+
+		int definitionType = in.readByte();
+		if (definitionType == DEFINITION_SHARED_REFERENCE) {
+			String flowPath = BinaryDocumentCodec.readText(in);
+			flowDefinition = FlowDefinition.createSharedReference(flowPath, in.readLong());
+		} else if (definitionType == DEFINITION_INCLUDED) {
+			flowDefinition = (FlowDefinition) in.readObject();
+		} else {
+			flowDefinition = null;
+		}
+
+		navigationStack = new Stack<FlowNavigationLevel>();
+		int navigationLevelCount = BinaryDocumentCodec.readLength(in);
+		for (int i = 0; i < navigationLevelCount; i++) {
+			FlowNavigationLevel navigationLevel = new FlowNavigationLevel(BinaryDocumentCodec.readText(in), BinaryDocumentCodec.readLength(in));
+			navigationLevel.setDocBase(BinaryDocumentCodec.readText(in));
+			navigationStack.push(navigationLevel);
+		}
+
+		currentInputPojos = null;
+		if (in.readBoolean()) {
+			int inputPojoCount = BinaryDocumentCodec.readLength(in);
+			currentInputPojos = new ArrayList<InputPojo>(inputPojoCount);
+			for (int i = 0; i < inputPojoCount; i++) {
+				String name = BinaryDocumentCodec.readText(in);
+				String type = BinaryDocumentCodec.readText(in);
+				String value = BinaryDocumentCodec.readText(in);
+				int rfAttributeCount = BinaryDocumentCodec.readLength(in);
+				Map<String, String> rfAttributes = new LinkedHashMap<String, String>();
+				for (int j = 0; j < rfAttributeCount; j++) {
+					rfAttributes.put(BinaryDocumentCodec.readText(in), BinaryDocumentCodec.readText(in));
+				}
+				InputPojo inputPojo = new InputPojo(name, type, rfAttributes);
+				inputPojo.setValue(value);
+				currentInputPojos.add(inputPojo);
+			}
+		}
+
+		fieldSourceProxies = new HashMap<String, FieldSourceProxy>();
+		int fieldSourceProxyCount = BinaryDocumentCodec.readLength(in);
+		for (int i = 0; i < fieldSourceProxyCount; i++) {
+			String proxyPath = BinaryDocumentCodec.readText(in);
+			fieldSourceProxies.put(proxyPath, new FieldSourceProxy(proxyPath, BinaryDocumentCodec.readText(in)));
+		}
+
+		dataDocument = DOCUMENT_CODEC.readDocument(in);
+	}
+
 }
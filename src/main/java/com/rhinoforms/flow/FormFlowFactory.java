@@ -6,10 +6,15 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.security.SecureRandom;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.CRC32;
 
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.EvaluatorException;
@@ -19,15 +24,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 
+import com.rhinoforms.RhinoformsProperties;
 import com.rhinoforms.formparser.ValueInjector;
 import com.rhinoforms.js.JSMasterScope;
+import com.rhinoforms.resourceloader.FormResourcesChangedListener;
 import com.rhinoforms.resourceloader.ResourceLoader;
 import com.rhinoforms.util.LinkedProperties;
 import com.rhinoforms.xml.DocumentHelper;
 import com.rhinoforms.xml.DocumentHelperException;
 import com.rhinoforms.xml.FlowExceptionXPath;
 
-public class FormFlowFactory {
+public class FormFlowFactory implements FormResourcesChangedListener {
 
 	private ResourceLoader resourceLoader;
 	private JSMasterScope masterScope;
@@ -35,6 +42,10 @@ public class FormFlowFactory {
 	private DocumentHelper documentHelper;
 	private ValueInjector valueInjector;
 	private SubmissionTimeKeeper submissionTimeKeeper;
+	private boolean flowDefinitionCaching;
+	private Map<String, FlowDefinition> flowDefinitionCache;
+	private static final String FLOW_ID_PLACEHOLDER = "__rf.flowId__";
+	private static final SecureRandom FLOW_ID_RANDOM = new SecureRandom();
 	private static final Logger LOGGER = LoggerFactory.getLogger(FormFlowFactory.class);
 
 	public FormFlowFactory(ResourceLoader resourceLoader, ValueInjector valueInjector, JSMasterScope masterScope, String servletContextPath, SubmissionTimeKeeper submissionTimeKeeper) {
@@ -44,19 +55,25 @@ public class FormFlowFactory {
 		this.submissionTimeKeeper = submissionTimeKeeper;
 		this.documentHelper = new DocumentHelper();
 		this.valueInjector = valueInjector;
+		this.flowDefinitionCaching = RhinoformsProperties.getInstance().isFormResourceCaching();
+		this.flowDefinitionCache = new ConcurrentHashMap<String, FlowDefinition>();
 	}
 
 	public FormFlow createFlow(String formFlowPath, String dataDocumentString) throws IOException,
 			FormFlowFactoryException {
 
 		try {
-			Scriptable scope = masterScope.createWorkingScope();
-			
 			// Create flow
-			FormFlow formFlow = new FormFlow();
+			FormFlow formFlow = new FormFlow(createFlowId());
 			formFlow.setResourcesBase(resolveResourcesBase(formFlowPath));
 			formFlow.setSubmissionTimeKeeper(submissionTimeKeeper);
-			loadFlowFromJSDefinition(formFlow, formFlowPath, scope, masterScope.getCurrentContext());
+			FlowDefinition flowDefinition = getFlowDefinition(formFlowPath);
+			Properties flowProperties = createFlowProperties(flowDefinition.getProperties(), formFlow.getId());
+			if (!flowDefinition.isShared()) {
+				flowDefinition = evaluateFlowDefinition(formFlowPath, flowDefinition.getProperties(), readFlowDefinition(formFlowPath, flowProperties), false);
+			}
+			formFlow.setFlowDefinition(flowDefinition);
+			formFlow.setProperties(flowProperties);
 
 			// Load or create data document
 			String flowDocBase = formFlow.getFlowDocBase();
@@ -110,57 +127,154 @@ public class FormFlowFactory {
 		return resourcesBase;
 	}
 
-	private void loadFlowFromJSDefinition(FormFlow formFlow, String formFlowJSDefinitionPath, Scriptable scope, Context jsContext)
-			throws IOException, FileNotFoundException, FormFlowFactoryException {
-		
+	/**
+	 * Attaches the shared flow definition and per flow properties to a flow which has been deserialised.
+	 * Does nothing if the flow is already attached.
+	 * 
+	 * @throws FormFlowFactoryException if the definition has changed since the flow was stored, the position of the flow
+	 *             in its form lists would no longer be valid
+	 */
+	public void attachFlowDefinition(FormFlow formFlow) throws IOException, FormFlowFactoryException {
+		FlowDefinition flowDefinition = formFlow.getFlowDefinition();
+		if (!flowDefinition.isResolved()) {
+			FlowDefinition currentFlowDefinition = getFlowDefinition(flowDefinition.getFlowPath());
+			if (!currentFlowDefinition.isShared()) {
+				throw new FormFlowFactoryException("Flow definition '" + flowDefinition.getFlowPath() + "' can no longer be shared between flows.");
+			}
+			if (currentFlowDefinition.getVersion() != flowDefinition.getVersion()) {
+				throw new FormFlowFactoryException("Flow definition '" + flowDefinition.getFlowPath() + "' has changed since flow " + formFlow.getId()
+						+ " was created.");
+			}
+			formFlow.setFlowDefinition(currentFlowDefinition);
+			flowDefinition = currentFlowDefinition;
+		}
+		if (formFlow.getProperties() == null) {
+			formFlow.setProperties(createFlowProperties(flowDefinition.getProperties(), formFlow.getId()));
+		}
+	}
+
+	/**
+	 * Returns the shared definition for the flow path, or if the definition uses the flow id a definition holding only
+	 * the loaded properties which must be evaluated for each flow.
+	 */
+	private FlowDefinition getFlowDefinition(String formFlowPath) throws IOException, FormFlowFactoryException {
+		FlowDefinition flowDefinition = flowDefinitionCache.get(formFlowPath);
+		if (flowDefinition == null) {
+			LOGGER.debug("Flow definition cache miss '{}'", formFlowPath);
+			Properties loadedProperties = loadFlowProperties(formFlowPath);
+			String flowDefinitionString = readFlowDefinition(formFlowPath, createFlowProperties(loadedProperties, FLOW_ID_PLACEHOLDER));
+			if (flowDefinitionString.contains(FLOW_ID_PLACEHOLDER)) {
+				// The flow id is different for every flow so the definition can not be shared
+				LOGGER.debug("Flow definition '{}' uses the flow id, it will be loaded for each flow.", formFlowPath);
+				flowDefinition = new FlowDefinition(formFlowPath, resolveResourcesBase(formFlowPath), loadedProperties);
+			} else {
+				flowDefinition = evaluateFlowDefinition(formFlowPath, loadedProperties, flowDefinitionString, true);
+			}
+			if (flowDefinitionCaching) {
+				flowDefinitionCache.put(formFlowPath, flowDefinition);
+			}
+		}
+		return flowDefinition;
+	}
+
+	/**
+	 * Flow ids are not guessable as flow stores other than the session find flows by id alone.
+	 */
+	private String createFlowId() {
+		return Long.toString(FLOW_ID_RANDOM.nextLong() & Long.MAX_VALUE);
+	}
+
+	private Properties createFlowProperties(Properties loadedProperties, String flowId) {
 		Properties flowProperties = new LinkedProperties();
-		loadFlowProperties(flowProperties, formFlowJSDefinitionPath);
+		for (Object key : loadedProperties.keySet()) {
+			flowProperties.put(key, loadedProperties.get(key));
+		}
 		flowProperties.put("contextPath", servletContextPath);
-		flowProperties.put("rf.flowId", formFlow.getId());
+		flowProperties.put("rf.flowId", flowId);
 		fillPlaceholders(flowProperties);
-		formFlow.setProperties(flowProperties);
-		
-		Object wrappedFormFlow = Context.javaToJS(formFlow, scope);
-		ScriptableObject.putProperty(scope, "formFlow", wrappedFormFlow);
-		String scriptPath = "/flow-loader.js";
-		jsContext.evaluateReader(scope, new InputStreamReader(FormFlowFactory.class.getResourceAsStream(scriptPath)), scriptPath, 1,
-				null);
+		return flowProperties;
+	}
 
-		InputStreamReader inputStreamReader = new InputStreamReader(resourceLoader.getFormResourceAsStream(formFlowJSDefinitionPath));
-		BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
+	private String readFlowDefinition(String formFlowJSDefinitionPath, Properties flowProperties) throws IOException, FormFlowFactoryException {
+		InputStream flowStream = resourceLoader.getFormResourceAsStream(formFlowJSDefinitionPath);
+		if (flowStream == null) {
+			throw new FileNotFoundException("Flow definition not found. Path:'" + formFlowJSDefinitionPath + "'");
+		}
+		BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(flowStream));
 		StringBuilder flowStringBuilder = new StringBuilder();
-		while (bufferedReader.ready()) {
-			flowStringBuilder.append(bufferedReader.readLine());
+		try {
+			while (bufferedReader.ready()) {
+				flowStringBuilder.append(bufferedReader.readLine());
+			}
+		} finally {
+			bufferedReader.close();
 		}
 
 		valueInjector.processFlowDefinitionCurlyBrackets(flowStringBuilder, flowProperties);
+		return flowStringBuilder.toString();
+	}
+
+	private FlowDefinition evaluateFlowDefinition(String formFlowJSDefinitionPath, Properties loadedProperties, String flowDefinitionString, boolean shared) throws IOException {
+		FlowDefinition flowDefinition = new FlowDefinition(formFlowJSDefinitionPath, resolveResourcesBase(formFlowJSDefinitionPath), loadedProperties);
+		Scriptable scope = masterScope.createWorkingScope();
+		Context jsContext = masterScope.getCurrentContext();
 		
-		flowStringBuilder.insert(0, "loadFlow(");
-		flowStringBuilder.append(")");
-		
-		String newFlowJsExpresion = flowStringBuilder.toString();
+		Object wrappedFlowDefinition = Context.javaToJS(flowDefinition, scope);
+		ScriptableObject.putProperty(scope, "flowDefinition", wrappedFlowDefinition);
+		String scriptPath = "/flow-loader.js";
+		jsContext.evaluateReader(scope, new InputStreamReader(FormFlowFactory.class.getResourceAsStream(scriptPath)), scriptPath, 1,
+				null);
+
+		String newFlowJsExpresion = "loadFlow(" + flowDefinitionString + ")";
 		jsContext.evaluateString(scope, newFlowJsExpresion, formFlowJSDefinitionPath, 1, null);
 		
-		List<String> libraries = formFlow.getLibraries();
+		List<String> libraries = flowDefinition.getLibraries();
 		for (int a = 0; a < libraries.size(); a++) {
-			libraries.set(a, formFlow.resolveResourcePathIfRelative(libraries.get(a)));
+			libraries.set(a, flowDefinition.resolveResourcePathIfRelative(libraries.get(a)));
 		}
 		
-		if (formFlow.getDefaultInitialData() != null) {
-			formFlow.setDefaultInitialData(formFlow.resolveResourcePathIfRelative(formFlow.getDefaultInitialData()));
+		if (flowDefinition.getDefaultInitialData() != null) {
+			flowDefinition.setDefaultInitialData(flowDefinition.resolveResourcePathIfRelative(flowDefinition.getDefaultInitialData()));
 		}
+		
+		flowDefinition.freeze(calculateVersion(flowDefinitionString, loadedProperties), shared);
+		return flowDefinition;
 	}
 	
-	private void loadFlowProperties(Properties properties, String formFlowJSDefinitionPath) throws IOException {
+	/**
+	 * The version is derived from the content so that it is the same on every server loading the same definition.
+	 */
+	private long calculateVersion(String flowDefinitionString, Properties loadedProperties) throws UnsupportedEncodingException {
+		CRC32 crc32 = new CRC32();
+		crc32.update(flowDefinitionString.getBytes("UTF-8"));
+		for (Object key : loadedProperties.keySet()) {
+			crc32.update((key + "=" + loadedProperties.get(key) + "\n").getBytes("UTF-8"));
+		}
+		return crc32.getValue();
+	}
+	
+	private Properties loadFlowProperties(String formFlowJSDefinitionPath) throws IOException {
+		Properties properties = new LinkedProperties();
 		String flowPropertiesPath = formFlowJSDefinitionPath.replace(".js", ".properties");
 		try {
 			InputStream formPropertiesStream = resourceLoader.getFormResourceAsStream(flowPropertiesPath);
 			if (formPropertiesStream != null) {
-				properties.load(formPropertiesStream);
+				try {
+					properties.load(formPropertiesStream);
+				} finally {
+					formPropertiesStream.close();
+				}
 			}
 		} catch (FileNotFoundException e) {
 			// No problem, properties file is optional
 		}
+		return properties;
+	}
+
+	@Override
+	public void formResourcesChanged() {
+		LOGGER.info("Clearing flow definition cache.");
+		flowDefinitionCache.clear();
 	}
 	
 	public void fillPlaceholders(Properties properties) {
@@ -13,7 +13,9 @@ import java.util.StringTokenizer;
 
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.EcmaError;
+import org.mozilla.javascript.Function;
 import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.WrappedException;
@@ -22,6 +24,7 @@ import org.slf4j.LoggerFactory;
 
 import com.rhinoforms.Constants;
 import com.rhinoforms.js.FlowExceptionFileNotFound;
+import com.rhinoforms.js.JSExecutionBudgetExceededError;
 import com.rhinoforms.js.JSMasterScope;
 import com.rhinoforms.js.JSSerialiser;
 import com.rhinoforms.xml.DocumentHelper;
@@ -85,8 +88,9 @@ public class FormSubmissionHelper {
 	
 	public Set<String> validateAndPersist(FormFlow formFlow, String actionName, FlowActionType actionType, Map<String, String> parameterMap) throws IOException, FlowExceptionFileNotFound, FlowExceptionJavaScript, FlowExceptionXPath {
 
-		// Collect input values
-		List<InputPojo> inputPojos = formFlow.getCurrentInputPojos();
+		// Collect input values. Not a change to the flow, the values are collected again from every post.
+		// A copy of the inputs so that removing includeIf and invalid inputs below leaves the flow as it was.
+		List<InputPojo> inputPojos = new ArrayList<InputPojo>(formFlow.getCurrentInputPojos());
 		for (InputPojo inputPojo : inputPojos) {
 			if (inputPojo.getType().equalsIgnoreCase("checkbox")) {
 				inputPojo.setValue(parameterMap.get(inputPojo.getName()) != null ? "true" : "false");
@@ -99,17 +103,25 @@ public class FormSubmissionHelper {
 			}
 		}
 		
-		Scriptable workingScope = masterScope.createWorkingScope(formFlow.getLibraries());
-		
-		// Process includeIf fields
-		List<InputPojo> includeFalseInputs = getIncludeFalseInputs(inputPojos, workingScope);
-		inputPojos.removeAll(includeFalseInputs);
-
-		// Process calculated fields
-		processCalculatedFields(inputPojos, workingScope);
-		
-		// Validate fields
-		Set<String> fieldsInError = validateInput(inputPojos, actionName, workingScope);
+		List<InputPojo> includeFalseInputs;
+		Set<String> fieldsInError;
+		try {
+			Scriptable workingScope = masterScope.createWorkingScope(formFlow.getLibraries());
+			Scriptable fields = addFieldsToScope(inputPojos, workingScope, Context.getCurrentContext());
+			
+			// Process includeIf fields
+			includeFalseInputs = getIncludeFalseInputs(inputPojos, fields, workingScope);
+			inputPojos.removeAll(includeFalseInputs);
+			removeFields(includeFalseInputs, inputPojos, fields, workingScope);
+	
+			// Process calculated fields
+			processCalculatedFields(inputPojos, fields, workingScope);
+			
+			// Validate fields
+			fieldsInError = validateInput(inputPojos, fields, actionName, workingScope);
+		} catch (JSExecutionBudgetExceededError e) {
+			throw new FlowExceptionJavaScript("Script stopped while processing form submission. " + e.getMessage(), e);
+		}
 
 		// If Back action remove any invalid input
 		if (actionType == FlowActionType.BACK && !fieldsInError.isEmpty()) {
@@ -128,12 +140,17 @@ public class FormSubmissionHelper {
 			String docBase = formFlow.getCurrentDocBase();
 			documentHelper.persistFormData(inputPojos, docBase, formFlow.getDataDocument());
 			documentHelper.clearFormData(includeFalseInputs, docBase, formFlow.getDataDocument());
+			formFlow.markChanged();
 		}
 
 		return fieldsInError;
 	}
 
 	List<InputPojo> getIncludeFalseInputs(List<InputPojo> inputPojos, Scriptable workingScope) {
+		return getIncludeFalseInputs(inputPojos, addFieldsToScope(inputPojos, workingScope, Context.getCurrentContext()), workingScope);
+	}
+
+	List<InputPojo> getIncludeFalseInputs(List<InputPojo> inputPojos, Scriptable fields, Scriptable workingScope) {
 		List<InputPojo> includeFalseInputPojos = new ArrayList<InputPojo>();
 		List<InputPojo> inputsWithIncludeIfStatements = new ArrayList<InputPojo>();
 		for (InputPojo inputPojo : inputPojos) {
@@ -143,11 +160,11 @@ public class FormSubmissionHelper {
 		}
 		if (!inputsWithIncludeIfStatements.isEmpty()) {
 			Context context = Context.getCurrentContext();
-			addFieldsToScope(inputPojos, workingScope, context);
 			for (InputPojo inputPojo : inputsWithIncludeIfStatements) {
 				String inputName = inputPojo.getName();
 				String includeIfStatement = inputPojo.getRfAttributes().get(Constants.INCLUDE_IF_ATTR);
-				Object object = context.evaluateString(workingScope, includeIfStatement, inputName + " " + Constants.INCLUDE_IF_ATTR +" statement", 1, null);
+				Script script = masterScope.getExpressionScript(includeIfStatement, inputName + " " + Constants.INCLUDE_IF_ATTR + " statement");
+				Object object = script.exec(context, workingScope);
 				boolean b = Context.toBoolean(object);
 				logger.debug("input {} name:'{}', result:'{}'", new Object[] {Constants.INCLUDE_IF_ATTR, inputName, b});
 				if (!b) {
@@ -158,7 +175,32 @@ public class FormSubmissionHelper {
 		return includeFalseInputPojos;
 	}
 
+	/**
+	 * Removes the fields of inputs which are no longer included, any remaining input with the same field key is put back.
+	 */
+	private void removeFields(List<InputPojo> removedInputPojos, List<InputPojo> inputPojos, Scriptable fields, Scriptable workingScope) {
+		if (!removedInputPojos.isEmpty()) {
+			Context context = Context.getCurrentContext();
+			Set<String> removedKeys = new HashSet<String>();
+			for (InputPojo removedInputPojo : removedInputPojos) {
+				String key = jsSerialiser.getFieldKey(removedInputPojo.getName());
+				ScriptableObject.deleteProperty(fields, key);
+				removedKeys.add(key);
+			}
+			for (InputPojo inputPojo : inputPojos) {
+				String key = jsSerialiser.getFieldKey(inputPojo.getName());
+				if (removedKeys.contains(key)) {
+					ScriptableObject.putProperty(fields, key, jsSerialiser.inputPOJOToNativeObject(inputPojo, context, workingScope));
+				}
+			}
+		}
+	}
+
 	void processCalculatedFields(List<InputPojo> inputPojos, Scriptable workingScope) {
+		processCalculatedFields(inputPojos, addFieldsToScope(inputPojos, workingScope, Context.getCurrentContext()), workingScope);
+	}
+
+	void processCalculatedFields(List<InputPojo> inputPojos, Scriptable fields, Scriptable workingScope) {
 		List<InputPojo> inputsWithCalculatedStatements = new ArrayList<InputPojo>();
 		for (InputPojo inputPojo : inputPojos) {
 			if (inputPojo.getRfAttributes().containsKey(Constants.CALCULATED_ATTR)) {
@@ -167,36 +209,42 @@ public class FormSubmissionHelper {
 		}
 		if (!inputsWithCalculatedStatements.isEmpty()) {
 			Context context = Context.getCurrentContext();
-			addFieldsToScope(inputPojos, workingScope, context);
 			for (InputPojo inputPojo : inputsWithCalculatedStatements) {
 				String inputName = inputPojo.getName();
 				String calcExpression = inputPojo.getRfAttributes().get(Constants.CALCULATED_ATTR);
-				Object result = context.evaluateString(workingScope, calcExpression, inputName + " " + Constants.CALCULATED_ATTR + " statement", 1, null);
+				Script script = masterScope.getExpressionScript(calcExpression, inputName + " " + Constants.CALCULATED_ATTR + " statement");
+				Object result = script.exec(context, workingScope);
 				String resultString = Context.toString(result);
 				logger.debug("input {} name:'{}', result:'{}'", new Object[] {Constants.CALCULATED_ATTR, inputName, resultString});
 				inputPojo.setValue(resultString);
 			}
+			// Update the fields after all calculations so that each calculation sees the submitted values
+			for (InputPojo inputPojo : inputsWithCalculatedStatements) {
+				Object field = ScriptableObject.getProperty(fields, jsSerialiser.getFieldKey(inputPojo.getName()));
+				if (field instanceof Scriptable) {
+					ScriptableObject.putProperty((Scriptable) field, "value", inputPojo.getValue());
+				}
+			}
 		}
 	}
 
-	private void addFieldsToScope(List<InputPojo> inputPojos, Scriptable workingScope, Context context) {
-		String jsPojoMapString = jsSerialiser.inputPOJOListToJS(inputPojos);
-		context.evaluateString(workingScope, "var fields = " + jsPojoMapString, "Add fields to scope", 1, null);
+	private Scriptable addFieldsToScope(List<InputPojo> inputPojos, Scriptable workingScope, Context context) {
+		Scriptable fields = jsSerialiser.inputPOJOListToNativeObject(inputPojos, context, workingScope);
+		ScriptableObject.putProperty(workingScope, "fields", fields);
+		return fields;
 	}
 	
 	Set<String> validateInput(List<InputPojo> inputPojos, String actionName, Scriptable workingScope) throws FlowExceptionJavaScript {
+		return validateInput(inputPojos, addFieldsToScope(inputPojos, workingScope, Context.getCurrentContext()), actionName, workingScope);
+	}
+	
+	Set<String> validateInput(List<InputPojo> inputPojos, Scriptable fields, String actionName, Scriptable workingScope) throws FlowExceptionJavaScript {
 		Set<String> fieldsInError = new HashSet<String>();
-		String jsPojoMapString = jsSerialiser.inputPOJOListToJS(inputPojos);
-		logger.debug("inputPojos as js:{}", jsPojoMapString);
-		StringBuilder commandStringBuilder = new StringBuilder();
-		commandStringBuilder.append("rf.validateFields(");
-		commandStringBuilder.append(jsPojoMapString);
-		commandStringBuilder.append(", '");
-		commandStringBuilder.append(actionName);
-		commandStringBuilder.append("')");
 		Context jsContext = Context.getCurrentContext();
 		try {
-			NativeArray errors = (NativeArray) jsContext.evaluateString(workingScope, commandStringBuilder.toString(), "<cmd>", 1, null);
+			Scriptable rf = (Scriptable) ScriptableObject.getProperty(workingScope, "rf");
+			Function validateFields = (Function) ScriptableObject.getProperty(rf, "validateFields");
+			NativeArray errors = (NativeArray) validateFields.call(jsContext, workingScope, rf, new Object[] { fields, actionName });
 			for (int i = 0; i < errors.getLength(); i++) {
 				ScriptableObject error = (ScriptableObject) errors.get(i, workingScope);
 				String errorFieldName = error.get("name", workingScope).toString();
@@ -208,6 +256,8 @@ public class FormSubmissionHelper {
 			throw new FlowExceptionJavaScript("EcmaError error while calling JavaScript function rf.validateFields.", e);
 		} catch (WrappedException e) {
 			throw new FlowExceptionJavaScript("WrappedException error while calling JavaScript function rf.validateFields.", e);
+		} catch (JSExecutionBudgetExceededError e) {
+			throw new FlowExceptionJavaScript("Script stopped while calling JavaScript function rf.validateFields. " + e.getMessage(), e);
 		}
 		return fieldsInError;
 	}
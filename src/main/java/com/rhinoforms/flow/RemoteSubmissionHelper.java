@@ -1,30 +1,41 @@
 package com.rhinoforms.flow;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.xml.transform.TransformerException;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
 import javax.xml.xpath.XPathExpressionException;
 
-import net.sf.json.JSON;
-import net.sf.json.JSONSerializer;
-import net.sf.json.xml.XMLSerializer;
-
-import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.w3c.dom.Text;
@@ -38,6 +49,8 @@ import com.rhinoforms.util.StreamUtils;
 import com.rhinoforms.xml.DocumentHelper;
 import com.rhinoforms.xml.DocumentHelperException;
 import com.rhinoforms.xml.FlowExceptionXPath;
+import com.rhinoforms.xml.JsonToXmlConverter;
+import com.rhinoforms.xml.JsonToXmlException;
 
 public class RemoteSubmissionHelper {
 
@@ -47,6 +60,9 @@ public class RemoteSubmissionHelper {
 	private TransformHelper transformHelper;
 	private ValueInjector valueInjector;
 	private StreamUtils streamUtils;
+	private ExecutorService executorService;
+	private boolean chunkedRequests = true;
+	private static final int CHUNK_SIZE = 8192;
 	private static final String UTF8 = "UTF-8";
 	private static final String DATA_DOCUMENT_VALUE_KEY = "[dataDocument]";
 	private static final Logger LOGGER = LoggerFactory.getLogger(RemoteSubmissionHelper.class);
@@ -63,6 +79,127 @@ public class RemoteSubmissionHelper {
 
 	public void handleSubmission(Submission submission, Map<String, String> xsltParameters, FormFlow formFlow)
 			throws RemoteSubmissionHelperException, FlowExceptionXPath {
+		SubmissionRequest submissionRequest = prepareRequest(submission, xsltParameters, formFlow);
+		try {
+			HttpURLConnection connection = sendRequest(submissionRequest);
+			InputStream inputStream = connection.getInputStream();
+			try {
+				insertResponse(submission, connection.getContentType(), inputStream, formFlow);
+			} finally {
+				inputStream.close();
+			}
+		} catch (IOException e) {
+			throw toSubmissionException(e, submission);
+		} catch (TransformerException e) {
+			throw toSubmissionException(e, submission);
+		} catch (DocumentHelperException e) {
+			throw toSubmissionException(e, submission);
+		} catch (JsonToXmlException e) {
+			throw toSubmissionException(e, submission);
+		}
+	}
+
+	/**
+	 * Runs the submissions of an action in order. Consecutive submissions marked as parallel are sent at the same time
+	 * using the executor, a submission which is not parallel waits for all before it to complete.
+	 * Requests are built and results are inserted into the DataDocument on the calling thread in submission order so the
+	 * DataDocument is only used by one thread and the result is the same as running the submissions one after another.
+	 * 
+	 * @return the time taken by each submission in milliseconds
+	 */
+	public List<Integer> handleSubmissions(List<Submission> submissions, Map<String, String> xsltParameters, FormFlow formFlow)
+			throws RemoteSubmissionHelperException, FlowExceptionXPath {
+		List<Integer> times = new ArrayList<Integer>();
+		int index = 0;
+		while (index < submissions.size()) {
+			int groupEnd = index + 1;
+			if (executorService != null && submissions.get(index).isParallel()) {
+				while (groupEnd < submissions.size() && submissions.get(groupEnd).isParallel()) {
+					groupEnd++;
+				}
+			}
+			if (groupEnd - index > 1) {
+				times.addAll(handleParallelSubmissions(submissions.subList(index, groupEnd), xsltParameters, formFlow));
+			} else {
+				long startTime = new Date().getTime();
+				handleSubmission(submissions.get(index), xsltParameters, formFlow);
+				times.add((int) (new Date().getTime() - startTime));
+			}
+			index = groupEnd;
+		}
+		return times;
+	}
+
+	private List<Integer> handleParallelSubmissions(List<Submission> submissions, Map<String, String> xsltParameters, FormFlow formFlow)
+			throws RemoteSubmissionHelperException, FlowExceptionXPath {
+		LOGGER.debug("Sending {} submissions in parallel", submissions.size());
+		long[] times = new long[submissions.size()];
+		List<Future<BufferedResponse>> futures = new ArrayList<Future<BufferedResponse>>();
+		try {
+			for (int i = 0; i < submissions.size(); i++) {
+				long startTime = new Date().getTime();
+				final SubmissionRequest submissionRequest = prepareRequest(submissions.get(i), xsltParameters, formFlow);
+				// Other submissions in the group write to the DataDocument while this one is sent
+				bufferRequestBody(submissionRequest);
+				times[i] = new Date().getTime() - startTime;
+				futures.add(executorService.submit(new Callable<BufferedResponse>() {
+					@Override
+					public BufferedResponse call() throws Exception {
+						long startTime = new Date().getTime();
+						HttpURLConnection connection = sendRequest(submissionRequest);
+						byte[] body = streamUtils.readStream(connection.getInputStream());
+						return new BufferedResponse(connection.getContentType(), body, new Date().getTime() - startTime);
+					}
+				}));
+			}
+
+			List<Integer> groupTimes = new ArrayList<Integer>();
+			for (int i = 0; i < submissions.size(); i++) {
+				Submission submission = submissions.get(i);
+				BufferedResponse response = getResponse(futures.get(i), submission);
+				long startTime = new Date().getTime();
+				try {
+					insertResponse(submission, response.contentType, new ByteArrayInputStream(response.body), formFlow);
+				} catch (IOException e) {
+					throw toSubmissionException(e, submission);
+				} catch (TransformerException e) {
+					throw toSubmissionException(e, submission);
+				} catch (DocumentHelperException e) {
+					throw toSubmissionException(e, submission);
+				} catch (JsonToXmlException e) {
+					throw toSubmissionException(e, submission);
+				}
+				times[i] += response.timeTaken + new Date().getTime() - startTime;
+				groupTimes.add((int) times[i]);
+			}
+			return groupTimes;
+		} finally {
+			for (Future<BufferedResponse> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	private BufferedResponse getResponse(Future<BufferedResponse> future, Submission submission) throws RemoteSubmissionHelperException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RemoteSubmissionHelperException("Interrupted while waiting for submission response.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RemoteSubmissionHelperException) {
+				throw (RemoteSubmissionHelperException) cause;
+			} else if (cause instanceof IOException) {
+				throw toSubmissionException((IOException) cause, submission);
+			} else {
+				throw new RemoteSubmissionHelperException("Error while handling submission.", cause);
+			}
+		}
+	}
+
+	private SubmissionRequest prepareRequest(Submission submission, Map<String, String> xsltParameters, FormFlow formFlow)
+			throws RemoteSubmissionHelperException, FlowExceptionXPath {
 		String url = submission.getUrl();
 		String method = submission.getMethod();
 		Map<String, String> data = submission.getData();
@@ -73,10 +210,23 @@ public class RemoteSubmissionHelper {
 
 		LOGGER.debug("Handling '{}' submission to '{}'", method, url);
 
-		String dataDocumentString;
+		if (rawXmlRequest && method.equals("POST")) {
+			// The body is written straight from the DataDocument to the connection when the request is sent
+			SubmissionRequest submissionRequest = new SubmissionRequest(submission, resolveUrl(submission, "", formFlow), null);
+			submissionRequest.dataDocument = dataDocument;
+			submissionRequest.xsltParameters = xsltParameters;
+			if (!chunkedRequests) {
+				bufferRequestBody(submissionRequest);
+			}
+			return submissionRequest;
+		}
+
+		String dataDocumentString = null;
 		String message = null;
 		try {
-			if (preTransform != null) {
+			if (!rawXmlRequest && !data.containsValue(DATA_DOCUMENT_VALUE_KEY)) {
+				LOGGER.debug("Data Document not used in submission request");
+			} else if (preTransform != null) {
 				message = "transforming Data Document using preTransform for submission.";
 				StringWriter transformResultWriter = new StringWriter();
 				transformHelper.handleTransform(preTransform, submission.isOmitXmlDeclaration(), xsltParameters, dataDocument, new StreamResult(transformResultWriter));
@@ -174,7 +324,14 @@ public class RemoteSubmissionHelper {
 		
 
 		LOGGER.debug("Submission data: {}", requestDataString);
-		
+
+		return new SubmissionRequest(submission, resolveUrl(submission, requestDataString, formFlow), requestDataString);
+	}
+
+	private String resolveUrl(Submission submission, String requestDataString, FormFlow formFlow) throws RemoteSubmissionHelperException {
+		String url = submission.getUrl();
+		String method = submission.getMethod();
+		Document dataDocument = formFlow.getDataDocument();
 		StringBuilder urlBuilder = new StringBuilder(url);
 		if (urlBuilder.indexOf("{{") != -1) {
 			try {
@@ -184,109 +341,222 @@ public class RemoteSubmissionHelper {
 			}
 		}
 
-		try {
-			if (!requestDataString.isEmpty() && !method.equals("POST")) {
-				if (urlBuilder.indexOf("?") == -1) {
-					urlBuilder.append("?");
-				} else {
-					urlBuilder.append("&");
-				}
-				urlBuilder.append(requestDataString);
+		if (!requestDataString.isEmpty() && !method.equals("POST")) {
+			if (urlBuilder.indexOf("?") == -1) {
+				urlBuilder.append("?");
+			} else {
+				urlBuilder.append("&");
 			}
-			
-			String resolvedUrl = urlBuilder.toString();
-			resolvedUrl = resolvedUrl.replaceAll(" ", "+");
-			if (!url.equals(resolvedUrl)) {
-				LOGGER.debug("Resolved url: '{}'", resolvedUrl);
+			urlBuilder.append(requestDataString);
+		}
+		
+		String resolvedUrl = urlBuilder.toString();
+		resolvedUrl = resolvedUrl.replaceAll(" ", "+");
+		if (!url.equals(resolvedUrl)) {
+			LOGGER.debug("Resolved url: '{}'", resolvedUrl);
+		}
+		return resolvedUrl;
+	}
+
+	/**
+	 * Writes a streamed request body to memory so that it can be sent without using the DataDocument, for parallel
+	 * submissions or when chunked requests are disabled.
+	 */
+	private void bufferRequestBody(SubmissionRequest submissionRequest) throws RemoteSubmissionHelperException {
+		if (submissionRequest.dataDocument != null) {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			try {
+				writeRequestBody(submissionRequest, outputStream);
+			} catch (TransformerException e) {
+				throw new RemoteSubmissionHelperException("Error while transforming Data Document for submission.", e);
+			} catch (IOException e) {
+				throw new RemoteSubmissionHelperException("Error while transforming Data Document for submission.", e);
 			}
-			
-			HttpURLConnection connection = connectionFactory.openConnection(resolvedUrl);
+			submissionRequest.requestBody = outputStream.toByteArray();
+			submissionRequest.dataDocument = null;
+		}
+	}
+
+	private void writeRequestBody(SubmissionRequest submissionRequest, OutputStream outputStream) throws IOException, TransformerException {
+		Submission submission = submissionRequest.submission;
+		if (submissionRequest.requestBody != null) {
+			outputStream.write(submissionRequest.requestBody);
+		} else if (submissionRequest.dataDocument != null) {
+			String preTransform = submission.getPreTransform();
+			if (preTransform != null) {
+				LOGGER.debug("Streaming Data Document using preTransform for submission.");
+				transformHelper.handleTransform(preTransform, submission.isOmitXmlDeclaration(), submissionRequest.xsltParameters,
+						submissionRequest.dataDocument, new StreamResult(outputStream));
+			} else {
+				LOGGER.debug("Streaming Data Document for submission.");
+				documentHelper.documentToStream(submissionRequest.dataDocument, outputStream, submission.isOmitXmlDeclaration());
+			}
+		} else {
+			Writer writer = new OutputStreamWriter(outputStream, UTF8);
+			writer.write(submissionRequest.requestDataString);
+			writer.flush();
+		}
+	}
 
+	/**
+	 * Opens the connection and sends the request. Does not use the DataDocument so may be called from any thread.
+	 * 
+	 * @return the connection after a 200 response has been received
+	 */
+	private HttpURLConnection sendRequest(SubmissionRequest submissionRequest) throws IOException, RemoteSubmissionHelperException {
+		Submission submission = submissionRequest.submission;
+		String method = submission.getMethod();
+		HttpURLConnection connection = connectionFactory.openConnection(submissionRequest.url);
+		boolean sent = false;
+		try {
 			connection.setRequestMethod(method.toUpperCase());
 
 			if (method.equals("POST")) {
-				connection.setRequestProperty("Content-Type", rawXmlRequest ? "application/xml" : "application/x-www-form-urlencoded");
+				connection.setRequestProperty("Content-Type", submission.isRawXmlRequest() ? "application/xml" : "application/x-www-form-urlencoded");
 				connection.setDoOutput(true);
-				OutputStream outputStream = connection.getOutputStream();
-				OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
-				outputStreamWriter.write(requestDataString);
-				outputStreamWriter.close();
+				if (submissionRequest.dataDocument != null) {
+					// Size not known until written
+					connection.setChunkedStreamingMode(CHUNK_SIZE);
+				}
+				OutputStream outputStream = new BufferedOutputStream(connection.getOutputStream(), CHUNK_SIZE);
+				try {
+					writeRequestBody(submissionRequest, outputStream);
+				} catch (TransformerException e) {
+					throw new RemoteSubmissionHelperException("Error while transforming Data Document for submission.", e);
+				}
+				outputStream.close();
 			}
 
 			int responseCode = connection.getResponseCode();
-			if (responseCode == 200) {
-				String resultInsertPoint = submission.getResultInsertPoint();
-				String contentType = connection.getContentType();
-				LOGGER.info("Response content type: {}", contentType);
-				
-				InputStream inputStream = connection.getInputStream();
-				try {
-					if (resultInsertPoint != null) {
-						
-						Node insertPointNode = documentHelper.lookupOrCreateNode(dataDocument, resultInsertPoint);
-						
-						if (contentType != null && contentType.startsWith("text/plain")) {
-							byte[] streamData = streamUtils.readStream(inputStream);
-							insertPointNode.setTextContent(new String(streamData));
-						} else {
-							Document resultDocument;
-							if (contentType != null && contentType.startsWith("application/json")) {
-								String jsonData = IOUtils.toString(inputStream);
-								JSON json = JSONSerializer.toJSON(jsonData);
-								
-								XMLSerializer xmlSerializer = new XMLSerializer();
-								xmlSerializer.setTypeHintsEnabled(submission.isJsonToXmlTypeHints());
-								String rootName = submission.getJsonToXmlRootName();
-								if (rootName != null) {
-									xmlSerializer.setRootName(rootName);
-								}
-								
-								String xml = xmlSerializer.write(json);
-								resultDocument = documentHelper.streamToDocument(new ByteArrayInputStream(xml.getBytes()));
-							} else {
-								resultDocument = documentHelper.streamToDocument(inputStream);
-							}
-	
-							if (LOGGER.isDebugEnabled()) {
-								LOGGER.debug("Result document: {}", documentHelper.documentToString(resultDocument));
-							}
-
-							Node nodeToImport = null;
-							if (postTransform != null) {
-								nodeToImport = transformHelper.handleTransform(postTransform, true, resultDocument);
-								if (LOGGER.isDebugEnabled()) {
-									LOGGER.debug("Transformed result: {}", documentHelper.documentToString(nodeToImport));
-								}
-							} else {
-								nodeToImport = resultDocument.getChildNodes().item(0);
-							}
-
-							Node importedNode = dataDocument.importNode(nodeToImport, true);
-
-							NodeList childNodes = insertPointNode.getChildNodes();
-							for (int i = 0; i < childNodes.getLength(); i++) {
-								insertPointNode.removeChild(childNodes.item(i));
-							}
-							insertPointNode.appendChild(importedNode);
-						}
-					} else {
-						LOGGER.info("Response body: {}", new String(new StreamUtils().readStream(connection.getInputStream())));
-					}
-				} finally {
-					inputStream.close();
+			if (responseCode != 200) {
+				InputStream errorStream = connection.getErrorStream();
+				if (errorStream != null) {
+					errorStream.close();
 				}
-			} else {
 				throw new RemoteSubmissionHelperException("Bad response from target service. Status:" + responseCode + ", message:"
 						+ connection.getResponseMessage(), submission.getMessageOnHttpError());
 			}
-		} catch (ConnectException e) {
-			throw new RemoteSubmissionHelperException("Failed to connect to a service that this form uses.", submission.getMessageOnHttpError(), e);
-		} catch (IOException e) {
-			throw new RemoteSubmissionHelperException("IOException while handling submission.", e);
-		} catch (TransformerException e) {
-			throw new RemoteSubmissionHelperException("Failed to transform the submission response document.", e);
-		} catch (DocumentHelperException e) {
-			throw new RemoteSubmissionHelperException("Failed to insert submission result into the DataDocument.", e);
+			sent = true;
+			return connection;
+		} finally {
+			// Releases the connection after any failure
+			if (!sent) {
+				connection.disconnect();
+			}
+		}
+	}
+
+	private void insertResponse(Submission submission, String contentType, InputStream inputStream, FormFlow formFlow)
+			throws IOException, TransformerException, DocumentHelperException, JsonToXmlException, FlowExceptionXPath {
+		String resultInsertPoint = submission.getResultInsertPoint();
+		String postTransform = submission.getPostTransform();
+		Document dataDocument = formFlow.getDataDocument();
+		LOGGER.info("Response content type: {}", contentType);
+		
+		if (resultInsertPoint != null) {
+			
+			formFlow.markChanged();
+			Node insertPointNode = documentHelper.lookupOrCreateNode(dataDocument, resultInsertPoint);
+			
+			if (contentType != null && contentType.startsWith("text/plain")) {
+				byte[] streamData = streamUtils.readStream(inputStream);
+				insertPointNode.setTextContent(new String(streamData));
+			} else if (contentType != null && contentType.startsWith("application/json") && postTransform == null) {
+				// Convert straight into the DataDocument
+				Element resultElement = convertJson(submission, contentType, inputStream, dataDocument);
+				replaceChildren(insertPointNode, resultElement);
+			} else {
+				// Built in a fragment of the DataDocument so the insert point is left as it was if the response fails
+				DocumentFragment resultFragment = dataDocument.createDocumentFragment();
+				if (contentType != null && contentType.startsWith("application/json")) {
+					Document resultDocument = documentHelper.newDocument();
+					resultDocument.appendChild(convertJson(submission, contentType, inputStream, resultDocument));
+					transformHelper.handleTransform(postTransform, new DOMSource(resultDocument), new DOMResult(resultFragment));
+				} else if (postTransform != null) {
+					transformHelper.handleTransform(postTransform, new StreamSource(inputStream), new DOMResult(resultFragment));
+				} else {
+					documentHelper.streamToNode(inputStream, resultFragment);
+				}
+
+				Node resultNode = getResultNode(resultFragment);
+				if (LOGGER.isDebugEnabled() && resultNode != null) {
+					LOGGER.debug("Result: {}", documentHelper.documentToString(resultNode));
+				}
+				replaceChildren(insertPointNode, resultNode);
+			}
+		} else {
+			LOGGER.info("Response body: {}", new String(streamUtils.readStream(inputStream)));
+		}
+	}
+
+	private Element convertJson(Submission submission, String contentType, InputStream inputStream, Document document) throws IOException,
+			JsonToXmlException {
+		JsonToXmlConverter jsonToXmlConverter = new JsonToXmlConverter(submission.isJsonToXmlTypeHints(), submission.getJsonToXmlRootName());
+		Element element = jsonToXmlConverter.convert(new InputStreamReader(inputStream, getCharset(contentType)), document);
+		if (LOGGER.isDebugEnabled()) {
+			try {
+				LOGGER.debug("Result document: {}", documentHelper.documentToString(element));
+			} catch (TransformerException e) {
+				LOGGER.debug("Failed to log result document.", e);
+			}
+		}
+		return element;
+	}
+
+	/**
+	 * @return the charset parameter of the content type, JSON defaults to UTF-8
+	 */
+	private String getCharset(String contentType) {
+		int charsetIndex = contentType.toLowerCase().indexOf("charset=");
+		if (charsetIndex != -1) {
+			String charset = contentType.substring(charsetIndex + 8);
+			int end = charset.indexOf(';');
+			if (end != -1) {
+				charset = charset.substring(0, end);
+			}
+			charset = charset.trim().replace("\"", "");
+			if (Charset.isSupported(charset)) {
+				return charset;
+			}
+		}
+		return UTF8;
+	}
+
+	/**
+	 * @return the first element of the result, or the first node if there are no elements
+	 */
+	private Node getResultNode(DocumentFragment resultFragment) {
+		for (Node node = resultFragment.getFirstChild(); node != null; node = node.getNextSibling()) {
+			if (node.getNodeType() == Node.ELEMENT_NODE) {
+				return node;
+			}
+		}
+		return resultFragment.getFirstChild();
+	}
+
+	private void replaceChildren(Node insertPointNode, Node newChild) {
+		Node child;
+		while ((child = insertPointNode.getFirstChild()) != null) {
+			insertPointNode.removeChild(child);
+		}
+		if (newChild != null) {
+			insertPointNode.appendChild(newChild);
+		}
+	}
+
+	private RemoteSubmissionHelperException toSubmissionException(Exception e, Submission submission) {
+		if (e instanceof RemoteSubmissionHelperException) {
+			return (RemoteSubmissionHelperException) e;
+		} else if (e instanceof ConnectException) {
+			return new RemoteSubmissionHelperException("Failed to connect to a service that this form uses.", submission.getMessageOnHttpError(), e);
+		} else if (e instanceof IOException) {
+			return new RemoteSubmissionHelperException("IOException while handling submission.", e);
+		} else if (e instanceof TransformerException) {
+			return new RemoteSubmissionHelperException("Failed to transform the submission response document.", e);
+		} else if (e instanceof JsonToXmlException) {
+			return new RemoteSubmissionHelperException("Failed to convert the JSON submission response to XML.", e);
+		} else {
+			return new RemoteSubmissionHelperException("Failed to insert submission result into the DataDocument.", e);
 		}
 	}
 
@@ -298,4 +568,50 @@ public class RemoteSubmissionHelper {
 		this.transformHelper = transformHelper;
 	}
 
+	/**
+	 * @param executorService used to send parallel submissions, if null all submissions are sent one after another
+	 */
+	public void setExecutorService(ExecutorService executorService) {
+		this.executorService = executorService;
+	}
+
+	/**
+	 * @param chunkedRequests if true raw XML request bodies are streamed from the DataDocument using chunked transfer
+	 *            encoding, otherwise they are written to memory first so the Content-Length can be sent
+	 */
+	public void setChunkedRequests(boolean chunkedRequests) {
+		this.chunkedRequests = chunkedRequests;
+	}
+
+	private static class SubmissionRequest {
+
+		private Submission submission;
+		private String url;
+		private String requestDataString;
+		private byte[] requestBody;
+		private Document dataDocument;
+		private Map<String, String> xsltParameters;
+
+		public SubmissionRequest(Submission submission, String url, String requestDataString) {
+			this.submission = submission;
+			this.url = url;
+			this.requestDataString = requestDataString;
+		}
+
+	}
+
+	private static class BufferedResponse {
+
+		private String contentType;
+		private byte[] body;
+		private long timeTaken;
+
+		public BufferedResponse(String contentType, byte[] body, long timeTaken) {
+			this.contentType = contentType;
+			this.body = body;
+			this.timeTaken = timeTaken;
+		}
+
+	}
+
 }
@@ -18,6 +18,7 @@ public class Submission implements Serializable {
 	private boolean jsonToXml;
 	private boolean jsonToXmlTypeHints;
 	private String jsonToXmlRootName;
+	private boolean parallel;
 	private static final long serialVersionUID = -6314856649818697445L;
 
 	public Submission(String url) {
@@ -121,4 +122,17 @@ public class Submission implements Serializable {
 		this.jsonToXmlRootName = jsonToXmlRootName;
 	}
 
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * @param parallel if true this submission does not depend on the results of the submissions next to it which are
+	 *            also parallel, so they may be sent at the same time. A submission which is not parallel is sent after
+	 *            all submissions before it have completed.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
 }
@@ -13,7 +13,7 @@ public class SubmissionTimeKeeper {
 		averages = new HashMap<String, List<Integer>>();
 	}
 	
-	public void recordTimeTaken(String formId, String action, List<Integer> times) {
+	public synchronized void recordTimeTaken(String formId, String action, List<Integer> times) {
 		String key = getKey(formId, action);
 		List<Integer> previousTimes = averages.get(key);
 		
@@ -26,7 +26,7 @@ public class SubmissionTimeKeeper {
 		}
 	}
 
-	public List<Integer> getEstimate(String formId, String action) {
+	public synchronized List<Integer> getEstimate(String formId, String action) {
 		return averages.get(getKey(formId, action));
 	}
 
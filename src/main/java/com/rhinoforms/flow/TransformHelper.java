@@ -4,9 +4,13 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -17,19 +21,37 @@ import javax.xml.transform.stream.StreamSource;
 
 import net.sf.saxon.TransformerFactoryImpl;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
+import com.rhinoforms.RhinoformsProperties;
+import com.rhinoforms.resourceloader.FormResourcesChangedListener;
 import com.rhinoforms.resourceloader.ResourceLoader;
 
-public class TransformHelper {
+/**
+ * Runs the XSL transforms of submissions and actions.
+ * Stylesheets are compiled once and the Templates cached by path until the form resources change, a new Transformer
+ * is created from the Templates for each transform as Transformers are not thread safe.
+ * Nothing is cached when form resource caching is off so stylesheet changes take effect straight away.
+ */
+public class TransformHelper implements FormResourcesChangedListener {
 	
 	private ResourceLoader resourceLoader;
 	private TransformerFactory transformerFactory;
+	private boolean templatesCaching;
+	private Map<String, Templates> templatesCache;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TransformHelper.class);
 
 	public TransformHelper(ResourceLoader resourceLoader) {
 		this.resourceLoader = resourceLoader;
 		transformerFactory = new TransformerFactoryImpl(); // Saxon Impl
+		templatesCaching = RhinoformsProperties.getInstance().isFormResourceCaching();
+		templatesCache = new ConcurrentHashMap<String, Templates>();
 	}
 
 	public void handleTransform(String transformXsl, boolean omitXmlDeclaration, Map<String, String> xsltParameters, Document dataDocument, Result transformResult) throws TransformerException, IOException {
@@ -53,18 +75,64 @@ public class TransformHelper {
 		return node;
 	}
 
+	/**
+	 * Transforms the source straight into the result, for example a response stream into a node of the DataDocument.
+	 */
+	public void handleTransform(String transformXsl, Source source, Result result) throws TransformerException, IOException {
+		getTransformer(transformXsl, true).transform(source, result);
+	}
+
 	private Transformer getTransformer(String transformXsl, boolean omitXmlDeclaration) throws IOException,
 			TransformerConfigurationException {
-		InputStream preTransformStream = resourceLoader.getFormResourceAsStream(transformXsl);
-		if (preTransformStream != null) {
-			Transformer transformer = transformerFactory.newTransformer(new StreamSource(preTransformStream));
-			if (omitXmlDeclaration) {
-				transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+		Transformer transformer = getTemplates(transformXsl).newTransformer();
+		if (omitXmlDeclaration) {
+			transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+		}
+		return transformer;
+	}
+
+	private Templates getTemplates(String transformXsl) throws IOException, TransformerConfigurationException {
+		Templates templates = templatesCaching ? templatesCache.get(transformXsl) : null;
+		if (templates != null) {
+			hitCount.incrementAndGet();
+			return templates;
+		}
+
+		missCount.incrementAndGet();
+		LOGGER.debug("Compiling stylesheet '{}'", transformXsl);
+		InputStream transformStream = resourceLoader.getFormResourceAsStream(transformXsl);
+		if (transformStream != null) {
+			try {
+				templates = transformerFactory.newTemplates(new StreamSource(transformStream, transformXsl));
+			} finally {
+				transformStream.close();
+			}
+			if (templatesCaching) {
+				templatesCache.put(transformXsl, templates);
 			}
-			return transformer;
+			return templates;
 		} else {
 			throw new FileNotFoundException(transformXsl);
 		}
 	}
 
+	@Override
+	public void formResourcesChanged() {
+		LOGGER.info("Clearing XSL templates cache.");
+		templatesCache.clear();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "TransformHelper templates:" + templatesCache.size() + ", hits:" + hitCount + ", misses:" + missCount;
+	}
+
 }
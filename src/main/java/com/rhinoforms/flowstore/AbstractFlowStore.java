@@ -0,0 +1,81 @@
+package com.rhinoforms.flowstore;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpSession;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rhinoforms.RhinoformsProperties;
+import com.rhinoforms.flow.FormFlow;
+
+/**
+ * Stores flows using the changed flag of the flow so that a flow is only stored again when it has changed.
+ */
+public abstract class AbstractFlowStore implements FlowStore {
+
+	private AtomicLong storeCount = new AtomicLong();
+	private AtomicLong unchangedCount = new AtomicLong();
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AbstractFlowStore.class);
+
+	@Override
+	public void initialise(RhinoformsProperties rhinoformsProperties) throws FlowStoreException {
+	}
+
+	@Override
+	public void setFlow(FormFlow formFlow, HttpSession session) throws FlowStoreException {
+		// Cleared first so that a change made while the flow is being stored is not lost
+		formFlow.clearChanged();
+		boolean stored = false;
+		try {
+			storeFlow(formFlow, session);
+			stored = true;
+		} finally {
+			if (!stored) {
+				formFlow.markChanged();
+			}
+		}
+		storeCount.incrementAndGet();
+	}
+
+	@Override
+	public boolean updateFlow(FormFlow formFlow, HttpSession session) throws FlowStoreException {
+		if (formFlow.isChanged()) {
+			setFlow(formFlow, session);
+			return true;
+		} else {
+			LOGGER.debug("Flow {} unchanged, not storing.", formFlow.getId());
+			unchangedCount.incrementAndGet();
+			return false;
+		}
+	}
+
+	@Override
+	public void close() {
+	}
+
+	protected abstract void storeFlow(FormFlow formFlow, HttpSession session) throws FlowStoreException;
+
+	/**
+	 * @return the number of times a flow has been stored
+	 */
+	public long getStoreCount() {
+		return storeCount.get();
+	}
+
+	/**
+	 * @return the number of updates skipped because the flow had not changed
+	 */
+	public long getUnchangedCount() {
+		return unchangedCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " stores:" + storeCount.get() + ", unchanged:" + unchangedCount.get()
+				+ ", serialisedBytes:" + FormFlow.getSerialisedBytes();
+	}
+
+}
@@ -0,0 +1,210 @@
+package com.rhinoforms.flowstore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpSession;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rhinoforms.RhinoformsProperties;
+import com.rhinoforms.flow.FormFlow;
+
+/**
+ * Keeps recently used flows in memory like {@link InMemoryFlowStore} and passivates evicted flows to files in a local
+ * directory rather than discarding them. A passivated flow is read back and its file deleted when it is next requested.
+ * Files not read back within the maximum file age are deleted. All flows in memory are passivated when the store is
+ * closed so flows survive a restart.
+ */
+public class FileFlowStore extends InMemoryFlowStore {
+
+	private File directory;
+	private long fileMaxAgeMillis;
+	private volatile long lastSweep;
+	// Flows removed from memory which are still being written
+	private ConcurrentHashMap<String, FormFlow> passivatingFlows;
+
+	private static final String FILE_SUFFIX = ".flow";
+	private static final long SWEEP_INTERVAL_MILLIS = 600000;
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileFlowStore.class);
+
+	public FileFlowStore() {
+		this(new File(System.getProperty("java.io.tmpdir"), "rhinoforms-flows"), 10000, 1800000, 86400000);
+	}
+
+	/**
+	 * @param fileMaxAgeMillis the time after which a passivated flow is deleted, 0 to keep them
+	 */
+	public FileFlowStore(File directory, int maxSize, long maxIdleMillis, long fileMaxAgeMillis) {
+		super(maxSize, maxIdleMillis);
+		this.directory = directory;
+		this.fileMaxAgeMillis = fileMaxAgeMillis;
+		this.passivatingFlows = new ConcurrentHashMap<String, FormFlow>();
+	}
+
+	@Override
+	public void initialise(RhinoformsProperties rhinoformsProperties) throws FlowStoreException {
+		super.initialise(rhinoformsProperties);
+		String flowStoreDirectory = rhinoformsProperties.getFlowStoreDirectory();
+		if (flowStoreDirectory != null && !flowStoreDirectory.trim().isEmpty()) {
+			directory = new File(flowStoreDirectory.trim());
+		}
+		fileMaxAgeMillis = rhinoformsProperties.getFlowStoreFileMaxAgeSeconds() * 1000L;
+		createDirectory();
+		LOGGER.info("Passivating idle flows to '{}'.", directory.getAbsolutePath());
+		sweepExpiredFiles();
+	}
+
+	@Override
+	public void removeFlow(FormFlow formFlow, HttpSession session) throws FlowStoreException {
+		super.removeFlow(formFlow, session);
+		// Removed from passivatingFlows first so a passivation in progress deletes its file rather than keeping it
+		passivatingFlows.remove(formFlow.getId());
+		getFile(formFlow.getId()).delete();
+	}
+
+	/**
+	 * Passivates every flow held in memory.
+	 */
+	@Override
+	public void close() {
+		List<FormFlow> formFlows = removeAllFlows();
+		for (FormFlow formFlow : formFlows) {
+			passivatingFlows.put(formFlow.getId(), formFlow);
+			passivate(formFlow);
+		}
+		LOGGER.info("Passivated {} flows to '{}'.", formFlows.size(), directory.getAbsolutePath());
+	}
+
+	@Override
+	protected FormFlow activateFlow(String flowId) throws FlowStoreException {
+		FormFlow formFlow = passivatingFlows.get(flowId);
+		if (formFlow != null) {
+			return formFlow;
+		}
+		if (!flowId.matches("\\d+")) {
+			return null;
+		}
+		File file = getFile(flowId);
+		if (!file.isFile()) {
+			return null;
+		}
+		if (isExpired(file, currentTimeMillis())) {
+			file.delete();
+			return null;
+		}
+		try {
+			ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				formFlow = (FormFlow) in.readObject();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new FlowStoreException("Failed to read passivated flow " + flowId + ".", e);
+		} catch (ClassNotFoundException e) {
+			throw new FlowStoreException("Failed to read passivated flow " + flowId + ".", e);
+		}
+		file.delete();
+		LOGGER.debug("Flow {} activated.", flowId);
+		return formFlow;
+	}
+
+	@Override
+	protected void flowEvicting(FormFlow formFlow) {
+		passivatingFlows.put(formFlow.getId(), formFlow);
+	}
+
+	@Override
+	protected void flowEvicted(FormFlow formFlow) {
+		passivate(formFlow);
+		long now = currentTimeMillis();
+		if (now - lastSweep > SWEEP_INTERVAL_MILLIS) {
+			lastSweep = now;
+			sweepExpiredFiles();
+		}
+	}
+
+	private void passivate(FormFlow formFlow) {
+		String flowId = formFlow.getId();
+		File file = getFile(flowId);
+		File tempFile = null;
+		try {
+			// Written to a temporary file first so a partly written flow is never read
+			directory.mkdirs();
+			tempFile = File.createTempFile("flow" + flowId, ".tmp", directory);
+			ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				out.writeObject(formFlow);
+			} finally {
+				out.close();
+			}
+			file.delete();
+			if (!isPassivating(formFlow)) {
+				LOGGER.debug("Flow {} removed while passivating.", flowId);
+				tempFile.delete();
+				return;
+			}
+			if (!tempFile.renameTo(file)) {
+				throw new IOException("Failed to rename '" + tempFile + "' to '" + file + "'.");
+			}
+			if (!isPassivating(formFlow)) {
+				// Removed between the check and the rename
+				file.delete();
+				return;
+			}
+			LOGGER.debug("Flow {} passivated.", flowId);
+		} catch (IOException e) {
+			LOGGER.error("Failed to passivate flow " + flowId + ", the flow is lost.", e);
+			if (tempFile != null) {
+				tempFile.delete();
+			}
+		} finally {
+			passivatingFlows.remove(flowId, formFlow);
+		}
+	}
+
+	private boolean isPassivating(FormFlow formFlow) {
+		return passivatingFlows.get(formFlow.getId()) == formFlow;
+	}
+
+	private void sweepExpiredFiles() {
+		File[] files = directory.listFiles();
+		if (files != null && fileMaxAgeMillis > 0) {
+			long now = currentTimeMillis();
+			int deleted = 0;
+			for (File file : files) {
+				if (file.getName().endsWith(FILE_SUFFIX) && isExpired(file, now) && file.delete()) {
+					deleted++;
+				}
+			}
+			if (deleted > 0) {
+				LOGGER.info("Deleted {} expired passivated flows.", deleted);
+			}
+		}
+	}
+
+	private boolean isExpired(File file, long now) {
+		return fileMaxAgeMillis > 0 && now - file.lastModified() > fileMaxAgeMillis;
+	}
+
+	private void createDirectory() throws FlowStoreException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new FlowStoreException("Failed to create flow store directory '" + directory.getAbsolutePath() + "'.");
+		}
+	}
+
+	private File getFile(String flowId) {
+		return new File(directory, flowId + FILE_SUFFIX);
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.rhinoforms.flowstore;
+
+import javax.servlet.http.HttpSession;
+
+import com.rhinoforms.RhinoformsProperties;
+import com.rhinoforms.flow.FormFlow;
+
+/**
+ * Holds the flows in progress between requests, chosen by the flowStore property.
+ * The session of the request is passed to every method, stores which do not keep flows in the session ignore it.
+ */
+public interface FlowStore {
+
+	void initialise(RhinoformsProperties rhinoformsProperties) throws FlowStoreException;
+
+	/**
+	 * @return the flow or null if there is no flow with the id, for example because it has expired
+	 */
+	FormFlow getFlow(String flowId, HttpSession session) throws FlowStoreException;
+
+	/**
+	 * Stores a new flow, or stores a flow again, and clears its changed flag.
+	 */
+	void setFlow(FormFlow formFlow, HttpSession session) throws FlowStoreException;
+
+	/**
+	 * Stores the flow again only if it has changed since it was last stored.
+	 *
+	 * @return true if the flow was stored
+	 */
+	boolean updateFlow(FormFlow formFlow, HttpSession session) throws FlowStoreException;
+
+	void removeFlow(FormFlow formFlow, HttpSession session) throws FlowStoreException;
+
+	/**
+	 * Called when the application stops.
+	 */
+	void close();
+
+}
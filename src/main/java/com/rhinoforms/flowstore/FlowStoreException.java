@@ -0,0 +1,14 @@
+package com.rhinoforms.flowstore;
+
+@SuppressWarnings("serial")
+public class FlowStoreException extends Exception {
+
+	public FlowStoreException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public FlowStoreException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.rhinoforms.flowstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rhinoforms.RhinoformsProperties;
+
+public class FlowStoreFactory {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FlowStoreFactory.class);
+
+	/**
+	 * @param flowStoreType session, memory, file or the name of a class implementing FlowStore, session if empty
+	 */
+	public FlowStore createFlowStore(String flowStoreType, RhinoformsProperties rhinoformsProperties) throws FlowStoreException {
+		FlowStore flowStore;
+		if (flowStoreType == null || flowStoreType.trim().isEmpty() || flowStoreType.trim().equals("session")) {
+			flowStore = new SessionFlowStore();
+		} else if (flowStoreType.trim().equals("memory")) {
+			flowStore = new InMemoryFlowStore();
+		} else if (flowStoreType.trim().equals("file")) {
+			flowStore = new FileFlowStore();
+		} else {
+			String flowStoreClassName = flowStoreType.trim();
+			try {
+				LOGGER.info("Loading flowStore class '" + flowStoreClassName + "'.");
+				@SuppressWarnings("unchecked")
+				Class<FlowStore> flowStoreClass = (Class<FlowStore>) Class.forName(flowStoreClassName);
+				flowStore = flowStoreClass.newInstance();
+			} catch (ClassNotFoundException e) {
+				throw new FlowStoreException("Could not find FlowStore class '" + flowStoreClassName + "'.", e);
+			} catch (InstantiationException e) {
+				throw new FlowStoreException("Failed to create FlowStore.", e);
+			} catch (IllegalAccessException e) {
+				throw new FlowStoreException("Failed to create FlowStore.", e);
+			}
+		}
+		LOGGER.info("Using {} as the flowStore.", flowStore.getClass().getSimpleName());
+		flowStore.initialise(rhinoformsProperties);
+		return flowStore;
+	}
+
+}
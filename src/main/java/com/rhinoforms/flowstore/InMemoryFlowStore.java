@@ -0,0 +1,193 @@
+package com.rhinoforms.flowstore;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.servlet.http.HttpSession;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rhinoforms.RhinoformsProperties;
+import com.rhinoforms.flow.FormFlow;
+
+/**
+ * Keeps flows in memory, independent of the session, up to a maximum number of flows. The least recently used flow is
+ * evicted when the store is full and flows not used within the idle time are evicted, evicted flows are discarded.
+ * Flows are looked up by id alone, so every node serving a user must share the store or requests must be sticky.
+ */
+public class InMemoryFlowStore extends AbstractFlowStore {
+
+	private int maxSize;
+	private long maxIdleMillis;
+	// Access ordered, the first entry is always the least recently used
+	private LinkedHashMap<String, StoredFlow> flows;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryFlowStore.class);
+
+	public InMemoryFlowStore() {
+		this(10000, 1800000);
+	}
+
+	/**
+	 * @param maxSize the maximum number of flows held, 0 for no limit
+	 * @param maxIdleMillis the time after which an unused flow is evicted, 0 to keep flows until the store is full
+	 */
+	public InMemoryFlowStore(int maxSize, long maxIdleMillis) {
+		this.maxSize = maxSize;
+		this.maxIdleMillis = maxIdleMillis;
+		this.flows = new LinkedHashMap<String, StoredFlow>(16, 0.75f, true);
+	}
+
+	@Override
+	public void initialise(RhinoformsProperties rhinoformsProperties) throws FlowStoreException {
+		this.maxSize = rhinoformsProperties.getFlowStoreMaxSize();
+		this.maxIdleMillis = rhinoformsProperties.getFlowStoreMaxIdleSeconds() * 1000L;
+	}
+
+	@Override
+	public FormFlow getFlow(String flowId, HttpSession session) throws FlowStoreException {
+		List<FormFlow> evictedFlows;
+		FormFlow formFlow;
+		synchronized (flows) {
+			long now = currentTimeMillis();
+			evictedFlows = removeIdleFlows(now);
+			StoredFlow storedFlow = flows.get(flowId);
+			if (storedFlow != null) {
+				storedFlow.lastAccessed = now;
+				formFlow = storedFlow.formFlow;
+			} else {
+				formFlow = activateFlow(flowId);
+				if (formFlow != null) {
+					flows.put(flowId, new StoredFlow(formFlow, now));
+					evictedFlows.addAll(removeExcessFlows());
+				}
+			}
+		}
+		evictFlows(evictedFlows);
+		return formFlow;
+	}
+
+	@Override
+	protected void storeFlow(FormFlow formFlow, HttpSession session) throws FlowStoreException {
+		List<FormFlow> evictedFlows;
+		synchronized (flows) {
+			long now = currentTimeMillis();
+			flows.put(formFlow.getId(), new StoredFlow(formFlow, now));
+			evictedFlows = removeIdleFlows(now);
+			evictedFlows.addAll(removeExcessFlows());
+		}
+		evictFlows(evictedFlows);
+	}
+
+	@Override
+	public void removeFlow(FormFlow formFlow, HttpSession session) throws FlowStoreException {
+		synchronized (flows) {
+			flows.remove(formFlow.getId());
+		}
+	}
+
+	/**
+	 * @return the number of flows held in memory
+	 */
+	public int getSize() {
+		synchronized (flows) {
+			return flows.size();
+		}
+	}
+
+	/**
+	 * Called while holding the store lock when a flow is requested which is not held in memory.
+	 *
+	 * @return the flow kept elsewhere or null
+	 */
+	protected FormFlow activateFlow(String flowId) throws FlowStoreException {
+		return null;
+	}
+
+	/**
+	 * Called while holding the store lock as each flow is removed from memory to be evicted.
+	 */
+	protected void flowEvicting(FormFlow formFlow) {
+	}
+
+	/**
+	 * Called for each flow evicted from memory, after the store lock has been released.
+	 */
+	protected void flowEvicted(FormFlow formFlow) {
+		LOGGER.debug("Flow {} evicted.", formFlow.getId());
+	}
+
+	/**
+	 * Removes every flow held in memory.
+	 *
+	 * @return the flows removed
+	 */
+	protected List<FormFlow> removeAllFlows() {
+		synchronized (flows) {
+			List<FormFlow> removedFlows = new ArrayList<FormFlow>(flows.size());
+			for (StoredFlow storedFlow : flows.values()) {
+				removedFlows.add(storedFlow.formFlow);
+			}
+			flows.clear();
+			return removedFlows;
+		}
+	}
+
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	private List<FormFlow> removeIdleFlows(long now) {
+		List<FormFlow> idleFlows = new ArrayList<FormFlow>();
+		if (maxIdleMillis > 0) {
+			Iterator<StoredFlow> iterator = flows.values().iterator();
+			while (iterator.hasNext()) {
+				StoredFlow storedFlow = iterator.next();
+				if (now - storedFlow.lastAccessed < maxIdleMillis) {
+					// The rest were used more recently
+					break;
+				}
+				iterator.remove();
+				flowEvicting(storedFlow.formFlow);
+				idleFlows.add(storedFlow.formFlow);
+			}
+		}
+		return idleFlows;
+	}
+
+	private List<FormFlow> removeExcessFlows() {
+		List<FormFlow> excessFlows = new ArrayList<FormFlow>();
+		if (maxSize > 0) {
+			Iterator<StoredFlow> iterator = flows.values().iterator();
+			while (flows.size() > maxSize) {
+				FormFlow formFlow = iterator.next().formFlow;
+				iterator.remove();
+				flowEvicting(formFlow);
+				excessFlows.add(formFlow);
+			}
+		}
+		return excessFlows;
+	}
+
+	private void evictFlows(List<FormFlow> evictedFlows) {
+		for (FormFlow evictedFlow : evictedFlows) {
+			flowEvicted(evictedFlow);
+		}
+	}
+
+	private static class StoredFlow {
+
+		private FormFlow formFlow;
+		private long lastAccessed;
+
+		StoredFlow(FormFlow formFlow, long lastAccessed) {
+			this.formFlow = formFlow;
+			this.lastAccessed = lastAccessed;
+		}
+
+	}
+
+}
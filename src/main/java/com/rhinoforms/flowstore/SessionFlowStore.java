@@ -0,0 +1,32 @@
+package com.rhinoforms.flowstore;
+
+import javax.servlet.http.HttpSession;
+
+import com.rhinoforms.flow.FormFlow;
+
+/**
+ * Keeps each flow as an attribute of the user's session. Storing a flow again sets the attribute again, which triggers
+ * session serialisation in Google App Engine deployment or Shiro framework and replication in clustered containers.
+ */
+public class SessionFlowStore extends AbstractFlowStore {
+
+	@Override
+	public FormFlow getFlow(String flowId, HttpSession session) {
+		return (FormFlow) session.getAttribute(getAttributeName(flowId));
+	}
+
+	@Override
+	protected void storeFlow(FormFlow formFlow, HttpSession session) {
+		session.setAttribute(getAttributeName(formFlow.getId()), formFlow);
+	}
+
+	@Override
+	public void removeFlow(FormFlow formFlow, HttpSession session) {
+		session.removeAttribute(getAttributeName(formFlow.getId()));
+	}
+
+	private String getAttributeName(String id) {
+		return "FormFlow" + id;
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.rhinoforms.formparser;
+
+import org.htmlcleaner.TagNode;
+
+/**
+ * A cleaned form template with includes processed and curly brackets parsed.
+ * When the template has no forEach statements the form elements are found once
+ * and each render works on a copy of them rather than searching the html again.
+ */
+class CompiledForm {
+
+	private TagNode template;
+	private FormNodes formNodes;
+
+	CompiledForm(TagNode template, FormNodes formNodes) {
+		this.template = template;
+		this.formNodes = formNodes;
+	}
+
+	TagNode getTemplate() {
+		return template;
+	}
+
+	boolean isPrecompiled() {
+		return formNodes != null;
+	}
+
+	FormNodes getFormNodes() {
+		return formNodes;
+	}
+
+}
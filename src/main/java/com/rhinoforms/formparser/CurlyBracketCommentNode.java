@@ -0,0 +1,31 @@
+package com.rhinoforms.formparser;
+
+import org.htmlcleaner.CommentNode;
+
+/**
+ * Comment of a compiled form template holding its curly bracket template, parsed once when the form was compiled.
+ * Copies share the template. The template is removed once the comment has been rendered.
+ */
+class CurlyBracketCommentNode extends CommentNode {
+
+	private CurlyBracketTemplate template;
+
+	CurlyBracketCommentNode(String content, CurlyBracketTemplate template) {
+		super(content);
+		this.template = template;
+	}
+
+	CurlyBracketTemplate getTemplate() {
+		return template;
+	}
+
+	/**
+	 * @return the template, or null if the comment has already been rendered
+	 */
+	CurlyBracketTemplate removeTemplate() {
+		CurlyBracketTemplate removed = template;
+		template = null;
+		return removed;
+	}
+
+}
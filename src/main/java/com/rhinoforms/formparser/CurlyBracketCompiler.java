@@ -0,0 +1,66 @@
+package com.rhinoforms.formparser;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.htmlcleaner.CommentNode;
+import org.htmlcleaner.ContentNode;
+import org.htmlcleaner.TagNode;
+
+/**
+ * Copies a form template parsing the curly brackets of its text, comments and attribute values, including those within forEach
+ * elements. Nodes with placeholders are copied as nodes holding their parsed template so each render only appends the
+ * literals and values.
+ */
+class CurlyBracketCompiler extends TagNodeCopier {
+
+	private static final String OPEN = "{{";
+
+	@Override
+	protected TagNode copyTagNode(TagNode tagNode) {
+		Map<String, CurlyBracketTemplate> attributeTemplates = null;
+		Map<String, String> attributes = tagNode.getAttributes();
+		for (String attName : attributes.keySet()) {
+			String attValue = attributes.get(attName);
+			if (attValue.contains(OPEN)) {
+				CurlyBracketTemplate template = CurlyBracketTemplate.parse(attValue);
+				if (template.hasPlaceholders()) {
+					if (attributeTemplates == null) {
+						attributeTemplates = new LinkedHashMap<String, CurlyBracketTemplate>();
+					}
+					attributeTemplates.put(attName, template);
+				}
+			}
+		}
+		if (attributeTemplates != null) {
+			return new CurlyBracketTagNode(tagNode.getName(), Collections.unmodifiableMap(attributeTemplates));
+		}
+		return super.copyTagNode(tagNode);
+	}
+
+	@Override
+	protected ContentNode copyContentNode(ContentNode contentNode) {
+		String content = contentNode.getContent().toString();
+		if (content.contains(OPEN)) {
+			CurlyBracketTemplate template = CurlyBracketTemplate.parse(content);
+			if (template.hasPlaceholders()) {
+				return new CurlyBracketContentNode(content, template);
+			}
+		}
+		return super.copyContentNode(contentNode);
+	}
+
+	@Override
+	protected CommentNode copyCommentNode(CommentNode commentNode) {
+		String content = commentNode.getContent().toString();
+		if (content.contains(OPEN)) {
+			CurlyBracketTemplate template = CurlyBracketTemplate.parse(content);
+			if (template.hasPlaceholders()) {
+				return new CurlyBracketCommentNode(content, template);
+			}
+		}
+		return super.copyCommentNode(commentNode);
+	}
+
+}
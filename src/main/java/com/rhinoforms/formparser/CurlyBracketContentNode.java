@@ -0,0 +1,41 @@
+package com.rhinoforms.formparser;
+
+import org.htmlcleaner.ContentNode;
+
+/**
+ * Text of a compiled form template holding its curly bracket template, parsed once when the form was compiled.
+ * Copies share the template. The template is removed once the text has been rendered.
+ */
+class CurlyBracketContentNode extends ContentNode {
+
+	private CurlyBracketTemplate template;
+
+	CurlyBracketContentNode(String content, CurlyBracketTemplate template) {
+		super(content);
+		this.template = template;
+	}
+
+	CurlyBracketTemplate getTemplate() {
+		return template;
+	}
+
+	/**
+	 * @return the template, or null if the text has already been rendered
+	 */
+	CurlyBracketTemplate removeTemplate() {
+		CurlyBracketTemplate removed = template;
+		template = null;
+		return removed;
+	}
+
+	/**
+	 * Removes characters from the start of the text, before the first placeholder, and from the template.
+	 */
+	void removeStart(int length) {
+		getContent().delete(0, length);
+		if (template != null) {
+			template = template.withoutStart(length);
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.rhinoforms.formparser;
+
+import java.util.Map;
+
+import org.htmlcleaner.TagNode;
+
+/**
+ * Element of a compiled form template holding the curly bracket templates of its attribute values, parsed once when the form
+ * was compiled. Copies share the templates. The templates are removed once the attributes have been rendered.
+ */
+class CurlyBracketTagNode extends TagNode {
+
+	private Map<String, CurlyBracketTemplate> attributeTemplates;
+
+	CurlyBracketTagNode(String name, Map<String, CurlyBracketTemplate> attributeTemplates) {
+		super(name);
+		this.attributeTemplates = attributeTemplates;
+	}
+
+	Map<String, CurlyBracketTemplate> getAttributeTemplates() {
+		return attributeTemplates;
+	}
+
+	/**
+	 * @return the templates keyed by attribute name, or null if the attributes have already been rendered
+	 */
+	Map<String, CurlyBracketTemplate> removeAttributeTemplates() {
+		Map<String, CurlyBracketTemplate> removed = attributeTemplates;
+		attributeTemplates = null;
+		return removed;
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.rhinoforms.formparser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text split once into literal segments and curly bracket placeholders so that it can be rendered many times in a single pass.
+ * Placeholders are <code>{{field.path}}</code>, <code>{{$property}}</code> or <code>{{contextName.index}}</code> within a forEach.
+ */
+public class CurlyBracketTemplate {
+
+	private static final String OPEN = "{{";
+	private static final String CLOSE = "}}";
+
+	private String[] literals;
+	private Placeholder[] placeholders;
+
+	private CurlyBracketTemplate(String[] literals, Placeholder[] placeholders) {
+		this.literals = literals;
+		this.placeholders = placeholders;
+	}
+
+	public static CurlyBracketTemplate parse(CharSequence text) {
+		String string = text.toString();
+		List<String> literals = new ArrayList<String>();
+		List<Placeholder> placeholders = new ArrayList<Placeholder>();
+
+		int literalStart = 0;
+		int open = string.indexOf(OPEN);
+		while (open != -1) {
+			int groupStart = open + OPEN.length();
+			int close = string.indexOf('}', groupStart);
+			if (close == -1) {
+				break;
+			}
+			if (close > groupStart && string.startsWith(CLOSE, close)) {
+				literals.add(string.substring(literalStart, open));
+				placeholders.add(new Placeholder(string.substring(groupStart, close)));
+				literalStart = close + CLOSE.length();
+				open = string.indexOf(OPEN, literalStart);
+			} else {
+				open = string.indexOf(OPEN, open + 1);
+			}
+		}
+		literals.add(string.substring(literalStart));
+
+		return new CurlyBracketTemplate(literals.toArray(new String[literals.size()]), placeholders.toArray(new Placeholder[placeholders.size()]));
+	}
+
+	/**
+	 * @return a template without the given number of characters at the start of the first literal
+	 */
+	CurlyBracketTemplate withoutStart(int length) {
+		String[] shortenedLiterals = literals.clone();
+		shortenedLiterals[0] = literals[0].substring(length);
+		return new CurlyBracketTemplate(shortenedLiterals, placeholders);
+	}
+
+	public boolean hasPlaceholders() {
+		return placeholders.length > 0;
+	}
+
+	/**
+	 * There is always one more literal than placeholders, the literal at index n comes before the placeholder at index n.
+	 */
+	String[] getLiterals() {
+		return literals;
+	}
+
+	Placeholder[] getPlaceholders() {
+		return placeholders;
+	}
+
+	static class Placeholder {
+
+		private String group;
+		private String propertyName;
+		private String contextName;
+		private String contextPath;
+
+		Placeholder(String group) {
+			this.group = group;
+			if (group.startsWith("$")) {
+				if (group.length() > 1) {
+					propertyName = group.substring(1);
+				}
+			} else {
+				int dotIndex = group.indexOf('.');
+				if (dotIndex != -1) {
+					contextName = group.substring(0, dotIndex);
+					contextPath = group.substring(dotIndex + 1);
+				} else {
+					contextName = group;
+				}
+			}
+		}
+
+		boolean isProperty() {
+			return group.startsWith("$");
+		}
+
+		String getGroup() {
+			return group;
+		}
+
+		String getPropertyName() {
+			return propertyName;
+		}
+
+		/**
+		 * The part of the field path before the first dot, may be the name of a forEach context node.
+		 */
+		String getContextName() {
+			return contextName;
+		}
+
+		/**
+		 * The part of the field path after the first dot, or null.
+		 */
+		String getContextPath() {
+			return contextPath;
+		}
+
+	}
+
+}
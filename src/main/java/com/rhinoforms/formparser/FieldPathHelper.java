@@ -1,25 +1,43 @@
 package com.rhinoforms.formparser;
 
+import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.rhinoforms.xml.SimpleXPath;
+import com.rhinoforms.xml.XPathExpressionCache;
 
 public class FieldPathHelper {
 
-	private XPathFactory xPathFactory;
+	private XPathExpressionCache xPathExpressionCache;
 	final Logger logger = LoggerFactory.getLogger(FieldPathHelper.class);
 
 	public FieldPathHelper() {
-		this.xPathFactory = XPathFactory.newInstance();
+		this.xPathExpressionCache = XPathExpressionCache.getInstance();
 	}
 	
 	public XPathExpression fieldToXPathExpression(String documentBasePath, String fieldName) throws XPathExpressionException {
-		return xPathFactory.newXPath().compile(fieldToXPathString(documentBasePath, fieldName));
+		return xPathExpressionCache.compile(fieldToXPathString(documentBasePath, fieldName));
 	}
 	
+	/**
+	 * Finds the nodes for a field, walking the document directly when the path is made of simple element steps.
+	 */
+	public NodeList lookupField(Node document, String documentBasePath, String fieldName) throws XPathExpressionException {
+		String xPathString = fieldToXPathString(documentBasePath, fieldName);
+		SimpleXPath simpleXPath = SimpleXPath.parse(xPathString);
+		if (simpleXPath != null) {
+			return simpleXPath.select(document);
+		} else {
+			return (NodeList) xPathExpressionCache.compile(xPathString).evaluate(document, XPathConstants.NODESET);
+		}
+	}
+
 	public String fieldToXPathString(String documentBasePath, String fieldName) {
 		String xPathString = documentBasePath + "/" + fieldName.replaceAll("\\.", "/");
 		logger.debug("field name:{}, xPathString:{}", fieldName, xPathString);
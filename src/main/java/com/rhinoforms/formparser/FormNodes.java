@@ -0,0 +1,120 @@
+package com.rhinoforms.formparser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.htmlcleaner.TagNode;
+import org.htmlcleaner.XPatherException;
+
+import com.rhinoforms.Constants;
+
+/**
+ * The elements of a Rhinoforms form which are processed on every render.
+ */
+class FormNodes {
+
+	private TagNode html;
+	private TagNode formNode;
+	private List<TagNode> inputs;
+	private List<TagNode> sourceSelects;
+	private List<TagNode> rangeSelects;
+	private List<TagNode> actions;
+	private List<TagNode> sourceInputs;
+
+	private FormNodes(TagNode html, TagNode formNode) {
+		this.html = html;
+		this.formNode = formNode;
+	}
+
+	@SuppressWarnings("unchecked")
+	static FormNodes find(TagNode html, TagNode formNode) throws XPatherException {
+		FormNodes formNodes = new FormNodes(html, formNode);
+		if (formNode != null) {
+			List<TagNode> inputs = formNode.getElementListByName(FormParser.INPUT, true);
+			inputs.addAll(formNode.getElementListByName(FormParser.SELECT, true));
+			inputs.addAll(formNode.getElementListByName(FormParser.TEXTAREA, true));
+			formNodes.inputs = inputs;
+			formNodes.sourceSelects = toTagNodeList(formNode.evaluateXPath("//select[@" + Constants.SELECT_SOURCE_ATTR + "]"));
+			formNodes.rangeSelects = toTagNodeList(formNode.evaluateXPath("//select[@" + Constants.SELECT_RANGE_START_ATTR + "]"));
+			formNodes.actions = formNode.getElementListHavingAttribute(Constants.ACTION_ATTR, true);
+			formNodes.sourceInputs = toTagNodeList(formNode.evaluateXPath("//input[@" + Constants.INPUT_SOURCE_ATTR + "]"));
+		}
+		return formNodes;
+	}
+
+	/**
+	 * Deep copies the html and returns the same set of elements within the copy.
+	 */
+	FormNodes copy(TagNodeCopier tagNodeCopier) {
+		Set<TagNode> nodesToTrack = Collections.newSetFromMap(new IdentityHashMap<TagNode, Boolean>());
+		if (formNode != null) {
+			nodesToTrack.add(formNode);
+			nodesToTrack.addAll(inputs);
+			nodesToTrack.addAll(sourceSelects);
+			nodesToTrack.addAll(rangeSelects);
+			nodesToTrack.addAll(actions);
+			nodesToTrack.addAll(sourceInputs);
+		}
+		Map<TagNode, TagNode> copies = new IdentityHashMap<TagNode, TagNode>();
+		TagNode htmlCopy = tagNodeCopier.deepCopy(html, nodesToTrack, copies);
+
+		FormNodes formNodesCopy = new FormNodes(htmlCopy, copies.get(formNode));
+		if (formNode != null) {
+			formNodesCopy.inputs = lookupCopies(inputs, copies);
+			formNodesCopy.sourceSelects = lookupCopies(sourceSelects, copies);
+			formNodesCopy.rangeSelects = lookupCopies(rangeSelects, copies);
+			formNodesCopy.actions = lookupCopies(actions, copies);
+			formNodesCopy.sourceInputs = lookupCopies(sourceInputs, copies);
+		}
+		return formNodesCopy;
+	}
+
+	private static List<TagNode> lookupCopies(List<TagNode> originals, Map<TagNode, TagNode> copies) {
+		List<TagNode> nodeCopies = new ArrayList<TagNode>(originals.size());
+		for (TagNode original : originals) {
+			nodeCopies.add(copies.get(original));
+		}
+		return nodeCopies;
+	}
+
+	private static List<TagNode> toTagNodeList(Object[] nodes) {
+		List<TagNode> tagNodes = new ArrayList<TagNode>(nodes.length);
+		for (Object node : nodes) {
+			tagNodes.add((TagNode) node);
+		}
+		return tagNodes;
+	}
+
+	TagNode getHtml() {
+		return html;
+	}
+
+	TagNode getFormNode() {
+		return formNode;
+	}
+
+	List<TagNode> getInputs() {
+		return inputs;
+	}
+
+	List<TagNode> getSourceSelects() {
+		return sourceSelects;
+	}
+
+	List<TagNode> getRangeSelects() {
+		return rangeSelects;
+	}
+
+	List<TagNode> getActions() {
+		return actions;
+	}
+
+	List<TagNode> getSourceInputs() {
+		return sourceInputs;
+	}
+
+}
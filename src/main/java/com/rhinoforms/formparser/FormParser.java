@@ -8,9 +8,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 
 import org.htmlcleaner.ContentNode;
@@ -32,16 +31,19 @@ import com.rhinoforms.RhinoformsProperties;
 import com.rhinoforms.flow.FieldSourceProxy;
 import com.rhinoforms.flow.FlowAction;
 import com.rhinoforms.flow.FlowActionType;
+import com.rhinoforms.flow.FlowExceptionJavaScript;
 import com.rhinoforms.flow.FormFlow;
 import com.rhinoforms.flow.InputPojo;
 import com.rhinoforms.flow.ProxyFactory;
 import com.rhinoforms.flow.SubmissionTimeKeeper;
+import com.rhinoforms.js.JSExecutionBudgetExceededError;
 import com.rhinoforms.js.JSMasterScope;
+import com.rhinoforms.resourceloader.FormResourcesChangedListener;
 import com.rhinoforms.resourceloader.ResourceLoader;
 import com.rhinoforms.resourceloader.ResourceLoaderException;
 import com.rhinoforms.util.StreamUtils;
 
-public class FormParser {
+public class FormParser implements FormResourcesChangedListener {
 
 	private ResourceLoader resourceLoader;
 	private SelectOptionHelper selectOptionHelper;
@@ -51,11 +53,15 @@ public class FormParser {
 	private boolean showDebugBar;
 	private TagNode debugBarNode;
 	private SubmissionTimeKeeper submissionTimeKeeper;
+	private boolean formResourceCaching;
+	private Map<String, CompiledForm> compiledFormCache;
+	private TagNodeCopier tagNodeCopier;
+	private CurlyBracketCompiler curlyBracketCompiler;
 	private final Logger logger = LoggerFactory.getLogger(FormParser.class);
 
-	private static final String INPUT = "input";
-	private static final String SELECT = "select";
-	private static final String TEXTAREA = "textarea";
+	static final String INPUT = "input";
+	static final String SELECT = "select";
+	static final String TEXTAREA = "textarea";
 	private static final String CHECKBOX = "checkbox";
 	private static final String RADIO = "radio";
 	private static final FieldPathHelper fieldPathHelper = new FieldPathHelper();
@@ -68,61 +74,164 @@ public class FormParser {
 		this.proxyFactory = new ProxyFactory();
 		this.valueInjector = valueInjector;
 		this.htmlCleaner = htmlCleaner;
+		this.tagNodeCopier = new TagNodeCopier();
+		this.curlyBracketCompiler = new CurlyBracketCompiler();
+		this.compiledFormCache = new ConcurrentHashMap<String, CompiledForm>();
 		showDebugBar = RhinoformsProperties.getInstance().isShowDebugBar();
+		formResourceCaching = RhinoformsProperties.getInstance().isFormResourceCaching();
 		debugBarNode = loadDebugBar();
 	}
 
+	public void parseForm(String formPath, FormFlow formFlow, PrintWriter writer, JSMasterScope masterScope, boolean suppressDebugBar)
+			throws FormParserException {
+		try {
+			if (formResourceCaching) {
+				// Included resource paths are resolved using the flow's resources base
+				String cacheKey = formFlow.getResourcesBase() + "|" + formPath;
+				CompiledForm compiledForm = compiledFormCache.get(cacheKey);
+				if (compiledForm == null) {
+					logger.debug("Form template cache miss '{}'", cacheKey);
+					compiledForm = compileForm(loadFormTemplate(formPath, formFlow));
+					compiledFormCache.put(cacheKey, compiledForm);
+				}
+				if (compiledForm.isPrecompiled()) {
+					FormNodes formNodes = compiledForm.getFormNodes().copy(tagNodeCopier);
+					doParseForm(formNodes.getHtml(), formNodes, formFlow, writer, masterScope, suppressDebugBar);
+				} else {
+					doParseForm(tagNodeCopier.deepCopy(compiledForm.getTemplate()), null, formFlow, writer, masterScope, suppressDebugBar);
+				}
+			} else {
+				doParseForm(loadFormTemplate(formPath, formFlow), null, formFlow, writer, masterScope, suppressDebugBar);
+			}
+		} catch (IOException e) {
+			throw new FormParserException(e);
+		} catch (XPatherException e) {
+			throw new FormParserException(e);
+		}
+	}
+
 	public void parseForm(InputStream formStream, FormFlow formFlow, PrintWriter writer, JSMasterScope masterScope, boolean suppressDebugBar)
 			throws FormParserException {
+		TagNode formHtml;
+		try {
+			formHtml = htmlCleaner.clean(formStream);
+			processIncludes(formHtml, formFlow);
+		} catch (IOException e) {
+			throw new FormParserException(e);
+		}
+		doParseForm(formHtml, null, formFlow, writer, masterScope, suppressDebugBar);
+	}
 
+	private TagNode loadFormTemplate(String formPath, FormFlow formFlow) throws IOException, FormParserException {
+		InputStream formStream = resourceLoader.getFormResourceAsStream(formPath);
+		if (formStream == null) {
+			throw new FormParserException("Form file not found. Path:'" + formPath + "'");
+		}
 		try {
 			TagNode formHtml = htmlCleaner.clean(formStream);
-			String flowID = formFlow.getId();
-	
+			processIncludes(formHtml, formFlow);
+			return formHtml;
+		} finally {
+			formStream.close();
+		}
+	}
+
+	CompiledForm compileForm(TagNode formTemplate) throws IOException, XPatherException {
+		if (valueInjector.hasForEachStatements(formTemplate)) {
+			// forEach processing changes the html structure so the form elements must be found on each render
+			return new CompiledForm(curlyBracketCompiler.deepCopy(formTemplate), null);
+		} else {
+			if (findRhinoformsForm(formTemplate) != null) {
+				perpetuateIncludeIfStatementsToInputs(formTemplate);
+			}
+			TagNode compiledTemplate = curlyBracketCompiler.deepCopy(formTemplate);
+			return new CompiledForm(compiledTemplate, FormNodes.find(compiledTemplate, findRhinoformsForm(compiledTemplate)));
+		}
+	}
+
+	@Override
+	public void formResourcesChanged() {
+		logger.info("Clearing form template cache.");
+		compiledFormCache.clear();
+	}
+
+	/**
+	 * @param formNodes the precompiled form elements of formHtml, or null if they must be found after forEach processing
+	 */
+	private void doParseForm(TagNode formHtml, FormNodes formNodes, FormFlow formFlow, PrintWriter writer, JSMasterScope masterScope,
+			boolean suppressDebugBar) throws FormParserException {
+
+		try {
 			Document dataDocument = formFlow.getDataDocument();
 			String docBase = formFlow.getCurrentDocBase();
-			String currentPath = formFlow.getCurrentPath();
-			String formId = formFlow.getCurrentFormId();
-			Map<String, FlowAction> currentActions = formFlow.getCurrentActions();
-	
-			// Process rf.include
-			processIncludes(formHtml, formFlow);
 	
 			// Add debugBar
 			if (showDebugBar && !suppressDebugBar) {
 				addDebugBar(formHtml);
 			}
 	
-			// Process rf.forEach statements
-			valueInjector.processForEachStatements(formFlow.getProperties(), formHtml, dataDocument, docBase);
+			if (formNodes == null) {
+				// Process rf.forEach statements
+				valueInjector.processForEachStatements(formFlow.getProperties(), formHtml, dataDocument, docBase);
+			}
 			
 			valueInjector.processCurlyBrackets(dataDocument, formHtml, formFlow.getProperties(), docBase);
 	
-			// Process first Rhinoforms form in doc
-			Object[] rfFormNodes = formHtml.evaluateXPath("//form[@" + Constants.RHINOFORMS_FLAG + "='true']");
-			if (rfFormNodes.length > 0) {
-				logger.debug("{} forms found.", rfFormNodes.length);
-				TagNode formNode = (TagNode) rfFormNodes[0];
-				
-				perpetuateIncludeIfStatementsToInputs(formHtml);
+			if (formNodes == null) {
+				TagNode formNode = findRhinoformsForm(formHtml);
+				if (formNode != null) {
+					perpetuateIncludeIfStatementsToInputs(formHtml);
+				}
+				formNodes = FormNodes.find(formHtml, formNode);
+			}
+			processForm(formNodes, formFlow, masterScope);
 	
+			writeForm(formHtml, writer);
+		} catch (IOException e) {
+			throw new FormParserException(e);
+		} catch (XPatherException e) {
+			throw new FormParserException(e);
+		} catch (XPathExpressionException e) {
+			throw new FormParserException(e);
+		} catch (ValueInjectorException e) {
+			throw new FormParserException(e);
+		}
+	}
+
+	private TagNode findRhinoformsForm(TagNode formHtml) throws XPatherException {
+		// Process first Rhinoforms form in doc
+		Object[] rfFormNodes = formHtml.evaluateXPath("//form[@" + Constants.RHINOFORMS_FLAG + "='true']");
+		if (rfFormNodes.length > 0) {
+			logger.debug("{} forms found.", rfFormNodes.length);
+			return (TagNode) rfFormNodes[0];
+		} else {
+			return null;
+		}
+	}
+
+	private void processForm(FormNodes formNodes, FormFlow formFlow, JSMasterScope masterScope) throws FormParserException {
+		TagNode formNode = formNodes.getFormNode();
+		if (formNode != null) {
+			try {
+				String formId = formFlow.getCurrentFormId();
+
 				// Process dynamic select elements
-				processSelectSource(formNode, formFlow);
+				processSelectSource(formNodes.getSourceSelects(), formFlow);
 	
 				// Process range select elements
-				processSelectRange(formNode, masterScope);
+				processSelectRange(formNodes.getRangeSelects(), masterScope);
 	
 				// Record input fields
-				recordInputFieldsPushInValues(formNode, formFlow, dataDocument, docBase);
+				recordInputFieldsPushInValues(formNodes.getInputs(), formFlow, formFlow.getDataDocument(), formFlow.getCurrentDocBase());
 	
 				// Process Actions
-				processActions(currentActions, formNode, formFlow.getCurrentFormId());
+				processActions(formFlow.getCurrentActions(), formNodes.getActions(), formId);
 	
 				// Process auto-complete fields, replace source with proxy path
-				processInputSourceFields(formNode, currentPath, formFlow);
+				processInputSourceFields(formNodes.getSourceInputs(), formFlow.getCurrentPath(), formFlow);
 	
 				// Add flowId as hidden field
-				addFlowId(flowID, formNode);
+				addFlowId(formFlow.getId(), formNode);
 	
 				// Add the form id as a class on the form
 				formNode.setAttribute(Constants.CLASS, addClass(formNode.getAttributeByName(Constants.CLASS), formId));
@@ -130,22 +239,28 @@ public class FormParser {
 
 				// Mark form as parsed
 				formNode.setAttribute("parsed", "true");
-			} else {
-				logger.warn("No forms found");
+			} catch (IOException e) {
+				throw new FormParserException(e);
+			} catch (XPatherException e) {
+				throw new FormParserException(e);
+			} catch (ResourceLoaderException e) {
+				throw new FormParserException(e);
+			} catch (XPathExpressionException e) {
+				throw new FormParserException(e);
+			} catch (FlowExceptionJavaScript e) {
+				throw new FormParserException(e);
 			}
-	
-			// Write out processed document
+		} else {
+			logger.warn("No forms found");
+		}
+	}
+
+	private void writeForm(TagNode formHtml, PrintWriter writer) throws FormParserException {
+		// Write out processed document
+		try {
 			new SimpleHtmlSerializer(htmlCleaner.getProperties()).write(formHtml, writer, "utf-8");
 		} catch (IOException e) {
 			throw new FormParserException(e);
-		} catch (XPatherException e) {
-			throw new FormParserException(e);
-		} catch (ResourceLoaderException e) {
-			throw new FormParserException(e);
-		} catch (XPathExpressionException e) {
-			throw new FormParserException(e);
-		} catch (ValueInjectorException e) {
-			throw new FormParserException(e);
 		}
 	}
 
@@ -213,10 +328,8 @@ public class FormParser {
 		}
 	}
 
-	private void processSelectSource(TagNode formNode, FormFlow formFlow) throws XPatherException, ResourceLoaderException {
-		Object[] dynamicSelectNodes = formNode.evaluateXPath("//select[@" + Constants.SELECT_SOURCE_ATTR + "]");
-		for (Object dynamicSelectNodeO : dynamicSelectNodes) {
-			TagNode dynamicSelectNode = (TagNode) dynamicSelectNodeO;
+	private void processSelectSource(List<TagNode> dynamicSelectNodes, FormFlow formFlow) throws ResourceLoaderException {
+		for (TagNode dynamicSelectNode : dynamicSelectNodes) {
 			String name = dynamicSelectNode.getAttributeByName(Constants.NAME_ATTR);
 			String source = dynamicSelectNode.getAttributeByName(Constants.SELECT_SOURCE_ATTR);
 			source = formFlow.resolveResourcePathIfRelative(source);
@@ -241,10 +354,8 @@ public class FormParser {
 		} // TODO: validate that submitted value comes from the list
 	}
 
-	private void processInputSourceFields(TagNode formNode, String currentPath, FormFlow formFlow) throws XPatherException {
-		Object[] autoCompleteNodes = formNode.evaluateXPath("//input[@" + Constants.SELECT_SOURCE_ATTR + "]");
-		for (Object autoCompleteNodeO : autoCompleteNodes) {
-			TagNode autoCompleteNode = (TagNode) autoCompleteNodeO;
+	private void processInputSourceFields(List<TagNode> autoCompleteNodes, String currentPath, FormFlow formFlow) {
+		for (TagNode autoCompleteNode : autoCompleteNodes) {
 			String fieldName = autoCompleteNode.getAttributeByName(Constants.NAME_ATTR);
 			String source = autoCompleteNode.getAttributeByName(Constants.INPUT_SOURCE_ATTR);
 
@@ -263,9 +374,7 @@ public class FormParser {
 		formNode.insertChild(0, flowIdNode);
 	}
 
-	private void processActions(Map<String, FlowAction> currentActions, TagNode formNode, String formId) {
-		@SuppressWarnings("unchecked")
-		List<TagNode> actions = formNode.getElementListHavingAttribute(Constants.ACTION_ATTR, true);
+	private void processActions(Map<String, FlowAction> currentActions, List<TagNode> actions, String formId) {
 		for (TagNode actionTagNode : actions) {
 			String actionName = actionTagNode.getAttributeByName(Constants.ACTION_ATTR);
 			FlowAction flowAction = currentActions.get(actionName);
@@ -282,19 +391,11 @@ public class FormParser {
 		}
 	}
 
-	private void recordInputFieldsPushInValues(TagNode formNode, FormFlow formFlow, Document dataDocument, String docBase)
+	private void recordInputFieldsPushInValues(List<TagNode> inputs, FormFlow formFlow, Document dataDocument, String docBase)
 			throws XPathExpressionException, XPatherException {
 		List<InputPojo> inputPojos = new ArrayList<InputPojo>();
 		Map<String, InputPojo> inputPojosMap = new HashMap<String, InputPojo>();
 
-		@SuppressWarnings("unchecked")
-		List<TagNode> inputs = formNode.getElementListByName(INPUT, true);
-		@SuppressWarnings("unchecked")
-		List<TagNode> selects = formNode.getElementListByName(SELECT, true);
-		inputs.addAll(selects);
-		@SuppressWarnings("unchecked")
-		List<TagNode> textareas = formNode.getElementListByName(TEXTAREA, true);
-		inputs.addAll(textareas);
 		for (TagNode inputTagNode : inputs) {
 			String name = inputTagNode.getAttributeByName(Constants.NAME_ATTR);
 			if (name != null) {
@@ -360,67 +461,73 @@ public class FormParser {
 		formFlow.setCurrentInputPojos(inputPojos);
 	}
 
-	private void processSelectRange(TagNode formNode, JSMasterScope masterScope) throws XPatherException, IOException {
-		Object[] rangeSelectNodes = formNode.evaluateXPath("//select[@" + Constants.SELECT_RANGE_START_ATTR + "]");
-		if (rangeSelectNodes.length > 0) {
-			Scriptable workingScope = masterScope.createWorkingScope();
-			Context context = masterScope.getCurrentContext();
-			for (Object rangeSelectNodeO : rangeSelectNodes) {
-				TagNode rangeSelectNode = (TagNode) rangeSelectNodeO;
-				String name = rangeSelectNode.getAttributeByName(Constants.NAME_ATTR);
-				String rangeStart = rangeSelectNode.getAttributeByName(Constants.SELECT_RANGE_START_ATTR);
-				String rangeEnd = rangeSelectNode.getAttributeByName(Constants.SELECT_RANGE_END_ATTR);
-				String preselectFirstOption = rangeSelectNode.getAttributeByName(Constants.SELECT_PRESELECT_FIRST_OPTION_ATTR);
-				rangeSelectNode.removeAttribute(Constants.SELECT_RANGE_START_ATTR);
-				rangeSelectNode.removeAttribute(Constants.SELECT_RANGE_END_ATTR);
-				rangeSelectNode.removeAttribute(Constants.SELECT_PRESELECT_FIRST_OPTION_ATTR);
-
-				logger.debug("Found rangeSelectNode name:{}, rangeStart:{}, rangeEnd:{}", new String[] { name, rangeStart, rangeEnd });
-				boolean rangeStartValid = rangeStart != null && !rangeStart.isEmpty();
-				boolean rangeEndValid = rangeEnd != null && !rangeEnd.isEmpty();
-				if (rangeStartValid && rangeEndValid) {
-					Object rangeStartResult = context.evaluateString(workingScope, "{" + rangeStart + "}",
-							Constants.SELECT_RANGE_START_ATTR, 1, null);
-					Object rangeEndResult = context.evaluateString(workingScope, "{" + rangeEnd + "}", Constants.SELECT_RANGE_END_ATTR,
-							1, null);
-					logger.debug("RangeSelectNode name:{}, rangeStartResult:{}, rangeEndResult:{}", new Object[] { name,
-							rangeStartResult, rangeEndResult });
-
-					double rangeStartResultNumber = Context.toNumber(rangeStartResult);
-					double rangeEndResultNumber = Context.toNumber(rangeEndResult);
-					String comparator;
-					String incrementor;
-					if (rangeStartResultNumber < rangeEndResultNumber) {
-						comparator = "<=";
-						incrementor = "++";
-					} else {
-						comparator = ">=";
-						incrementor = "--";
-					}
+	private void processSelectRange(List<TagNode> rangeSelectNodes, JSMasterScope masterScope) throws IOException, FlowExceptionJavaScript {
+		if (!rangeSelectNodes.isEmpty()) {
+			try {
+				doProcessSelectRange(rangeSelectNodes, masterScope);
+			} catch (JSExecutionBudgetExceededError e) {
+				throw new FlowExceptionJavaScript("Script stopped while processing select range. " + e.getMessage(), e);
+			}
+		}
+	}
 
-					String rangeStatement = "{ var range = []; for( var i = " + rangeStartResult + "; i " + comparator + " "
-							+ rangeEndResult + "; i" + incrementor + ") { range.push(i); }; '' + range; }";
-					logger.debug("RangeSelectNode name:{}, rangeStatement:{}", name, rangeStatement);
-					String rangeResult = (String) context.evaluateString(workingScope, rangeStatement, "Calculate range", 1, null);
-					logger.debug("RangeSelectNode name:{}, rangeResult:{}", name, rangeResult);
-
-					if (!"true".equals(preselectFirstOption)) {
-						TagNode optionNode = new TagNode("option");
-						optionNode.setAttribute("value", "");
-						optionNode.addChild(new ContentNode("-- Please Select --"));
-						rangeSelectNode.addChild(optionNode);
-					}
+	private void doProcessSelectRange(List<TagNode> rangeSelectNodes, JSMasterScope masterScope) throws IOException {
+		Scriptable workingScope = masterScope.createWorkingScope();
+		Context context = masterScope.getCurrentContext();
+		for (TagNode rangeSelectNode : rangeSelectNodes) {
+			String name = rangeSelectNode.getAttributeByName(Constants.NAME_ATTR);
+			String rangeStart = rangeSelectNode.getAttributeByName(Constants.SELECT_RANGE_START_ATTR);
+			String rangeEnd = rangeSelectNode.getAttributeByName(Constants.SELECT_RANGE_END_ATTR);
+			String preselectFirstOption = rangeSelectNode.getAttributeByName(Constants.SELECT_PRESELECT_FIRST_OPTION_ATTR);
+			rangeSelectNode.removeAttribute(Constants.SELECT_RANGE_START_ATTR);
+			rangeSelectNode.removeAttribute(Constants.SELECT_RANGE_END_ATTR);
+			rangeSelectNode.removeAttribute(Constants.SELECT_PRESELECT_FIRST_OPTION_ATTR);
+
+			logger.debug("Found rangeSelectNode name:{}, rangeStart:{}, rangeEnd:{}", new String[] { name, rangeStart, rangeEnd });
+			boolean rangeStartValid = rangeStart != null && !rangeStart.isEmpty();
+			boolean rangeEndValid = rangeEnd != null && !rangeEnd.isEmpty();
+			if (rangeStartValid && rangeEndValid) {
+				Object rangeStartResult = context.evaluateString(workingScope, "{" + rangeStart + "}",
+						Constants.SELECT_RANGE_START_ATTR, 1, null);
+				Object rangeEndResult = context.evaluateString(workingScope, "{" + rangeEnd + "}", Constants.SELECT_RANGE_END_ATTR,
+						1, null);
+				logger.debug("RangeSelectNode name:{}, rangeStartResult:{}, rangeEndResult:{}", new Object[] { name,
+						rangeStartResult, rangeEndResult });
+
+				double rangeStartResultNumber = Context.toNumber(rangeStartResult);
+				double rangeEndResultNumber = Context.toNumber(rangeEndResult);
+				String comparator;
+				String incrementor;
+				if (rangeStartResultNumber < rangeEndResultNumber) {
+					comparator = "<=";
+					incrementor = "++";
+				} else {
+					comparator = ">=";
+					incrementor = "--";
+				}
 
-					for (String item : rangeResult.split(",")) {
-						TagNode optionNode = new TagNode("option");
-						optionNode.addChild(new ContentNode(item));
-						rangeSelectNode.addChild(optionNode);
-					}
+				String rangeStatement = "{ var range = []; for( var i = " + rangeStartResult + "; i " + comparator + " "
+						+ rangeEndResult + "; i" + incrementor + ") { range.push(i); }; '' + range; }";
+				logger.debug("RangeSelectNode name:{}, rangeStatement:{}", name, rangeStatement);
+				String rangeResult = (String) context.evaluateString(workingScope, rangeStatement, "Calculate range", 1, null);
+				logger.debug("RangeSelectNode name:{}, rangeResult:{}", name, rangeResult);
+
+				if (!"true".equals(preselectFirstOption)) {
+					TagNode optionNode = new TagNode("option");
+					optionNode.setAttribute("value", "");
+					optionNode.addChild(new ContentNode("-- Please Select --"));
+					rangeSelectNode.addChild(optionNode);
+				}
 
-				} else {
-					logger.warn("Range select node '{}' not processed because {} is empty.", name,
-							(rangeStartValid ? Constants.SELECT_RANGE_START_ATTR : Constants.SELECT_RANGE_END_ATTR));
+				for (String item : rangeResult.split(",")) {
+					TagNode optionNode = new TagNode("option");
+					optionNode.addChild(new ContentNode(item));
+					rangeSelectNode.addChild(optionNode);
 				}
+
+			} else {
+				logger.warn("Range select node '{}' not processed because {} is empty.", name,
+						(rangeStartValid ? Constants.SELECT_RANGE_START_ATTR : Constants.SELECT_RANGE_END_ATTR));
 			}
 		}
 	}
@@ -428,13 +535,13 @@ public class FormParser {
 	private void addDebugBar(TagNode formHtml) {
 		TagNode body = formHtml.findElementByName("body", false);
 		int size = body.getChildren().size();
-		body.insertChild(size, debugBarNode);
+		// Curly brackets are replaced within the tree so each form needs its own copy of the debugBar
+		body.insertChild(size, tagNodeCopier.deepCopy(debugBarNode));
 	}
 
 	String lookupValueByFieldName(Node document, String name, String docBase) throws XPathExpressionException {
 		String inputValue = null;
-		XPathExpression xPathExpression = fieldPathHelper.fieldToXPathExpression(docBase, name);
-		NodeList nodeList = (NodeList) xPathExpression.evaluate(document, XPathConstants.NODESET);
+		NodeList nodeList = fieldPathHelper.lookupField(document, docBase, name);
 		if (nodeList != null && nodeList.getLength() == 1) {
 			inputValue = nodeList.item(0).getTextContent();
 		} else if (nodeList != null && nodeList.getLength() > 1) {
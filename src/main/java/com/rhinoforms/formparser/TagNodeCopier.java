@@ -0,0 +1,81 @@
+package com.rhinoforms.formparser;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.htmlcleaner.CommentNode;
+import org.htmlcleaner.ContentNode;
+import org.htmlcleaner.TagNode;
+
+public class TagNodeCopier {
+
+	public TagNode deepCopy(TagNode tagNode) {
+		return deepCopy(tagNode, Collections.<TagNode> emptySet(), null);
+	}
+
+	/**
+	 * Deep copies the tagNode. The copy of each node within nodesToTrack is put into trackedCopies keyed by the original node.
+	 */
+	public TagNode deepCopy(TagNode tagNode, Set<TagNode> nodesToTrack, Map<TagNode, TagNode> trackedCopies) {
+		TagNode copy = copyTagNode(tagNode);
+		copy.setDocType(tagNode.getDocType());
+		if (nodesToTrack.contains(tagNode)) {
+			trackedCopies.put(tagNode, copy);
+		}
+
+		Map<String, String> attributes = tagNode.getAttributes();
+		for (String attName : attributes.keySet()) {
+			copy.setAttribute(attName, attributes.get(attName));
+		}
+		Map<String, String> namespaceDeclarations = tagNode.getNamespaceDeclarations();
+		if (namespaceDeclarations != null) {
+			for (String prefix : namespaceDeclarations.keySet()) {
+				copy.addNamespaceDeclaration(prefix, namespaceDeclarations.get(prefix));
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		List<Object> children = tagNode.getChildren();
+		for (Object child : children) {
+			if (child instanceof TagNode) {
+				copy.addChild(deepCopy((TagNode) child, nodesToTrack, trackedCopies));
+			} else if (child instanceof ContentNode) {
+				copy.addChild(copyContentNode((ContentNode) child));
+			} else if (child instanceof CommentNode) {
+				copy.addChild(copyCommentNode((CommentNode) child));
+			} else {
+				copy.addChild(child);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Creates an empty copy of the element, keeping any curly bracket templates parsed when the form was compiled.
+	 */
+	protected TagNode copyTagNode(TagNode tagNode) {
+		if (tagNode instanceof CurlyBracketTagNode && ((CurlyBracketTagNode) tagNode).getAttributeTemplates() != null) {
+			return new CurlyBracketTagNode(tagNode.getName(), ((CurlyBracketTagNode) tagNode).getAttributeTemplates());
+		}
+		return new TagNode(tagNode.getName());
+	}
+
+	protected ContentNode copyContentNode(ContentNode contentNode) {
+		String content = contentNode.getContent().toString();
+		if (contentNode instanceof CurlyBracketContentNode && ((CurlyBracketContentNode) contentNode).getTemplate() != null) {
+			return new CurlyBracketContentNode(content, ((CurlyBracketContentNode) contentNode).getTemplate());
+		}
+		return new ContentNode(content);
+	}
+
+	protected CommentNode copyCommentNode(CommentNode commentNode) {
+		String content = commentNode.getContent().toString();
+		if (commentNode instanceof CurlyBracketCommentNode && ((CurlyBracketCommentNode) commentNode).getTemplate() != null) {
+			return new CurlyBracketCommentNode(content, ((CurlyBracketCommentNode) commentNode).getTemplate());
+		}
+		return new CommentNode(content);
+	}
+
+}
@@ -7,6 +7,7 @@ import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -17,13 +18,13 @@ import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
-import org.apache.commons.io.output.StringBuilderWriter;
+import org.htmlcleaner.CommentNode;
 import org.htmlcleaner.ContentNode;
 import org.htmlcleaner.HtmlCleaner;
 import org.htmlcleaner.HtmlNode;
 import org.htmlcleaner.SimpleHtmlSerializer;
+import org.htmlcleaner.TagInfo;
 import org.htmlcleaner.TagNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,20 +32,19 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
-import com.rhinoforms.Constants;
 import com.rhinoforms.flow.FormFlowFactoryException;
 import com.rhinoforms.xml.DocumentHelper;
+import com.rhinoforms.xml.XPathExpressionCache;
 
 public class ValueInjector {
 
-	private static final Pattern CURLY_BRACKET_CONTENTS_PATTERN = Pattern.compile(".*?\\{\\{([^}]+)\\}\\}.*", Pattern.DOTALL);
 	private static final Pattern CURLY_BRACKET_PROPERTY_PATTERN = Pattern.compile(".*?\\{\\{\\$([^}]+)\\}\\}.*", Pattern.DOTALL);
-	private static final String NESTED_FOR_EACH_NODE_PLACEHOLDER_ATTRIBUTE = "data-rf_nestedForEachNodePlaceholder";
-	private static final XPathFactory xPathFactory = XPathFactory.newInstance();
 	private HtmlCleaner htmlCleaner;
 	private SimpleHtmlSerializer simpleHtmlSerializer;
 	private DocumentHelper documentHelper;
+	private XPathExpressionCache xPathExpressionCache;
 	private HtmlTags tags;
+	private TagNodeCopier tagNodeCopier;
 	
 	private final Logger logger = LoggerFactory.getLogger(ValueInjector.class);
 
@@ -53,6 +53,8 @@ public class ValueInjector {
 		this.simpleHtmlSerializer = simpleHtmlSerializer;
 		this.tags = tags;
 		documentHelper = new DocumentHelper();
+		xPathExpressionCache = XPathExpressionCache.getInstance();
+		tagNodeCopier = new TagNodeCopier();
 	}
 	
 	public void processHtmlTemplate(InputStream htmlTemplateInputStream, Document dataDocument, String docBase, Properties properties, OutputStream processedHtmlOutputStream) throws IOException, XPathExpressionException, ValueInjectorException {
@@ -98,29 +100,17 @@ public class ValueInjector {
 		String selectPath = forEachNode.getAttributeByName("select");
 		String selectAsName = forEachNode.getAttributeByName("as");
 		
-		// Replace nested for loops with placeholders
-		List<TagNode> nestedForEachNodes = Arrays.asList(forEachNode.getElementsByName(tags.getForEachTag(), true));
-		nestedForEachNodes = filterNestedForEachElements(forEachNode, nestedForEachNodes);
-		for (int i = 0; i < nestedForEachNodes.size(); i++) {
-			TagNode nestedForEachNode = nestedForEachNodes.get(i);
-			TagNode nestedForEachNodePlaceholder = new TagNode("div");
-			nestedForEachNodePlaceholder.setAttribute(NESTED_FOR_EACH_NODE_PLACEHOLDER_ATTRIBUTE, "" + i);
-			nestedForEachNode.getParent().replaceChild(nestedForEachNode, nestedForEachNodePlaceholder);
-			nestedForEachNode.removeFromTree();
-		}
-		
-		String forEachNodeContents = nodeToStringBuilder(forEachNode).toString();
-		// Remove whitespace at beginning
-		forEachNodeContents = forEachNodeContents.replaceFirst("<rf\\.foreach [^>]*?>\\s*?\n", "<rf.foreach>");
-
 		if (selectPath != null && !selectPath.isEmpty()) {
+			// Remove whitespace at beginning
+			removeLeadingNewline(forEachNode);
+
 			String selectXpath;
 			if (!selectPath.startsWith("/")) {
 				selectXpath = docBase + "/" + selectPath;
 			} else {
 				selectXpath = selectPath;
 			}
-			XPathExpression selectExpression = xPathFactory.newXPath().compile(selectXpath);
+			XPathExpression selectExpression = xPathExpressionCache.compile(selectXpath);
 			logger.debug("Select xpath: {}", selectXpath);
 			NodeList dataNodeList = (NodeList) selectExpression.evaluate(dataDocument, XPathConstants.NODESET);
 			logger.debug("Nodes found count: {}", dataNodeList.getLength());
@@ -131,32 +121,17 @@ public class ValueInjector {
 				
 				TagNode iterationContainer = addContainerBeforeNode(forEachNode);
 				
-				logger.debug("forEachNodeContents: {}", forEachNodeContents);
-				
-				StringBuilder thisForEachNodeContents = new StringBuilder(forEachNodeContents);
-				replaceCurlyBrackets(properties, thisForEachNodeContents, dataDocument, contextNodes, dataNodeindex + 1);
-				
-				logger.debug("thisForEachNodeContents: {}", thisForEachNodeContents);
-				
-				TagNode processedForEachNode = stringBuilderToNode(thisForEachNodeContents);
+				// Nested for loops are copied with their placeholders intact, they are replaced when the nested loop is processed
+				TagNode processedForEachNode = tagNodeCopier.deepCopy(forEachNode);
+				replaceCurlyBrackets(processedForEachNode, properties, dataDocument, contextNodes, dataNodeindex + 1);
 				@SuppressWarnings("unchecked")
 				List<HtmlNode> children = processedForEachNode.getChildren();
+				boolean textAllowed = isTextAllowedInside(forEachNode.getParent());
 				for (HtmlNode child : children) {
-					iterationContainer.addChild(child);
-				}
-				
-				// Put back nested for loops
-				List<TagNode> iterationNestedForEachNodePlaceholders = Arrays.asList(iterationContainer.getElementsHavingAttribute(NESTED_FOR_EACH_NODE_PLACEHOLDER_ATTRIBUTE, true));
-				for (TagNode placeholder : iterationNestedForEachNodePlaceholders) {
-					TagNode parent = placeholder.getParent();
-					TagNode originalNestedForEachNode = nestedForEachNodes.get(Integer.parseInt(placeholder.getAttributeByName(NESTED_FOR_EACH_NODE_PLACEHOLDER_ATTRIBUTE)));
-
-					// Having to add then remove before insert to get the parent set correctly
-					parent.addChild(originalNestedForEachNode);
-					parent.removeChild(originalNestedForEachNode);
-					parent.insertChildAfter(placeholder, originalNestedForEachNode);
-					
-					parent.removeChild(placeholder);
+					// Whitespace is dropped where the html cleaner would not allow text, within a select for example
+					if (textAllowed || !(child instanceof ContentNode) || !((ContentNode) child).toString().trim().isEmpty()) {
+						iterationContainer.addChild(child);
+					}
 				}
 
 				// Process nested for loops
@@ -188,6 +163,35 @@ public class ValueInjector {
 		}
 	}
 
+	private boolean isTextAllowedInside(TagNode tagNode) {
+		TagInfo tagInfo = htmlCleaner.getTagInfoProvider().getTagInfo(tagNode.getName());
+		return tagInfo == null || tagInfo.getChildTags().isEmpty();
+	}
+
+	private void removeLeadingNewline(TagNode forEachNode) {
+		@SuppressWarnings("unchecked")
+		List<HtmlNode> children = forEachNode.getChildren();
+		if (!children.isEmpty() && children.get(0) instanceof ContentNode) {
+			removeStart((ContentNode) children.get(0), "^\\s*?\n");
+		}
+	}
+
+	/**
+	 * Removes the start of the text matched by the regex, keeping the template of compiled text in step.
+	 */
+	private void removeStart(ContentNode contentNode, String regex) {
+		StringBuilder stringBuilder = contentNode.getContent();
+		String string = stringBuilder.toString();
+		int length = string.length() - string.replaceFirst(regex, "").length();
+		if (length > 0) {
+			if (contentNode instanceof CurlyBracketContentNode) {
+				((CurlyBracketContentNode) contentNode).removeStart(length);
+			} else {
+				stringBuilder.delete(0, length);
+			}
+		}
+	}
+
 	private void removeFromParentIncludeTrailingNewline(TagNode node) {
 		TagNode parent = node.getParent();
 		int childIndex = parent.getChildIndex(node);
@@ -197,12 +201,7 @@ public class ValueInjector {
 		if (children.size() > childIndex) {
 			HtmlNode htmlNode = children.get(childIndex);
 			if (htmlNode instanceof ContentNode) {
-				ContentNode contentNode = (ContentNode) htmlNode;
-				StringBuilder stringBuilder = contentNode.getContent();
-				String string = stringBuilder.toString();
-				string = string.replaceFirst("[\r\n]*", "");
-				stringBuilder.setLength(0);
-				stringBuilder.append(string);
+				removeStart((ContentNode) htmlNode, "^[\r\n]*");
 			}
 		}
 	}
@@ -255,7 +254,7 @@ public class ValueInjector {
 		Node dataDocAtDocBase;
 		
 		try {
-			selectExpression = xPathFactory.newXPath().compile(docBase);
+			selectExpression = xPathExpressionCache.compile(docBase);
 			dataDocAtDocBase = (Node) selectExpression.evaluate(dataDocument, XPathConstants.NODE);
 		} catch (XPathExpressionException e) {
 			throw new ValueInjectorException("Invalid docBase '" + docBase + "'", e);
@@ -263,74 +262,184 @@ public class ValueInjector {
 
 		TagNode[] bodyElements = formHtml.getElementsByName("body", false);
 		if (bodyElements.length > 0) {
-			TagNode bodyElement = bodyElements[0];
-			StringBuilder builder = nodeToStringBuilder(bodyElement);
-			replaceCurlyBrackets(properties, builder, dataDocAtDocBase);
-			TagNode processedBodyElement = stringBuilderBodyToNode(builder);
-			TagNode parent = bodyElement.getParent();
-			parent.replaceChild(bodyElement, processedBodyElement);
+			replaceCurlyBrackets(bodyElements[0], properties, dataDocAtDocBase, new HashMap<String, Node>(), null);
 		}
 	}
 
-	public void replaceCurlyBrackets(Properties properties, StringBuilder builder, Node dataDocument)
+	/**
+	 * Replaces curly brackets within the text, comments and attribute values of the node's descendants, the html is not re-parsed.
+	 * Nodes of a compiled form render the template parsed when the form was compiled, other nodes are parsed now.
+	 * Values are escaped so they are inserted as text rather than markup, except within script and style elements and comments
+	 * where the html is not escaped. The contents of nested forEach elements are left for when those loops are processed.
+	 */
+	private void replaceCurlyBrackets(TagNode node, Properties properties, Node dataDocument, Map<String, Node> contextNodes, Integer contextindex)
 			throws ValueInjectorException {
-		replaceCurlyBrackets(properties, builder, dataDocument, new HashMap<String, Node>(), null);
+		boolean escapeText = !isScriptOrStyle(node);
+		@SuppressWarnings("unchecked")
+		List<Object> children = node.getChildren();
+		for (Object child : children) {
+			if (child instanceof TagNode) {
+				TagNode childTagNode = (TagNode) child;
+				replaceCurlyBracketsInAttributes(childTagNode, properties, dataDocument, contextNodes, contextindex);
+				if (!childTagNode.getName().equals(tags.getForEachTag())) {
+					replaceCurlyBrackets(childTagNode, properties, dataDocument, contextNodes, contextindex);
+				}
+			} else if (child instanceof CurlyBracketContentNode) {
+				CurlyBracketContentNode contentNode = (CurlyBracketContentNode) child;
+				replaceCurlyBrackets(contentNode.removeTemplate(), contentNode.getContent(), properties, dataDocument, contextNodes, contextindex,
+						escapeText);
+			} else if (child instanceof ContentNode) {
+				replaceCurlyBrackets(null, ((ContentNode) child).getContent(), properties, dataDocument, contextNodes, contextindex, escapeText);
+			} else if (child instanceof CurlyBracketCommentNode) {
+				CurlyBracketCommentNode commentNode = (CurlyBracketCommentNode) child;
+				replaceCurlyBrackets(commentNode.removeTemplate(), commentNode.getContent(), properties, dataDocument, contextNodes, contextindex,
+						false);
+			} else if (child instanceof CommentNode) {
+				replaceCurlyBrackets(null, ((CommentNode) child).getContent(), properties, dataDocument, contextNodes, contextindex, false);
+			}
+		}
 	}
-	
-	private void replaceCurlyBrackets(Properties properties, StringBuilder builder, Node dataDocument, Map<String, Node> contextNodes, Integer contextindex)
-			throws ValueInjectorException {
-		StringBuffer completedText = new StringBuffer();
-		
-		Matcher matcher = CURLY_BRACKET_CONTENTS_PATTERN.matcher(builder);
-		while (matcher.matches()) {
-			// get brackets contents
-			String group = matcher.group(1);
-			String value = null;
-			if (group.startsWith("$")) {
-				if (group.length() > 1 && properties != null) {
-					value = properties.getProperty(group.substring(1));
+
+	private boolean isScriptOrStyle(TagNode node) {
+		String name = node.getName();
+		return "script".equalsIgnoreCase(name) || "style".equalsIgnoreCase(name);
+	}
+
+	private void replaceCurlyBracketsInAttributes(TagNode node, Properties properties, Node dataDocument, Map<String, Node> contextNodes,
+			Integer contextindex) throws ValueInjectorException {
+		if (node instanceof CurlyBracketTagNode) {
+			Map<String, CurlyBracketTemplate> attributeTemplates = ((CurlyBracketTagNode) node).removeAttributeTemplates();
+			if (attributeTemplates != null) {
+				for (String attName : attributeTemplates.keySet()) {
+					StringBuilder builder = new StringBuilder();
+					renderCurlyBracketTemplate(attributeTemplates.get(attName), builder, properties, dataDocument, contextNodes, contextindex, true);
+					node.setAttribute(attName, builder.toString());
 				}
-			} else {
-				String groupContextName = group.split("\\.")[0];
-				if (contextNodes.containsKey(groupContextName)) {
-					Node contextNode = contextNodes.get(groupContextName);
-					if (group.equals(groupContextName)) {
-						Node firstChild = contextNode.getFirstChild();
-						if (firstChild != null) {
-							value = firstChild.getTextContent();
-						}
-					} else {
-						if (group.equals(groupContextName + ".index")) {
-							value = "" + contextindex;
-						} else {
-							// lookup value from context node
-							value = lookupValue(contextNode, group.substring(groupContextName.length() + 1));
-						}
+				return;
+			}
+		}
+		Map<String, String> replacedAttributes = null;
+		Map<String, String> attributes = node.getAttributes();
+		for (String attName : attributes.keySet()) {
+			String attValue = attributes.get(attName);
+			if (attValue.contains("{{")) {
+				CurlyBracketTemplate template = CurlyBracketTemplate.parse(attValue);
+				if (template.hasPlaceholders()) {
+					StringBuilder builder = new StringBuilder(attValue.length());
+					renderCurlyBracketTemplate(template, builder, properties, dataDocument, contextNodes, contextindex, true);
+					if (replacedAttributes == null) {
+						replacedAttributes = new LinkedHashMap<String, String>();
 					}
-				} else {
-					// lookup value from main dataDoc
-					value = lookupValue(dataDocument, group);
+					replacedAttributes.put(attName, builder.toString());
 				}
 			}
+		}
+		if (replacedAttributes != null) {
+			for (String attName : replacedAttributes.keySet()) {
+				node.setAttribute(attName, replacedAttributes.get(attName));
+			}
+		}
+	}
 
-			int groupStart = builder.indexOf("{{" + group + "}}");
-			int groupEnd = groupStart + group.length() + 4;
+	/**
+	 * Returns true if the html has forEach elements, these change the structure of the html depending on the data document.
+	 */
+	boolean hasForEachStatements(TagNode formHtml) {
+		return formHtml.getElementsByName(tags.getForEachTag(), true).length > 0;
+	}
 
-			int end;
-			if (value != null) {
-				builder.replace(groupStart, groupEnd, value);
-				end = groupStart + value.length();
+	public void replaceCurlyBrackets(Properties properties, StringBuilder builder, Node dataDocument)
+			throws ValueInjectorException {
+		replaceCurlyBrackets(null, builder, properties, dataDocument, new HashMap<String, Node>(), null, false);
+	}
+	
+	/**
+	 * @param template the template parsed when the form was compiled, or null to parse the builder
+	 */
+	private void replaceCurlyBrackets(CurlyBracketTemplate template, StringBuilder builder, Properties properties, Node dataDocument,
+			Map<String, Node> contextNodes, Integer contextindex, boolean escapeValues) throws ValueInjectorException {
+		if (template == null && builder.indexOf("{{") != -1) {
+			template = CurlyBracketTemplate.parse(builder);
+		}
+		if (template != null && template.hasPlaceholders()) {
+			builder.setLength(0);
+			renderCurlyBracketTemplate(template, builder, properties, dataDocument, contextNodes, contextindex, escapeValues);
+		}
+	}
+
+	/**
+	 * @param escapeValues true to escape values for html text or attribute values
+	 */
+	void renderCurlyBracketTemplate(CurlyBracketTemplate template, StringBuilder output, Properties properties, Node dataDocument,
+			Map<String, Node> contextNodes, Integer contextindex, boolean escapeValues) throws ValueInjectorException {
+		String[] literals = template.getLiterals();
+		CurlyBracketTemplate.Placeholder[] placeholders = template.getPlaceholders();
+		output.append(literals[0]);
+		for (int i = 0; i < placeholders.length; i++) {
+			CurlyBracketTemplate.Placeholder placeholder = placeholders[i];
+			String value = lookupPlaceholderValue(placeholder, properties, dataDocument, contextNodes, contextindex);
+			if (value != null && escapeValues) {
+				appendEscaped(value, output);
+			} else if (value != null) {
+				output.append(value);
 			} else {
-				end = groupEnd;
+				output.append("{{").append(placeholder.getGroup()).append("}}");
+			}
+			output.append(literals[i + 1]);
+		}
+	}
+
+	private void appendEscaped(String value, StringBuilder output) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '&':
+				output.append("&amp;");
+				break;
+			case '<':
+				output.append("&lt;");
+				break;
+			case '>':
+				output.append("&gt;");
+				break;
+			case '"':
+				output.append("&quot;");
+				break;
+			default:
+				output.append(c);
 			}
-			completedText.append(builder.subSequence(0, end));
-			builder.delete(0, end);
-			matcher = CURLY_BRACKET_CONTENTS_PATTERN.matcher(builder);
 		}
+	}
 
-		completedText.append(builder);
-		builder.delete(0, builder.length());
-		builder.append(completedText);
+	private String lookupPlaceholderValue(CurlyBracketTemplate.Placeholder placeholder, Properties properties, Node dataDocument,
+			Map<String, Node> contextNodes, Integer contextindex) throws ValueInjectorException {
+		String value = null;
+		if (placeholder.isProperty()) {
+			if (placeholder.getPropertyName() != null && properties != null) {
+				value = properties.getProperty(placeholder.getPropertyName());
+			}
+		} else {
+			String contextName = placeholder.getContextName();
+			if (contextNodes.containsKey(contextName)) {
+				Node contextNode = contextNodes.get(contextName);
+				String contextPath = placeholder.getContextPath();
+				if (contextPath == null) {
+					Node firstChild = contextNode.getFirstChild();
+					if (firstChild != null) {
+						value = firstChild.getTextContent();
+					}
+				} else if (contextPath.equals("index")) {
+					value = "" + contextindex;
+				} else {
+					// lookup value from context node
+					value = lookupValue(contextNode, contextPath);
+				}
+			} else {
+				// lookup value from main dataDoc
+				value = lookupValue(dataDocument, placeholder.getGroup());
+			}
+		}
+		return value;
 	}
 
 	private String lookupValue(Node dataNode, String fieldName) throws ValueInjectorException {
@@ -339,7 +448,7 @@ public class ValueInjector {
 			XPathExpression expression = null;
 			try {
 				xpath = fieldName.replaceAll("\\.", "/");
-				expression = XPathFactory.newInstance().newXPath().compile(xpath);
+				expression = xPathExpressionCache.compile(xpath);
 				return expression.evaluate(dataNode);
 				
 			} catch (XPathExpressionException e) {
@@ -362,21 +471,6 @@ public class ValueInjector {
 		}
 	}
 
-	StringBuilder nodeToStringBuilder(TagNode forEachNode) throws IOException {
-		StringBuilderWriter forEachNodeWriter = new StringBuilderWriter();
-		simpleHtmlSerializer.write(forEachNode, forEachNodeWriter, Constants.UTF8);
-		StringBuilder forEachNodeContents = forEachNodeWriter.getBuilder();
-		return forEachNodeContents;
-	}
-
-	TagNode stringBuilderBodyToNode(StringBuilder nodeContents) throws IOException {
-		return (TagNode) htmlCleaner.clean(nodeContents.toString()).getChildren().get(1);
-	}
-	
-	TagNode stringBuilderToNode(StringBuilder nodeContents) throws IOException {
-		return (TagNode) stringBuilderBodyToNode(nodeContents).getChildren().get(0);
-	}
-	
 	public void processFlowDefinitionCurlyBrackets(StringBuilder flowStringBuilder, Properties flowProperties) throws FormFlowFactoryException {
 		if (flowProperties != null) {
 			Matcher matcher = CURLY_BRACKET_PROPERTY_PATTERN.matcher(flowStringBuilder);
@@ -0,0 +1,14 @@
+package com.rhinoforms.js;
+
+/**
+ * Thrown from the Rhino instruction observer when a script runs for longer than allowed.
+ * This is an Error so that it can not be caught by a JavaScript try/catch block.
+ */
+@SuppressWarnings("serial")
+public class JSExecutionBudgetExceededError extends Error {
+
+	public JSExecutionBudgetExceededError(String message) {
+		super(message);
+	}
+
+}
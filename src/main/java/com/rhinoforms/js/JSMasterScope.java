@@ -3,24 +3,47 @@ package com.rhinoforms.js;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.rhinoforms.RhinoformsProperties;
+import com.rhinoforms.resourceloader.FormResourcesChangedListener;
 import com.rhinoforms.resourceloader.ResourceLoader;
 
-public class JSMasterScope {
+public class JSMasterScope implements FormResourcesChangedListener {
 
 	private Scriptable sharedScope;
 	private ResourceLoader resourceLoader;
+	private boolean libraryCaching;
+	private int optimizationLevel;
+	private Map<String, Script> libraryScriptCache;
+	private Map<String, Script> expressionScriptCache;
+	public static final int EXPRESSION_CACHE_MAX_SIZE = 2000;
 	private final Logger logger = LoggerFactory.getLogger(JSMasterScope.class);
 	
 	public JSMasterScope(Scriptable sharedScope, ResourceLoader resourceLoader) {
 		this.sharedScope = sharedScope;
 		this.resourceLoader = resourceLoader;
+		RhinoformsProperties rhinoformsProperties = RhinoformsProperties.getInstance();
+		this.libraryCaching = rhinoformsProperties.isFormResourceCaching();
+		this.optimizationLevel = rhinoformsProperties.getJsOptimizationLevel();
+		this.libraryScriptCache = new ConcurrentHashMap<String, Script>();
+		this.expressionScriptCache = Collections.synchronizedMap(new LinkedHashMap<String, Script>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Script> eldest) {
+				return size() > EXPRESSION_CACHE_MAX_SIZE;
+			}
+		});
 	}
 
 	/**
@@ -43,19 +66,80 @@ public class JSMasterScope {
 		if (librariesToPreload != null && !librariesToPreload.isEmpty()) {
 			Context jsContext = getCurrentContext();
 			for (String libraryToPreload : librariesToPreload) {
-				InputStream resourceAsStream = resourceLoader.getFormResourceAsStream(libraryToPreload);
-				if (resourceAsStream != null) {
-					logger.debug("Loading library script {}", libraryToPreload);
-					jsContext.evaluateReader(workingScope, new InputStreamReader(resourceAsStream), libraryToPreload, 1, null);
-				} else {
-					throw new FlowExceptionFileNotFound("Could not locate flow library '" + libraryToPreload + "'");
-				}
+				getLibraryScript(libraryToPreload, jsContext).exec(jsContext, workingScope);
 			}
 		}
 
 		return workingScope;
 	}
 
+	private Script getLibraryScript(String libraryPath, Context jsContext) throws IOException, FlowExceptionFileNotFound {
+		Script script = libraryScriptCache.get(libraryPath);
+		if (script == null) {
+			script = compileLibraryScript(libraryPath, jsContext);
+			if (libraryCaching) {
+				libraryScriptCache.put(libraryPath, script);
+			}
+		}
+		return script;
+	}
+
+	private Script compileLibraryScript(String libraryPath, Context jsContext) throws IOException, FlowExceptionFileNotFound {
+		InputStream resourceAsStream = resourceLoader.getFormResourceAsStream(libraryPath);
+		if (resourceAsStream != null) {
+			logger.debug("Compiling library script {}", libraryPath);
+			int contextOptimizationLevel = jsContext.getOptimizationLevel();
+			jsContext.setOptimizationLevel(optimizationLevel);
+			try {
+				return jsContext.compileReader(new InputStreamReader(resourceAsStream), libraryPath, 1, null);
+			} finally {
+				jsContext.setOptimizationLevel(contextOptimizationLevel);
+				resourceAsStream.close();
+			}
+		} else {
+			throw new FlowExceptionFileNotFound("Could not locate flow library '" + libraryPath + "'");
+		}
+	}
+
+	/**
+	 * Returns the compiled form of a short expression taken from a form, for example an rf.includeIf statement.
+	 * Expressions are cached by source name and source so each is only compiled once.
+	 * The Script returned can be executed against any working scope.
+	 */
+	public Script getExpressionScript(String source, String sourceName) {
+		String key = sourceName + "\n" + source;
+		Script script = expressionScriptCache.get(key);
+		if (script == null) {
+			Context jsContext = getCurrentContext();
+			int contextOptimizationLevel = jsContext.getOptimizationLevel();
+			jsContext.setOptimizationLevel(optimizationLevel);
+			try {
+				script = jsContext.compileString(source, sourceName, 1, null);
+			} finally {
+				jsContext.setOptimizationLevel(contextOptimizationLevel);
+			}
+			if (libraryCaching) {
+				expressionScriptCache.put(key, script);
+			}
+		}
+		return script;
+	}
+
+	@Override
+	public void formResourcesChanged() {
+		logger.info("Clearing library and expression script caches.");
+		libraryScriptCache.clear();
+		expressionScriptCache.clear();
+	}
+
+	int getLibraryScriptCacheSize() {
+		return libraryScriptCache.size();
+	}
+
+	int getExpressionScriptCacheSize() {
+		return expressionScriptCache.size();
+	}
+
 	public Context getCurrentContext() {
 		Context currentContext = Context.getCurrentContext();
 		if (currentContext != null) {
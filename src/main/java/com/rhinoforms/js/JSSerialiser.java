@@ -3,6 +3,10 @@ package com.rhinoforms.js;
 import java.util.List;
 import java.util.Map;
 
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
 import com.rhinoforms.Constants;
 import com.rhinoforms.flow.InputPojo;
 
@@ -74,4 +78,53 @@ public class JSSerialiser {
 		return stringBuilder.toString();
 	}
 
+	/**
+	 * Builds the same structure as {@link #inputPOJOListToJS(List)} directly as JavaScript objects, no script is parsed.
+	 */
+	public Scriptable inputPOJOListToNativeObject(List<InputPojo> inputPojos, Context context, Scriptable scope) {
+		Scriptable fields = context.newObject(scope);
+		for (InputPojo inputPOJO : inputPojos) {
+			String name = inputPOJO.getName();
+			if (name != null && !name.isEmpty()) {
+				ScriptableObject.putProperty(fields, getFieldKey(name), inputPOJOToNativeObject(inputPOJO, context, scope));
+			}
+		}
+		return fields;
+	}
+
+	public Scriptable inputPOJOToNativeObject(InputPojo inputPOJO, Context context, Scriptable scope) {
+		Scriptable field = context.newObject(scope);
+		ScriptableObject.putProperty(field, "name", inputPOJO.getName());
+		if (inputPOJO.getType().equalsIgnoreCase("checkbox")) {
+			ScriptableObject.putProperty(field, "value", Boolean.valueOf(inputPOJO.getValue()));
+		} else {
+			ScriptableObject.putProperty(field, "value", inputPOJO.getValue().replaceAll("[\n\r]+", "\n"));
+		}
+		if (inputPOJO.getValidation() != null) {
+			ScriptableObject.putProperty(field, "validation", inputPOJO.getValidation());
+		}
+		if (inputPOJO.getValidationFunction() != null) {
+			ScriptableObject.putProperty(field, "validationFunction", inputPOJO.getValidationFunction());
+		}
+		Map<String, String> rfAttributes = inputPOJO.getRfAttributes();
+		if (rfAttributes != null) {
+			Scriptable rfAttributesObject = context.newObject(scope);
+			for (String rfAttributeKey : rfAttributes.keySet()) {
+				if (!rfAttributeKey.equals(Constants.VALIDATION_ATTR) && !rfAttributeKey.equals(Constants.VALIDATION_FUNCTION_ATTR)) {
+					ScriptableObject.putProperty(rfAttributesObject, rfAttributeKey, rfAttributes.get(rfAttributeKey));
+				}
+			}
+			ScriptableObject.putProperty(field, "rfAttributes", rfAttributesObject);
+		}
+		ScriptableObject.putProperty(field, "included", Boolean.TRUE);
+		return field;
+	}
+
+	/**
+	 * The property name used for a field in the fields object.
+	 */
+	public String getFieldKey(String inputName) {
+		return inputName.replace('.', '_');
+	}
+
 }
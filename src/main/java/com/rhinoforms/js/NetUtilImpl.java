@@ -1,33 +1,167 @@
 package com.rhinoforms.js;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.rhinoforms.RhinoformsProperties;
+import com.rhinoforms.net.ConnectionFactory;
 
+/**
+ * Fetches JavaScript over HTTP for server-side functions such as the fromSource validation keyword.
+ *
+ * Responses are compiled once and cached by URL. Once the time to live has passed a cached response is revalidated
+ * using its ETag or Last-Modified header, a 304 response keeps the compiled script.
+ * The cached script is run in a new working scope for each call so callers never share objects.
+ */
 public class NetUtilImpl implements NetUtil {
 
 	private JSMasterScope masterScope;
+	private ConnectionFactory connectionFactory;
+	private long cacheTimeToLive;
+	private int connectTimeout;
+	private int readTimeout;
+	private Map<String, CachedResponse> responseCache;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong revalidatedCount = new AtomicLong();
 	final Logger logger = LoggerFactory.getLogger(NetUtilImpl.class);
-	
-	public NetUtilImpl(JSMasterScope masterScope) {
+
+	public NetUtilImpl(JSMasterScope masterScope, ConnectionFactory connectionFactory, RhinoformsProperties rhinoformsProperties) {
+		this(masterScope, connectionFactory, rhinoformsProperties.getNetUtilCacheTimeToLive(), rhinoformsProperties
+				.getNetUtilCacheMaxSize(), rhinoformsProperties.getNetUtilConnectTimeout(), rhinoformsProperties.getNetUtilReadTimeout());
+	}
+
+	/**
+	 * @param cacheTimeToLive milliseconds before a cached response is revalidated, 0 disables the cache
+	 * @param cacheMaxSize the maximum number of URLs cached, the least recently used is removed first
+	 * @param connectTimeout connect timeout in milliseconds, 0 for no timeout
+	 * @param readTimeout read timeout in milliseconds, 0 for no timeout
+	 */
+	public NetUtilImpl(JSMasterScope masterScope, ConnectionFactory connectionFactory, long cacheTimeToLive, final int cacheMaxSize,
+			int connectTimeout, int readTimeout) {
 		this.masterScope = masterScope;
+		this.connectionFactory = connectionFactory;
+		this.cacheTimeToLive = cacheMaxSize > 0 ? cacheTimeToLive : 0;
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+		this.responseCache = Collections.synchronizedMap(new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+				return size() > cacheMaxSize;
+			}
+		});
 	}
-	
+
 	public Object httpGetJsObject(String urlString) throws IOException {
 		logger.debug("httpGetJsObject for url:'{}'", urlString);
 		Context context = masterScope.getCurrentContext();
+		Script script = getScript(urlString, context);
 		Scriptable workingScope = masterScope.createWorkingScope();
-		URL url = new URL(urlString);
-		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-		InputStreamReader inputStreamReader = new InputStreamReader(connection.getInputStream());
-		return context.evaluateReader(workingScope, inputStreamReader, "", 1, null);
+		return script.exec(context, workingScope);
+	}
+
+	private Script getScript(String urlString, Context context) throws IOException {
+		if (cacheTimeToLive <= 0) {
+			missCount.incrementAndGet();
+			return fetch(urlString, null, context).script;
+		}
+
+		CachedResponse cachedResponse = responseCache.get(urlString);
+		if (cachedResponse != null && System.currentTimeMillis() < cachedResponse.expires) {
+			hitCount.incrementAndGet();
+			return cachedResponse.script;
+		}
+
+		CachedResponse fetchedResponse = fetch(urlString, cachedResponse, context);
+		if (fetchedResponse.cacheable) {
+			responseCache.put(urlString, fetchedResponse);
+		} else {
+			responseCache.remove(urlString);
+		}
+		return fetchedResponse.script;
+	}
+
+	private CachedResponse fetch(String urlString, CachedResponse staleResponse, Context context) throws IOException {
+		HttpURLConnection connection = connectionFactory.openConnection(urlString);
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		if (staleResponse != null) {
+			if (staleResponse.eTag != null) {
+				connection.setRequestProperty("If-None-Match", staleResponse.eTag);
+			}
+			if (staleResponse.lastModified != null) {
+				connection.setRequestProperty("If-Modified-Since", staleResponse.lastModified);
+			}
+		}
+
+		int responseCode = connection.getResponseCode();
+		String cacheControl = connection.getHeaderField("Cache-Control");
+		boolean cacheable = cacheControl == null || !cacheControl.toLowerCase().contains("no-store");
+		if (staleResponse != null && responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+			logger.debug("Cached response still valid for url:'{}'", urlString);
+			revalidatedCount.incrementAndGet();
+			// Closed, although empty, so that the connection is released for reuse
+			connection.getInputStream().close();
+			return new CachedResponse(staleResponse.script, staleResponse.eTag, staleResponse.lastModified, cacheable);
+		}
+
+		missCount.incrementAndGet();
+		// The stream is closed but the connection is not disconnected so that it can be kept alive and reused
+		InputStream inputStream = connection.getInputStream();
+		try {
+			Script script = context.compileReader(new InputStreamReader(inputStream), urlString, 1, null);
+			return new CachedResponse(script, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"), cacheable);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getRevalidatedCount() {
+		return revalidatedCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "NetUtilImpl hits:" + hitCount + ", misses:" + missCount + ", revalidated:" + revalidatedCount;
 	}
-	
+
+	private class CachedResponse {
+
+		private Script script;
+		private String eTag;
+		private String lastModified;
+		private boolean cacheable;
+		private long expires;
+
+		public CachedResponse(Script script, String eTag, String lastModified, boolean cacheable) {
+			this.script = script;
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+			this.cacheable = cacheable;
+			this.expires = System.currentTimeMillis() + cacheTimeToLive;
+		}
+
+	}
+
 }
@@ -11,6 +11,8 @@ import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 import org.slf4j.LoggerFactory;
 
+import com.rhinoforms.RhinoformsProperties;
+import com.rhinoforms.net.ConnectionFactory;
 import com.rhinoforms.resourceloader.ResourceLoader;
 
 public class RhinoFormsMasterScopeFactory {
@@ -19,7 +21,10 @@ public class RhinoFormsMasterScopeFactory {
 	private static final String RHINOFORMS_SERVER_SIDE_SCRIPT = "/js/rhinoforms-server-side.js";
 	private static final String SERVER_SIDE_CONSOLE_SCRIPT = "/js/server-side-console.js";
 	
-	public JSMasterScope createMasterScope(Context jsContext, ResourceLoader resourceLoader) throws IOException {
+	/**
+	 * @param connectionFactory used by netUtil for its requests
+	 */
+	public JSMasterScope createMasterScope(Context jsContext, ResourceLoader resourceLoader, ConnectionFactory connectionFactory) throws IOException {
 		ScriptableObject sharedScope = jsContext.initStandardObjects(null, true);
 
 		JSMasterScope masterScope = new JSMasterScope(sharedScope, resourceLoader);
@@ -33,7 +38,7 @@ public class RhinoFormsMasterScopeFactory {
 		loadScript(RHINOFORMS_SERVER_SIDE_SCRIPT, sharedScope, jsContext, resourceLoader);
 
 		// Define netUtil for use by server-side functions
-		NetUtil netUtil = createNetUtil(masterScope);
+		NetUtil netUtil = createNetUtil(masterScope, connectionFactory);
 		Object wrappedNetUtil = Context.javaToJS(netUtil, sharedScope);
 		ScriptableObject.putProperty(sharedScope, "netUtil", wrappedNetUtil);
 		
@@ -58,13 +63,30 @@ public class RhinoFormsMasterScopeFactory {
 	}
 
 	public static void enableDynamicScopeFeature() {
-		if (!ContextFactory.hasExplicitGlobal()) {
-			ContextFactory.initGlobal(new DynamicScopeEnabledContextFactory());
+		getContextFactory();
+	}
+	
+	/**
+	 * Installs a {@link RhinoformsContextFactory} as the global ContextFactory if no other global has been set.
+	 * 
+	 * @return the global factory, or if another global factory has already been set a new RhinoformsContextFactory
+	 */
+	public static RhinoformsContextFactory getContextFactory() {
+		synchronized (RhinoFormsMasterScopeFactory.class) {
+			if (!ContextFactory.hasExplicitGlobal()) {
+				ContextFactory.initGlobal(new RhinoformsContextFactory(RhinoformsProperties.getInstance()));
+			}
+		}
+		ContextFactory globalContextFactory = ContextFactory.getGlobal();
+		if (globalContextFactory instanceof RhinoformsContextFactory) {
+			return (RhinoformsContextFactory) globalContextFactory;
+		} else {
+			return new RhinoformsContextFactory(RhinoformsProperties.getInstance());
 		}
 	}
 	
-	NetUtil createNetUtil(JSMasterScope masterScope) {
-		return new NetUtilImpl(masterScope);
+	NetUtil createNetUtil(JSMasterScope masterScope, ConnectionFactory connectionFactory) {
+		return new NetUtilImpl(masterScope, connectionFactory, RhinoformsProperties.getInstance());
 	}
 
 	private void loadScript(String scriptPath, Scriptable scope, Context jsContext, ResourceLoader resourceLoader)
@@ -73,17 +95,4 @@ public class RhinoFormsMasterScopeFactory {
 		jsContext.evaluateReader(scope, new InputStreamReader(resourceAsStream), scriptPath, 1, null);
 	}
 	
-	private static final class DynamicScopeEnabledContextFactory extends ContextFactory {
-		
-		@Override
-		protected boolean hasFeature(Context cx, int featureIndex) {
-			if (featureIndex == Context.FEATURE_DYNAMIC_SCOPE) {
-				return true;
-			} else {
-				return super.hasFeature(cx, featureIndex);
-			}
-		}
-		
-	}
-	
 }
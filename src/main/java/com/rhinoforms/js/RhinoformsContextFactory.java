@@ -0,0 +1,185 @@
+package com.rhinoforms.js;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mozilla.javascript.Callable;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Scriptable;
+
+import com.rhinoforms.RhinoformsProperties;
+import com.rhinoforms.util.ClearableThreadLocal;
+
+/**
+ * Creates Rhino Contexts configured from Rhinoforms.properties.
+ * Dynamic scope is always enabled so that working scopes can use the sealed master scope as their prototype.
+ * 
+ * When context reuse is enabled {@link #enterContext()} enters the Context last used by the current thread rather
+ * than creating a new one. Always pair with {@link Context#exit()}. The reused Contexts are released by
+ * {@link ClearableThreadLocal#clearAll()} when the application stops.
+ * 
+ * Each top level script execution or function call can be limited to a number of instructions and a wall-clock time
+ * using {@link #setExecutionLimits(long, long)}. A script which goes over either limit is stopped with a
+ * {@link JSExecutionBudgetExceededError}.
+ */
+public class RhinoformsContextFactory extends ContextFactory {
+
+	private int optimizationLevel;
+	private int languageVersion;
+	private int instructionObserverThreshold;
+	private boolean contextReuse;
+	private long instructionBudget;
+	private long timeLimitMillis;
+	private final AtomicLong executionBudgetExceededCount = new AtomicLong();
+	private final ClearableThreadLocal<Context> threadContext = new ClearableThreadLocal<Context>() {
+		@Override
+		protected Context initialValue() {
+			Context context = makeContext();
+			onContextCreated(context);
+			return context;
+		}
+	};
+	private static final int DEFAULT_LIMITED_INSTRUCTION_OBSERVER_THRESHOLD = 10000;
+	private static final Object EXECUTION_BUDGET_KEY = ExecutionBudget.class;
+
+	public RhinoformsContextFactory(int optimizationLevel, int languageVersion, int instructionObserverThreshold, boolean contextReuse) {
+		if (!Context.isValidOptimizationLevel(optimizationLevel)) {
+			throw new IllegalArgumentException("Invalid JavaScript optimization level " + optimizationLevel + ", must be -1 to 9.");
+		}
+		if (!Context.isValidLanguageVersion(languageVersion)) {
+			throw new IllegalArgumentException("Invalid JavaScript language version " + languageVersion + ".");
+		}
+		this.optimizationLevel = optimizationLevel;
+		this.languageVersion = languageVersion;
+		this.instructionObserverThreshold = instructionObserverThreshold;
+		this.contextReuse = contextReuse;
+	}
+
+	public RhinoformsContextFactory(RhinoformsProperties rhinoformsProperties) {
+		this(rhinoformsProperties.getJsOptimizationLevel(), rhinoformsProperties.getJsLanguageVersion(), rhinoformsProperties
+				.getJsInstructionObserverThreshold(), rhinoformsProperties.isJsContextReuse());
+		setExecutionLimits(rhinoformsProperties.getJsInstructionBudget(), rhinoformsProperties.getJsTimeLimit());
+	}
+
+	/**
+	 * @param instructionBudget the maximum number of instructions for each top level call, 0 for no limit
+	 * @param timeLimitMillis the maximum time in milliseconds for each top level call, 0 for no limit
+	 */
+	public void setExecutionLimits(long instructionBudget, long timeLimitMillis) {
+		this.instructionBudget = instructionBudget;
+		this.timeLimitMillis = timeLimitMillis;
+	}
+
+	@Override
+	public Context enterContext() {
+		if (contextReuse && Context.getCurrentContext() == null) {
+			return enterContext(threadContext.get());
+		}
+		return super.enterContext();
+	}
+
+	@Override
+	protected Context makeContext() {
+		Context context = super.makeContext();
+		context.setOptimizationLevel(optimizationLevel);
+		context.setLanguageVersion(languageVersion);
+		int threshold = instructionObserverThreshold;
+		if (threshold <= 0 && isExecutionLimited()) {
+			threshold = DEFAULT_LIMITED_INSTRUCTION_OBSERVER_THRESHOLD;
+		}
+		if (threshold > 0) {
+			context.setInstructionObserverThreshold(threshold);
+			// Compiled scripts only call the observer if the calls are generated
+			context.setGenerateObserverCount(true);
+		}
+		return context;
+	}
+
+	@Override
+	protected Object doTopCall(Callable callable, Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+		if (isExecutionLimited()) {
+			cx.putThreadLocal(EXECUTION_BUDGET_KEY, new ExecutionBudget(System.currentTimeMillis()));
+		}
+		return super.doTopCall(callable, cx, scope, thisObj, args);
+	}
+
+	@Override
+	protected void observeInstructionCount(Context cx, int instructionCount) {
+		ExecutionBudget executionBudget = (ExecutionBudget) cx.getThreadLocal(EXECUTION_BUDGET_KEY);
+		if (executionBudget != null) {
+			executionBudget.instructionCount += instructionCount;
+			if (instructionBudget > 0 && executionBudget.instructionCount > instructionBudget) {
+				executionBudgetExceeded(executionBudget, "Script exceeded the instruction budget of " + instructionBudget + ".");
+			}
+			if (timeLimitMillis > 0 && System.currentTimeMillis() - executionBudget.startTime > timeLimitMillis) {
+				executionBudgetExceeded(executionBudget, "Script exceeded the time limit of " + timeLimitMillis + "ms.");
+			}
+		}
+	}
+
+	private void executionBudgetExceeded(ExecutionBudget executionBudget, String message) {
+		// The interpreter may observe again while unwinding, only count each top level call once
+		if (!executionBudget.exceeded) {
+			executionBudget.exceeded = true;
+			executionBudgetExceededCount.incrementAndGet();
+		}
+		throw new JSExecutionBudgetExceededError(message);
+	}
+
+	private boolean isExecutionLimited() {
+		return instructionBudget > 0 || timeLimitMillis > 0;
+	}
+
+	@Override
+	protected boolean hasFeature(Context cx, int featureIndex) {
+		if (featureIndex == Context.FEATURE_DYNAMIC_SCOPE) {
+			return true;
+		} else {
+			return super.hasFeature(cx, featureIndex);
+		}
+	}
+
+	public int getOptimizationLevel() {
+		return optimizationLevel;
+	}
+
+	public int getLanguageVersion() {
+		return languageVersion;
+	}
+
+	public int getInstructionObserverThreshold() {
+		return instructionObserverThreshold;
+	}
+
+	public boolean isContextReuse() {
+		return contextReuse;
+	}
+
+	public long getInstructionBudget() {
+		return instructionBudget;
+	}
+
+	public long getTimeLimitMillis() {
+		return timeLimitMillis;
+	}
+
+	/**
+	 * @return the number of scripts stopped for going over the instruction budget or time limit
+	 */
+	public long getExecutionBudgetExceededCount() {
+		return executionBudgetExceededCount.get();
+	}
+
+	private static class ExecutionBudget {
+
+		private long startTime;
+		private long instructionCount;
+		private boolean exceeded;
+
+		public ExecutionBudget(long startTime) {
+			this.startTime = startTime;
+		}
+
+	}
+
+}
@@ -0,0 +1,318 @@
+package com.rhinoforms.net;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Wraps a JDK connection so that {@link PooledConnectionFactory} knows when it is finished with.
+ * The host permit is released once the response stream is closed, the connection is disconnected or the request fails.
+ * Closing the response stream rather than disconnecting leaves the underlying socket in the JDK keep-alive cache.
+ */
+class PooledHttpURLConnection extends HttpURLConnection {
+
+	private HttpURLConnection connection;
+	private PooledConnectionFactory.HostMetrics hostMetrics;
+	private boolean gzipRequest;
+	private long startTime;
+	private boolean responseTimed;
+	private final AtomicBoolean released = new AtomicBoolean();
+
+	PooledHttpURLConnection(HttpURLConnection connection, PooledConnectionFactory.HostMetrics hostMetrics, boolean gzipRequest) {
+		super(connection.getURL());
+		this.connection = connection;
+		this.hostMetrics = hostMetrics;
+		this.gzipRequest = gzipRequest;
+		this.startTime = System.currentTimeMillis();
+	}
+
+	@Override
+	public void connect() throws IOException {
+		try {
+			connection.connect();
+		} catch (IOException e) {
+			failed();
+			throw e;
+		}
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		OutputStream outputStream;
+		try {
+			outputStream = connection.getOutputStream();
+		} catch (IOException e) {
+			failed();
+			throw e;
+		}
+		outputStream = new FilterOutputStream(outputStream) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				try {
+					out.write(b, off, len);
+				} catch (IOException e) {
+					failed();
+					throw e;
+				}
+			}
+		};
+		return gzipRequest ? new GZIPOutputStream(outputStream) : outputStream;
+	}
+
+	@Override
+	public int getResponseCode() throws IOException {
+		try {
+			int responseCode = connection.getResponseCode();
+			if (!responseTimed) {
+				responseTimed = true;
+				hostMetrics.responseReceived(System.currentTimeMillis() - startTime);
+			}
+			return responseCode;
+		} catch (IOException e) {
+			failed();
+			throw e;
+		}
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		InputStream inputStream;
+		try {
+			inputStream = connection.getInputStream();
+		} catch (IOException e) {
+			failed();
+			throw e;
+		}
+		return releaseOnClose(inputStream);
+	}
+
+	@Override
+	public InputStream getErrorStream() {
+		InputStream errorStream = connection.getErrorStream();
+		if (errorStream == null) {
+			release();
+			return null;
+		}
+		try {
+			return releaseOnClose(errorStream);
+		} catch (IOException e) {
+			release();
+			return null;
+		}
+	}
+
+	private InputStream releaseOnClose(InputStream inputStream) throws IOException {
+		InputStream releasingStream = new FilterInputStream(inputStream) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					release();
+				}
+			}
+		};
+		if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+			InputStream gzipStream = null;
+			try {
+				// Reads the gzip header, which fails for an empty or corrupt body
+				gzipStream = new GZIPInputStream(releasingStream);
+			} finally {
+				if (gzipStream == null) {
+					failed();
+					try {
+						inputStream.close();
+					} catch (IOException e) {
+						// Already failing
+					}
+				}
+			}
+			return gzipStream;
+		}
+		return releasingStream;
+	}
+
+	@Override
+	public void disconnect() {
+		connection.disconnect();
+		release();
+	}
+
+	private void failed() {
+		hostMetrics.failed();
+		release();
+	}
+
+	private void release() {
+		if (released.compareAndSet(false, true)) {
+			hostMetrics.release();
+		}
+	}
+
+	@Override
+	public boolean usingProxy() {
+		return connection.usingProxy();
+	}
+
+	@Override
+	public URL getURL() {
+		return connection.getURL();
+	}
+
+	@Override
+	public void setRequestMethod(String method) throws ProtocolException {
+		connection.setRequestMethod(method);
+	}
+
+	@Override
+	public String getRequestMethod() {
+		return connection.getRequestMethod();
+	}
+
+	@Override
+	public void setRequestProperty(String key, String value) {
+		connection.setRequestProperty(key, value);
+	}
+
+	@Override
+	public void addRequestProperty(String key, String value) {
+		connection.addRequestProperty(key, value);
+	}
+
+	@Override
+	public String getRequestProperty(String key) {
+		return connection.getRequestProperty(key);
+	}
+
+	@Override
+	public Map<String, List<String>> getRequestProperties() {
+		return connection.getRequestProperties();
+	}
+
+	@Override
+	public void setDoOutput(boolean doOutput) {
+		connection.setDoOutput(doOutput);
+	}
+
+	@Override
+	public boolean getDoOutput() {
+		return connection.getDoOutput();
+	}
+
+	@Override
+	public void setDoInput(boolean doInput) {
+		connection.setDoInput(doInput);
+	}
+
+	@Override
+	public boolean getDoInput() {
+		return connection.getDoInput();
+	}
+
+	@Override
+	public void setUseCaches(boolean useCaches) {
+		connection.setUseCaches(useCaches);
+	}
+
+	@Override
+	public boolean getUseCaches() {
+		return connection.getUseCaches();
+	}
+
+	@Override
+	public void setInstanceFollowRedirects(boolean followRedirects) {
+		connection.setInstanceFollowRedirects(followRedirects);
+	}
+
+	@Override
+	public boolean getInstanceFollowRedirects() {
+		return connection.getInstanceFollowRedirects();
+	}
+
+	@Override
+	public void setConnectTimeout(int timeout) {
+		connection.setConnectTimeout(timeout);
+	}
+
+	@Override
+	public int getConnectTimeout() {
+		return connection.getConnectTimeout();
+	}
+
+	@Override
+	public void setReadTimeout(int timeout) {
+		connection.setReadTimeout(timeout);
+	}
+
+	@Override
+	public int getReadTimeout() {
+		return connection.getReadTimeout();
+	}
+
+	@Override
+	public void setChunkedStreamingMode(int chunklen) {
+		connection.setChunkedStreamingMode(chunklen);
+	}
+
+	@Override
+	public void setFixedLengthStreamingMode(int contentLength) {
+		connection.setFixedLengthStreamingMode(contentLength);
+	}
+
+	@Override
+	public String getResponseMessage() throws IOException {
+		return connection.getResponseMessage();
+	}
+
+	@Override
+	public String getContentType() {
+		return connection.getContentType();
+	}
+
+	@Override
+	public String getContentEncoding() {
+		return connection.getContentEncoding();
+	}
+
+	@Override
+	public int getContentLength() {
+		// The decompressed length is not known
+		return "gzip".equalsIgnoreCase(connection.getContentEncoding()) ? -1 : connection.getContentLength();
+	}
+
+	@Override
+	public String getHeaderField(String name) {
+		return connection.getHeaderField(name);
+	}
+
+	@Override
+	public String getHeaderField(int n) {
+		return connection.getHeaderField(n);
+	}
+
+	@Override
+	public String getHeaderFieldKey(int n) {
+		return connection.getHeaderFieldKey(n);
+	}
+
+	@Override
+	public Map<String, List<String>> getHeaderFields() {
+		return connection.getHeaderFields();
+	}
+
+	@Override
+	public String toString() {
+		return connection.toString();
+	}
+
+}
@@ -0,0 +1,7 @@
+package com.rhinoforms.resourceloader;
+
+public interface FormResourcesChangedListener {
+
+	void formResourcesChanged();
+	
+}
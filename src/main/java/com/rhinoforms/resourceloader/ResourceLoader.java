@@ -11,4 +11,6 @@ public interface ResourceLoader {
 
 	void formResourcesChanged() throws ResourceLoaderException;
 	
+	void addFormResourcesChangedListener(FormResourcesChangedListener listener);
+	
 }
@@ -2,15 +2,19 @@ package com.rhinoforms.resourceloader;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class ResourceLoaderImpl implements ResourceLoader {
 
 	private SingleSourceResourceLoader webappResourceLoader;
 	private SingleSourceResourceLoader formResourceLoader;
+	private List<FormResourcesChangedListener> formResourcesChangedListeners;
 
 	public ResourceLoaderImpl(SingleSourceResourceLoader webappResourceLoader, SingleSourceResourceLoader formResourceLoader) throws ResourceLoaderException {
 		this.webappResourceLoader = webappResourceLoader;
 		this.formResourceLoader = formResourceLoader;
+		this.formResourcesChangedListeners = new CopyOnWriteArrayList<FormResourcesChangedListener>();
 	}
 
 	@Override
@@ -28,6 +32,14 @@ public class ResourceLoaderImpl implements ResourceLoader {
 		if (formResourceLoader instanceof CachingResourceLoader) {
 			((CachingResourceLoader)formResourceLoader).resourcesChanged();
 		}
+		for (FormResourcesChangedListener listener : formResourcesChangedListeners) {
+			listener.formResourcesChanged();
+		}
+	}
+	
+	@Override
+	public void addFormResourcesChangedListener(FormResourcesChangedListener listener) {
+		formResourcesChangedListeners.add(listener);
 	}
 
 }
@@ -0,0 +1,64 @@
+package com.rhinoforms.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * A value for each thread, like a ThreadLocal, which can be released for every thread at once with {@link #clearAll()}.
+ *
+ * Container threads outlive the webapp. A plain ThreadLocal holding an object loaded by the webapp keeps the webapp
+ * classloader alive after undeploy until every thread which used it has ended. Here a thread only holds a weak
+ * reference to its value, the values are held by this object, so nothing held by the container threads keeps the
+ * webapp loaded. {@link #clearAll()} releases the values straight away when the application stops.
+ */
+public abstract class ClearableThreadLocal<T> {
+
+	private static final Set<ClearableThreadLocal<?>> instances = Collections.synchronizedSet(Collections
+			.newSetFromMap(new WeakHashMap<ClearableThreadLocal<?>, Boolean>()));
+
+	private final ThreadLocal<WeakReference<T>> threadValue = new ThreadLocal<WeakReference<T>>();
+	private final Map<Thread, T> values = Collections.synchronizedMap(new WeakHashMap<Thread, T>());
+
+	public ClearableThreadLocal() {
+		instances.add(this);
+	}
+
+	/**
+	 * @return the value for the current thread, created with {@link #initialValue()} on first use
+	 */
+	public T get() {
+		WeakReference<T> reference = threadValue.get();
+		T value = reference != null ? reference.get() : null;
+		if (value == null) {
+			value = initialValue();
+			values.put(Thread.currentThread(), value);
+			threadValue.set(new WeakReference<T>(value));
+		}
+		return value;
+	}
+
+	protected abstract T initialValue();
+
+	/**
+	 * Releases the values of all threads. A thread which uses this again afterwards gets a new value.
+	 */
+	public void clear() {
+		values.clear();
+		threadValue.remove();
+	}
+
+	/**
+	 * Releases the values of all threads of every instance, called when the application stops.
+	 */
+	public static void clearAll() {
+		synchronized (instances) {
+			for (ClearableThreadLocal<?> instance : instances) {
+				instance.clear();
+			}
+		}
+	}
+
+}
@@ -8,7 +8,7 @@ import java.io.OutputStream;
 public class StreamUtils {
 
 	public void copyInputStreamToOutputStream(InputStream inputStream, OutputStream outputStream) throws IOException {
-		byte[] buf = new byte[1024];
+		byte[] buf = new byte[8192];
 		int len;
 		while ((len = inputStream.read(buf)) != -1) {
 			outputStream.write(buf, 0, len);
@@ -0,0 +1,289 @@
+package com.rhinoforms.xml;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+import com.rhinoforms.util.ClearableThreadLocal;
+
+/**
+ * Writes a DOM Document as compact binary rather than XML text, used to serialise the Data Document of a flow.
+ *
+ * Each node is a one byte tag followed by its content. Element and attribute names and namespace URIs are written once
+ * and afterwards referenced by number, text is written as length prefixed UTF-8. Nodes are recreated the way they were
+ * created originally, with or without namespaces, so the same XPaths work on the document read back.
+ * Document type nodes are not written. Thread safe, documents are created with a DocumentBuilder per thread.
+ */
+public class BinaryDocumentCodec {
+
+	private static final int END = 0;
+	private static final int ELEMENT = 1;
+	private static final int ELEMENT_NS = 2;
+	private static final int TEXT = 3;
+	private static final int CDATA = 4;
+	private static final int COMMENT = 5;
+	private static final int PROCESSING_INSTRUCTION = 6;
+
+	private static final int ATTRIBUTE = 0;
+	private static final int ATTRIBUTE_NS = 1;
+
+	// Name references: 0 is null, 1 is followed by a new name, 2 and above refer to a name already written
+	private static final int NULL_NAME = 0;
+	private static final int NEW_NAME = 1;
+	private static final int FIRST_NAME_REFERENCE = 2;
+
+	private static final String UTF_8 = "UTF-8";
+
+	// Released by ClearableThreadLocal.clearAll() when the application stops
+	private final ClearableThreadLocal<DocumentBuilder> documentBuilder = new ClearableThreadLocal<DocumentBuilder>() {
+		@Override
+		protected DocumentBuilder initialValue() {
+			try {
+				return DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			} catch (ParserConfigurationException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	};
+
+	/**
+	 * @param document the document to write, may be null
+	 */
+	public void writeDocument(Document document, DataOutput out) throws IOException {
+		out.writeBoolean(document != null);
+		if (document == null) {
+			return;
+		}
+		Map<String, Integer> names = new HashMap<String, Integer>();
+		Node node = document.getFirstChild();
+		while (node != null) {
+			boolean isElement = writeNode(node, names, out);
+			if (isElement && node.hasChildNodes()) {
+				node = node.getFirstChild();
+				continue;
+			}
+			if (isElement) {
+				out.writeByte(END);
+			}
+			// Climb back up until there is a sibling to move on to
+			while (node != document && node.getNextSibling() == null) {
+				node = node.getParentNode();
+				if (node != document) {
+					out.writeByte(END);
+				}
+			}
+			node = node == document ? null : node.getNextSibling();
+		}
+		out.writeByte(END);
+	}
+
+	/**
+	 * @return the document read, or null if a null document was written
+	 */
+	public Document readDocument(DataInput in) throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+		Document document = documentBuilder.get().newDocument();
+		List<String> names = new ArrayList<String>();
+		Node parent = document;
+		while (true) {
+			int tag = in.readByte();
+			switch (tag) {
+			case END:
+				if (parent == document) {
+					return document;
+				}
+				parent = parent.getParentNode();
+				break;
+			case ELEMENT:
+			case ELEMENT_NS:
+				Element element;
+				if (tag == ELEMENT_NS) {
+					String namespaceURI = readName(names, in);
+					element = document.createElementNS(namespaceURI, readName(names, in));
+				} else {
+					element = document.createElement(readName(names, in));
+				}
+				int attributeCount = readLength(in);
+				for (int i = 0; i < attributeCount; i++) {
+					if (in.readByte() == ATTRIBUTE_NS) {
+						String namespaceURI = readName(names, in);
+						element.setAttributeNS(namespaceURI, readName(names, in), readText(in));
+					} else {
+						element.setAttribute(readName(names, in), readText(in));
+					}
+				}
+				parent.appendChild(element);
+				parent = element;
+				break;
+			case TEXT:
+				parent.appendChild(document.createTextNode(readText(in)));
+				break;
+			case CDATA:
+				parent.appendChild(document.createCDATASection(readText(in)));
+				break;
+			case COMMENT:
+				parent.appendChild(document.createComment(readText(in)));
+				break;
+			case PROCESSING_INSTRUCTION:
+				String target = readText(in);
+				parent.appendChild(document.createProcessingInstruction(target, readText(in)));
+				break;
+			default:
+				throw new IOException("Unknown node tag " + tag + " in binary document.");
+			}
+		}
+	}
+
+	/**
+	 * @return true if the node is an element, the caller writes its children and end tag
+	 */
+	private boolean writeNode(Node node, Map<String, Integer> names, DataOutput out) throws IOException {
+		switch (node.getNodeType()) {
+		case Node.ELEMENT_NODE:
+			if (node.getLocalName() != null) {
+				out.writeByte(ELEMENT_NS);
+				writeName(node.getNamespaceURI(), names, out);
+			} else {
+				out.writeByte(ELEMENT);
+			}
+			writeName(node.getNodeName(), names, out);
+			NamedNodeMap attributes = node.getAttributes();
+			int attributeCount = attributes.getLength();
+			writeLength(attributeCount, out);
+			for (int i = 0; i < attributeCount; i++) {
+				Attr attribute = (Attr) attributes.item(i);
+				if (attribute.getLocalName() != null) {
+					out.writeByte(ATTRIBUTE_NS);
+					writeName(attribute.getNamespaceURI(), names, out);
+				} else {
+					out.writeByte(ATTRIBUTE);
+				}
+				writeName(attribute.getName(), names, out);
+				writeText(attribute.getValue(), out);
+			}
+			return true;
+		case Node.TEXT_NODE:
+			out.writeByte(TEXT);
+			writeText(node.getNodeValue(), out);
+			break;
+		case Node.CDATA_SECTION_NODE:
+			out.writeByte(CDATA);
+			writeText(node.getNodeValue(), out);
+			break;
+		case Node.COMMENT_NODE:
+			out.writeByte(COMMENT);
+			writeText(node.getNodeValue(), out);
+			break;
+		case Node.PROCESSING_INSTRUCTION_NODE:
+			ProcessingInstruction processingInstruction = (ProcessingInstruction) node;
+			out.writeByte(PROCESSING_INSTRUCTION);
+			writeText(processingInstruction.getTarget(), out);
+			writeText(processingInstruction.getData(), out);
+			break;
+		case Node.ENTITY_REFERENCE_NODE:
+			// Written as the text it stands for
+			out.writeByte(TEXT);
+			writeText(node.getTextContent(), out);
+			break;
+		}
+		return false;
+	}
+
+	private void writeName(String name, Map<String, Integer> names, DataOutput out) throws IOException {
+		if (name == null) {
+			writeLength(NULL_NAME, out);
+			return;
+		}
+		Integer index = names.get(name);
+		if (index != null) {
+			writeLength(index + FIRST_NAME_REFERENCE, out);
+		} else {
+			names.put(name, names.size());
+			writeLength(NEW_NAME, out);
+			writeText(name, out);
+		}
+	}
+
+	private String readName(List<String> names, DataInput in) throws IOException {
+		int reference = readLength(in);
+		if (reference == NULL_NAME) {
+			return null;
+		} else if (reference == NEW_NAME) {
+			String name = readText(in);
+			names.add(name);
+			return name;
+		} else {
+			int index = reference - FIRST_NAME_REFERENCE;
+			if (index >= names.size()) {
+				throw new IOException("Unknown name reference " + reference + " in binary document.");
+			}
+			return names.get(index);
+		}
+	}
+
+	/**
+	 * Writes a string as its UTF-8 length followed by the UTF-8 bytes. Unlike DataOutput.writeUTF there is no 64KB limit.
+	 *
+	 * @param text may be null
+	 */
+	public static void writeText(String text, DataOutput out) throws IOException {
+		if (text == null) {
+			writeLength(0, out);
+		} else {
+			byte[] bytes = text.getBytes(UTF_8);
+			writeLength(bytes.length + 1, out);
+			out.write(bytes);
+		}
+	}
+
+	public static String readText(DataInput in) throws IOException {
+		int length = readLength(in) - 1;
+		if (length == -1) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * Writes a non-negative int using one byte for each 7 bits.
+	 */
+	public static void writeLength(int length, DataOutput out) throws IOException {
+		while ((length & ~0x7F) != 0) {
+			out.writeByte((length & 0x7F) | 0x80);
+			length >>>= 7;
+		}
+		out.writeByte(length);
+	}
+
+	public static int readLength(DataInput in) throws IOException {
+		int length = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readByte();
+			length |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return length;
+			}
+		}
+		throw new IOException("Malformed length in binary document.");
+	}
+
+}
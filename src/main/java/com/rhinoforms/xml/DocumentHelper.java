@@ -2,6 +2,7 @@ package com.rhinoforms.xml;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Collections;
@@ -14,7 +15,10 @@ import java.util.regex.Pattern;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Result;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
@@ -23,7 +27,6 @@ import javax.xml.transform.stream.StreamResult;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,15 +38,17 @@ import com.rhinoforms.flow.InputPojo;
 
 public class DocumentHelper {
 
-	private XPathFactory xPathFactory;
+	private XPathExpressionCache xPathExpressionCache;
 	private DocumentBuilder documentBuilder;
+	private SAXParserFactory saxParserFactory;
 
 	final Logger logger = LoggerFactory.getLogger(DocumentHelper.class);
 
 	public DocumentHelper() {
-		this.xPathFactory = XPathFactory.newInstance();
+		this.xPathExpressionCache = XPathExpressionCache.getInstance();
 		try {
 			documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			saxParserFactory = SAXParserFactory.newInstance();
 		} catch (ParserConfigurationException e) {
 			throw new RuntimeException(e);
 		}
@@ -62,8 +67,7 @@ public class DocumentHelper {
 		try {
 			for (InputPojo inputPojo : inputsToClear) {
 				xPathString = getXPathStringForInput(docBase, inputPojo);
-				XPathExpression xPath = newXPath(xPathString);
-				NodeList nodeList = lookup(dataDocument, xPath);
+				NodeList nodeList = lookup(dataDocument, xPathString);
 				if (nodeList.getLength() > 0) {
 					Node item = nodeList.item(0);
 					Node parentNode = item.getParentNode();
@@ -97,8 +101,7 @@ public class DocumentHelper {
 			if (group.equals("next")) {
 				String xpathToCount = xpath.substring(0, xpath.indexOf("[next]"));
 				try {
-					XPathExpression xpathToCountExpression = newXPath(xpathToCount);
-					NodeList list = lookup(document, xpathToCountExpression);
+					NodeList list = lookup(document, xpathToCount);
 					int listLength = list.getLength();
 					xpath = xpath.replace("[next]", "[" + ++listLength + "]");
 				} catch (XPathExpressionException e) {
@@ -123,8 +126,7 @@ public class DocumentHelper {
 
 	public Node lookupOrCreateNode(Document dataDocument, String xPathString) throws FlowExceptionXPath {
 		try {
-			XPathExpression fullXPathExpression = newXPath(xPathString);
-			NodeList fullPathNodeList = lookup(dataDocument, fullXPathExpression);
+			NodeList fullPathNodeList = lookup(dataDocument, xPathString);
 			if (fullPathNodeList.getLength() == 1) {
 				return fullPathNodeList.item(0);
 			} else if (fullPathNodeList.getLength() > 1) {
@@ -148,7 +150,14 @@ public class DocumentHelper {
 			throws XPathExpressionException, FlowExceptionXPath {
 		String nodeToFindOrCreate = xPathPartsStack.pop();
 		progressiveXpath += "/" + nodeToFindOrCreate;
-		NodeList nodeSet = lookup(doc, newXPath(progressiveXpath));
+		NodeList nodeSet;
+		SimpleXPath simpleStep = SimpleXPath.parse(nodeToFindOrCreate);
+		if (simpleStep != null) {
+			// Only the children of the current node need checking
+			nodeSet = simpleStep.select(currentNode);
+		} else {
+			nodeSet = lookup(doc, newXPath(progressiveXpath));
+		}
 		Node nextNode;
 		if (nodeSet.getLength() == 0) {
 			logger.debug("Creating node at {}", progressiveXpath);
@@ -178,7 +187,12 @@ public class DocumentHelper {
 	}
 
 	public NodeList lookup(Document dataDocument, String xPathExpression) throws XPathExpressionException {
-		return lookup(dataDocument, newXPath(xPathExpression));
+		SimpleXPath simpleXPath = SimpleXPath.parse(xPathExpression);
+		if (simpleXPath != null) {
+			return simpleXPath.select(dataDocument);
+		} else {
+			return lookup(dataDocument, newXPath(xPathExpression));
+		}
 	}
 
 	private NodeList lookup(Document dataDocument, XPathExpression fullXPathExpression) throws XPathExpressionException {
@@ -186,7 +200,7 @@ public class DocumentHelper {
 	}
 
 	private XPathExpression newXPath(String xPathString) throws XPathExpressionException {
-		return xPathFactory.newXPath().compile(xPathString);
+		return xPathExpressionCache.compile(xPathString);
 	}
 
 	public String documentToString(Node document) throws TransformerException {
@@ -211,7 +225,18 @@ public class DocumentHelper {
 		documentToWriter(document, writer, true, omitXmlDeclaration);
 	}
 
+	/**
+	 * Serialises the document as UTF-8 without building a String, the stream is not closed.
+	 */
+	public void documentToStream(Node document, OutputStream outputStream, boolean omitXmlDeclaration) throws TransformerException {
+		documentToResult(document, new StreamResult(outputStream), false, omitXmlDeclaration);
+	}
+
 	private void documentToWriter(Node document, Writer writer, boolean indent, boolean omitXmlDeclaration) throws TransformerException {
+		documentToResult(document, new StreamResult(writer), indent, omitXmlDeclaration);
+	}
+
+	private void documentToResult(Node document, Result result, boolean indent, boolean omitXmlDeclaration) throws TransformerException {
 		TransformerFactory transFactory = TransformerFactory.newInstance();
 		Transformer transformer = transFactory.newTransformer();
 		if (omitXmlDeclaration) {
@@ -221,7 +246,7 @@ public class DocumentHelper {
 			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
 			transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
 		}
-		transformer.transform(new DOMSource(document), new StreamResult(writer));
+		transformer.transform(new DOMSource(document), result);
 	}
 
 	public void deleteElements(String xpath, Document dataDocument) throws XPathExpressionException {
@@ -249,6 +274,21 @@ public class DocumentHelper {
 		}
 	}
 	
+	/**
+	 * Parses the stream and appends the nodes to the parent without building a separate document.
+	 * Nodes are created without namespace support, the same as {@link #streamToDocument(InputStream)}.
+	 */
+	public void streamToNode(InputStream inputStream, Node parent) throws DocumentHelperException {
+		try {
+			SAXParser saxParser = saxParserFactory.newSAXParser();
+			DomBuildingHandler domBuildingHandler = new DomBuildingHandler(parent);
+			saxParser.setProperty("http://xml.org/sax/properties/lexical-handler", domBuildingHandler);
+			saxParser.parse(inputStream, domBuildingHandler);
+		} catch (Exception e) {
+			throw new DocumentHelperException("Failed to parse input stream.", e);
+		}
+	}
+	
 	public Document stringToDocument(String inputString) throws DocumentHelperException {
 		return streamToDocument(new ByteArrayInputStream(inputString.getBytes()));
 	}
@@ -0,0 +1,106 @@
+package com.rhinoforms.xml;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+import org.xml.sax.Attributes;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Builds DOM nodes from SAX events under an existing node.
+ * Nodes are created the same way as by a DocumentBuilder which is not namespace aware, so the result can be looked up
+ * with the same XPaths as a parsed document.
+ */
+class DomBuildingHandler extends DefaultHandler implements LexicalHandler {
+
+	private Document document;
+	private Node currentNode;
+	private boolean inCdata;
+	private boolean inDtd;
+
+	DomBuildingHandler(Node parent) {
+		this.document = parent.getNodeType() == Node.DOCUMENT_NODE ? (Document) parent : parent.getOwnerDocument();
+		this.currentNode = parent;
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes attributes) {
+		Element element = document.createElement(qName);
+		for (int i = 0; i < attributes.getLength(); i++) {
+			element.setAttribute(attributes.getQName(i), attributes.getValue(i));
+		}
+		currentNode.appendChild(element);
+		currentNode = element;
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) {
+		currentNode = currentNode.getParentNode();
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) {
+		String text = new String(ch, start, length);
+		Node lastChild = currentNode.getLastChild();
+		if (inCdata) {
+			if (lastChild != null && lastChild.getNodeType() == Node.CDATA_SECTION_NODE) {
+				((Text) lastChild).appendData(text);
+			} else {
+				currentNode.appendChild(document.createCDATASection(text));
+			}
+		} else if (lastChild != null && lastChild.getNodeType() == Node.TEXT_NODE) {
+			// The parser may split text into several events
+			((Text) lastChild).appendData(text);
+		} else {
+			currentNode.appendChild(document.createTextNode(text));
+		}
+	}
+
+	@Override
+	public void ignorableWhitespace(char[] ch, int start, int length) {
+		characters(ch, start, length);
+	}
+
+	@Override
+	public void processingInstruction(String target, String data) {
+		currentNode.appendChild(document.createProcessingInstruction(target, data));
+	}
+
+	@Override
+	public void comment(char[] ch, int start, int length) {
+		if (!inDtd) {
+			currentNode.appendChild(document.createComment(new String(ch, start, length)));
+		}
+	}
+
+	@Override
+	public void startCDATA() {
+		inCdata = true;
+	}
+
+	@Override
+	public void endCDATA() {
+		inCdata = false;
+	}
+
+	@Override
+	public void startDTD(String name, String publicId, String systemId) {
+		inDtd = true;
+	}
+
+	@Override
+	public void endDTD() {
+		inDtd = false;
+	}
+
+	@Override
+	public void startEntity(String name) {
+	}
+
+	@Override
+	public void endEntity(String name) {
+	}
+
+}
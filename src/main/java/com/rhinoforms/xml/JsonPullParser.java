@@ -0,0 +1,326 @@
+package com.rhinoforms.xml;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads JSON one token at a time without building the whole structure in memory.
+ * As lenient as the json-lib parser previously used for submission responses: strings may use single quotes, names
+ * may be unquoted, comments and trailing commas are ignored.
+ */
+class JsonPullParser {
+
+	enum Token {
+		BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, TRUE, FALSE, NULL, END_DOCUMENT
+	}
+
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_OBJECT = 2;
+	private static final int NONEMPTY_OBJECT = 3;
+	private static final int DANGLING_NAME = 4;
+	private static final int EMPTY_ARRAY = 5;
+	private static final int NONEMPTY_ARRAY = 6;
+
+	private Reader reader;
+	private char[] buffer = new char[8192];
+	private int position;
+	private int limit;
+	private long offset;
+	private List<Integer> stack;
+	private StringBuilder text = new StringBuilder();
+
+	JsonPullParser(Reader reader) {
+		this.reader = reader;
+		this.stack = new ArrayList<Integer>();
+		stack.add(EMPTY_DOCUMENT);
+	}
+
+	/**
+	 * @return the next token, the text of NAME, STRING and NUMBER tokens is available from {@link #getText()}
+	 */
+	Token next() throws IOException, JsonToXmlException {
+		int top = stack.size() - 1;
+		int context = stack.get(top);
+		int c = skipWhitespace();
+		switch (context) {
+		case EMPTY_DOCUMENT:
+			stack.set(top, NONEMPTY_DOCUMENT);
+			return readValue(c);
+		case NONEMPTY_DOCUMENT:
+			if (c != -1) {
+				throw syntaxError("Unexpected content after end of JSON");
+			}
+			return Token.END_DOCUMENT;
+		case EMPTY_OBJECT:
+		case NONEMPTY_OBJECT:
+			if (context == NONEMPTY_OBJECT && c == ',') {
+				position++;
+				c = skipWhitespace();
+			} else if (context == NONEMPTY_OBJECT && c != '}') {
+				throw syntaxError("Expected ',' or '}'");
+			}
+			if (c == '}') {
+				position++;
+				stack.remove(top);
+				return Token.END_OBJECT;
+			}
+			readName(c);
+			c = skipWhitespace();
+			if (c == ':') {
+				position++;
+			} else if (c == '=') {
+				position++;
+				if (fill() && buffer[position] == '>') {
+					position++;
+				}
+			} else {
+				throw syntaxError("Expected ':'");
+			}
+			stack.set(top, DANGLING_NAME);
+			return Token.NAME;
+		case DANGLING_NAME:
+			stack.set(top, NONEMPTY_OBJECT);
+			return readValue(c);
+		case EMPTY_ARRAY:
+		case NONEMPTY_ARRAY:
+			if (context == NONEMPTY_ARRAY && c == ',') {
+				position++;
+				c = skipWhitespace();
+			} else if (context == NONEMPTY_ARRAY && c != ']') {
+				throw syntaxError("Expected ',' or ']'");
+			}
+			if (c == ']') {
+				position++;
+				stack.remove(top);
+				return Token.END_ARRAY;
+			}
+			stack.set(top, NONEMPTY_ARRAY);
+			return readValue(c);
+		default:
+			throw new IllegalStateException("Unknown context " + context);
+		}
+	}
+
+	String getText() {
+		return text.toString();
+	}
+
+	private Token readValue(int c) throws IOException, JsonToXmlException {
+		switch (c) {
+		case -1:
+			throw syntaxError("Unexpected end of JSON");
+		case '{':
+			position++;
+			stack.add(EMPTY_OBJECT);
+			return Token.BEGIN_OBJECT;
+		case '[':
+			position++;
+			stack.add(EMPTY_ARRAY);
+			return Token.BEGIN_ARRAY;
+		case '"':
+		case '\'':
+			position++;
+			readString((char) c);
+			return Token.STRING;
+		default:
+			readLiteral();
+			String literal = getText();
+			if (literal.equals("true")) {
+				return Token.TRUE;
+			} else if (literal.equals("false")) {
+				return Token.FALSE;
+			} else if (literal.equals("null")) {
+				return Token.NULL;
+			} else if (isNumber(literal)) {
+				return Token.NUMBER;
+			}
+			throw syntaxError("Unquoted string '" + literal + "'");
+		}
+	}
+
+	private void readName(int c) throws IOException, JsonToXmlException {
+		if (c == '"' || c == '\'') {
+			position++;
+			readString((char) c);
+		} else if (c == -1) {
+			throw syntaxError("Unexpected end of JSON");
+		} else {
+			readLiteral();
+			if (text.length() == 0) {
+				throw syntaxError("Expected name");
+			}
+		}
+	}
+
+	private void readString(char quote) throws IOException, JsonToXmlException {
+		text.setLength(0);
+		while (true) {
+			if (!fill()) {
+				throw syntaxError("Unterminated string");
+			}
+			char c = buffer[position++];
+			if (c == quote) {
+				return;
+			} else if (c == '\\') {
+				if (!fill()) {
+					throw syntaxError("Unterminated string");
+				}
+				char escaped = buffer[position++];
+				switch (escaped) {
+				case 'b':
+					text.append('\b');
+					break;
+				case 'f':
+					text.append('\f');
+					break;
+				case 'n':
+					text.append('\n');
+					break;
+				case 'r':
+					text.append('\r');
+					break;
+				case 't':
+					text.append('\t');
+					break;
+				case 'u':
+					int value = 0;
+					for (int i = 0; i < 4; i++) {
+						if (!fill()) {
+							throw syntaxError("Unterminated string");
+						}
+						int digit = Character.digit(buffer[position++], 16);
+						if (digit == -1) {
+							throw syntaxError("Invalid unicode escape");
+						}
+						value = (value << 4) + digit;
+					}
+					text.append((char) value);
+					break;
+				default:
+					text.append(escaped);
+				}
+			} else {
+				text.append(c);
+			}
+		}
+	}
+
+	private void readLiteral() throws IOException {
+		text.setLength(0);
+		while (fill()) {
+			char c = buffer[position];
+			if (Character.isWhitespace(c) || c == ',' || c == ':' || c == '=' || c == '{' || c == '}' || c == '['
+					|| c == ']' || c == '"' || c == '\'' || c == '/') {
+				return;
+			}
+			text.append(c);
+			position++;
+		}
+	}
+
+	private boolean isNumber(String literal) {
+		int i = 0;
+		int length = literal.length();
+		if (i < length && (literal.charAt(i) == '-' || literal.charAt(i) == '+')) {
+			i++;
+		}
+		int digits = 0;
+		while (i < length && Character.isDigit(literal.charAt(i))) {
+			i++;
+			digits++;
+		}
+		if (i < length && literal.charAt(i) == '.') {
+			i++;
+			while (i < length && Character.isDigit(literal.charAt(i))) {
+				i++;
+				digits++;
+			}
+		}
+		if (digits == 0) {
+			return false;
+		}
+		if (i < length && (literal.charAt(i) == 'e' || literal.charAt(i) == 'E')) {
+			i++;
+			if (i < length && (literal.charAt(i) == '-' || literal.charAt(i) == '+')) {
+				i++;
+			}
+			int exponentDigits = 0;
+			while (i < length && Character.isDigit(literal.charAt(i))) {
+				i++;
+				exponentDigits++;
+			}
+			if (exponentDigits == 0) {
+				return false;
+			}
+		}
+		return i == length;
+	}
+
+	/**
+	 * @return the next character which is not whitespace or part of a comment, without consuming it, or -1 at the end
+	 */
+	private int skipWhitespace() throws IOException, JsonToXmlException {
+		while (fill()) {
+			char c = buffer[position];
+			if (Character.isWhitespace(c)) {
+				position++;
+			} else if (c == '/') {
+				position++;
+				if (!fill()) {
+					throw syntaxError("Unexpected end of JSON");
+				}
+				char next = buffer[position++];
+				if (next == '/') {
+					while (fill() && buffer[position] != '\n' && buffer[position] != '\r') {
+						position++;
+					}
+				} else if (next == '*') {
+					boolean star = false;
+					while (true) {
+						if (!fill()) {
+							throw syntaxError("Unterminated comment");
+						}
+						char commentChar = buffer[position++];
+						if (star && commentChar == '/') {
+							break;
+						}
+						star = commentChar == '*';
+					}
+				} else {
+					throw syntaxError("Unexpected character '/'");
+				}
+			} else {
+				return c;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return false if there are no more characters
+	 */
+	private boolean fill() throws IOException {
+		if (position < limit) {
+			return true;
+		}
+		offset += limit;
+		position = 0;
+		limit = 0;
+		int read;
+		while ((read = reader.read(buffer)) == 0) {
+		}
+		if (read == -1) {
+			return false;
+		}
+		limit = read;
+		return true;
+	}
+
+	private JsonToXmlException syntaxError(String message) {
+		return new JsonToXmlException(message + " at character " + (offset + position));
+	}
+
+}
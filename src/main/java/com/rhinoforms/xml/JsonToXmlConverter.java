@@ -0,0 +1,257 @@
+package com.rhinoforms.xml;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.rhinoforms.xml.JsonPullParser.Token;
+
+/**
+ * Converts JSON to XML elements while it is read, the elements are created directly in the target document.
+ *
+ * The XML is the same as produced by the json-lib XMLSerializer which was used before: the root element is 'o' for an
+ * object or 'a' for an array unless a root name is given, array items are 'e' elements, members are ordered by name,
+ * names starting with '@' become attributes, '#text' becomes text content and a repeated name becomes an array.
+ * With type hints enabled elements are marked with class="object", class="array" or type="string|number|boolean".
+ */
+public class JsonToXmlConverter {
+
+	private boolean typeHintsEnabled;
+	private String rootName;
+
+	private static final String ARRAY_ITEM_NAME = "e";
+	private static final String TEXT_NAME = "#text";
+	private static final String ATTRIBUTE_PREFIX = "@";
+
+	/**
+	 * @param typeHintsEnabled add class and type attributes
+	 * @param rootName the name of the root element or null for the default
+	 */
+	public JsonToXmlConverter(boolean typeHintsEnabled, String rootName) {
+		this.typeHintsEnabled = typeHintsEnabled;
+		this.rootName = rootName;
+	}
+
+	/**
+	 * Reads a JSON object or array and creates the equivalent element in the document.
+	 *
+	 * @return the root element, not yet appended to the document
+	 */
+	public Element convert(Reader reader, Document document) throws IOException, JsonToXmlException {
+		JsonPullParser parser = new JsonPullParser(reader);
+		Token token = parser.next();
+		Element rootElement;
+		if (token == Token.BEGIN_OBJECT) {
+			rootElement = createElement(document, rootName != null ? rootName : "o");
+			writeObjectMembers(parser, rootElement);
+		} else if (token == Token.BEGIN_ARRAY) {
+			rootElement = createElement(document, rootName != null ? rootName : "a");
+			writeArrayItems(parser, rootElement);
+		} else {
+			throw new JsonToXmlException("JSON must be an object or an array.");
+		}
+		if (parser.next() != Token.END_DOCUMENT) {
+			throw new JsonToXmlException("Unexpected content after end of JSON.");
+		}
+		return rootElement;
+	}
+
+	private void writeObjectMembers(JsonPullParser parser, Element element) throws IOException, JsonToXmlException {
+		Document document = element.getOwnerDocument();
+		Map<String, Element> members = new HashMap<String, Element>();
+		TreeMap<String, Node> memberOrder = new TreeMap<String, Node>();
+		Set<Element> arrays = new HashSet<Element>();
+
+		Token token;
+		while ((token = parser.next()) != Token.END_OBJECT) {
+			String name = parser.getText();
+			token = parser.next();
+			if (name.startsWith(ATTRIBUTE_PREFIX)) {
+				setAttribute(element, name.substring(ATTRIBUTE_PREFIX.length()), readSimpleValue(parser, token, name));
+			} else if (name.equals(TEXT_NAME)) {
+				writeText(parser, token, element, memberOrder);
+			} else {
+				Element existing = members.get(name);
+				if (existing == null) {
+					Element child = createElement(document, name);
+					if (writeValue(parser, token, child) == Token.BEGIN_ARRAY) {
+						arrays.add(child);
+					}
+					members.put(name, child);
+					insertInOrder(element, memberOrder, name, child);
+				} else {
+					// A repeated name is accumulated into an array
+					Element array = existing;
+					if (!arrays.contains(existing)) {
+						array = createElement(document, name);
+						addTypeHint(array, "class", "array");
+						element.replaceChild(array, existing);
+						array.appendChild(document.renameNode(existing, null, ARRAY_ITEM_NAME));
+						arrays.add(array);
+						members.put(name, array);
+						memberOrder.put(name, array);
+					}
+					Element item = createElement(document, ARRAY_ITEM_NAME);
+					array.appendChild(item);
+					writeValue(parser, token, item);
+				}
+			}
+		}
+	}
+
+	private void writeArrayItems(JsonPullParser parser, Element element) throws IOException, JsonToXmlException {
+		Token token;
+		while ((token = parser.next()) != Token.END_ARRAY) {
+			Element item = createElement(element.getOwnerDocument(), ARRAY_ITEM_NAME);
+			element.appendChild(item);
+			writeValue(parser, token, item);
+		}
+	}
+
+	/**
+	 * @return the token of the value written
+	 */
+	private Token writeValue(JsonPullParser parser, Token token, Element element) throws IOException, JsonToXmlException {
+		switch (token) {
+		case BEGIN_OBJECT:
+			addTypeHint(element, "class", "object");
+			writeObjectMembers(parser, element);
+			break;
+		case BEGIN_ARRAY:
+			addTypeHint(element, "class", "array");
+			writeArrayItems(parser, element);
+			break;
+		case STRING:
+			addTypeHint(element, "type", "string");
+			String value = parser.getText();
+			if (value.equals("null")) {
+				// json-lib writes the string "null" quoted to tell it apart from a JSON null
+				value = "\"null\"";
+			}
+			appendText(element, value);
+			break;
+		case NUMBER:
+			addTypeHint(element, "type", "number");
+			appendText(element, normaliseNumber(parser.getText()));
+			break;
+		case TRUE:
+		case FALSE:
+			addTypeHint(element, "type", "boolean");
+			appendText(element, token == Token.TRUE ? "true" : "false");
+			break;
+		case NULL:
+			addTypeHint(element, "class", "object");
+			element.setAttribute("null", "true");
+			break;
+		default:
+			throw new JsonToXmlException("Unexpected " + token + " in JSON.");
+		}
+		return token;
+	}
+
+	private void writeText(JsonPullParser parser, Token token, Element element, TreeMap<String, Node> memberOrder) throws IOException,
+			JsonToXmlException {
+		StringBuilder textBuilder = new StringBuilder();
+		if (token == Token.BEGIN_ARRAY) {
+			while ((token = parser.next()) != Token.END_ARRAY) {
+				textBuilder.append(readSimpleValue(parser, token, TEXT_NAME));
+			}
+		} else {
+			textBuilder.append(readSimpleValue(parser, token, TEXT_NAME));
+		}
+		if (textBuilder.length() > 0) {
+			insertInOrder(element, memberOrder, TEXT_NAME, element.getOwnerDocument().createTextNode(textBuilder.toString()));
+		}
+	}
+
+	private String readSimpleValue(JsonPullParser parser, Token token, String name) throws JsonToXmlException {
+		switch (token) {
+		case STRING:
+			return parser.getText();
+		case NUMBER:
+			return normaliseNumber(parser.getText());
+		case TRUE:
+			return "true";
+		case FALSE:
+			return "false";
+		case NULL:
+			return "null";
+		default:
+			throw new JsonToXmlException("Value of '" + name + "' must be a string, number or boolean.");
+		}
+	}
+
+	/**
+	 * Adds the node before the first member with a greater name.
+	 */
+	private void insertInOrder(Element element, TreeMap<String, Node> memberOrder, String name, Node node) {
+		String nextName = memberOrder.higherKey(name);
+		if (nextName != null) {
+			element.insertBefore(node, memberOrder.get(nextName));
+		} else {
+			element.appendChild(node);
+		}
+		if (!memberOrder.containsKey(name)) {
+			memberOrder.put(name, node);
+		}
+	}
+
+	/**
+	 * Numbers are written as they were by json-lib: integers without leading zeros, decimals as a float if it is in
+	 * range, otherwise as a double or BigDecimal.
+	 */
+	private String normaliseNumber(String number) {
+		if (number.indexOf('.') == -1 && number.indexOf('e') == -1 && number.indexOf('E') == -1) {
+			return new BigInteger(number.startsWith("+") ? number.substring(1) : number).toString();
+		}
+		float floatValue = Float.parseFloat(number);
+		if (!Float.isInfinite(floatValue)) {
+			return Float.toString(floatValue);
+		}
+		double doubleValue = Double.parseDouble(number);
+		if (!Double.isInfinite(doubleValue)) {
+			return Double.toString(doubleValue);
+		}
+		return new BigDecimal(number).toString();
+	}
+
+	private void appendText(Element element, String text) {
+		if (!text.isEmpty()) {
+			element.appendChild(element.getOwnerDocument().createTextNode(text));
+		}
+	}
+
+	private void addTypeHint(Element element, String name, String value) {
+		if (typeHintsEnabled) {
+			element.setAttribute(name, value);
+		}
+	}
+
+	private Element createElement(Document document, String name) throws JsonToXmlException {
+		try {
+			return document.createElement(name);
+		} catch (DOMException e) {
+			throw new JsonToXmlException("JSON name '" + name + "' is not a valid XML element name.", e);
+		}
+	}
+
+	private void setAttribute(Element element, String name, String value) throws JsonToXmlException {
+		try {
+			element.setAttribute(name, value);
+		} catch (DOMException e) {
+			throw new JsonToXmlException("JSON name '@" + name + "' is not a valid XML attribute name.", e);
+		}
+	}
+
+}
@@ -0,0 +1,14 @@
+package com.rhinoforms.xml;
+
+@SuppressWarnings("serial")
+public class JsonToXmlException extends Exception {
+
+	public JsonToXmlException(String message) {
+		super(message);
+	}
+
+	public JsonToXmlException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
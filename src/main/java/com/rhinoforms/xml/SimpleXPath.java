@@ -0,0 +1,146 @@
+package com.rhinoforms.xml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * An XPath made only of child element steps, <code>name</code> or <code>name[n]</code>, for example
+ * <code>/myData/customer/address[2]/line1</code>. These are evaluated by walking the DOM directly rather than using JAXP.
+ * Use {@link #parse(String)} which returns null for any other expression.
+ */
+public class SimpleXPath {
+
+	private boolean absolute;
+	private String[] names;
+	private int[] positions;
+
+	private SimpleXPath(boolean absolute, String[] names, int[] positions) {
+		this.absolute = absolute;
+		this.names = names;
+		this.positions = positions;
+	}
+
+	/**
+	 * @return the parsed path or null if the expression is not made only of simple child element steps
+	 */
+	public static SimpleXPath parse(String xPathString) {
+		if (xPathString == null || xPathString.isEmpty()) {
+			return null;
+		}
+		boolean absolute = xPathString.charAt(0) == '/';
+		String[] steps = (absolute ? xPathString.substring(1) : xPathString).split("/", -1);
+		String[] names = new String[steps.length];
+		int[] positions = new int[steps.length];
+		for (int i = 0; i < steps.length; i++) {
+			String step = steps[i];
+			int nameEnd = step.indexOf('[');
+			if (nameEnd == -1) {
+				nameEnd = step.length();
+			} else {
+				positions[i] = parsePosition(step, nameEnd);
+				if (positions[i] < 1) {
+					return null;
+				}
+			}
+			if (!isName(step, nameEnd)) {
+				return null;
+			}
+			names[i] = step.substring(0, nameEnd);
+		}
+		return new SimpleXPath(absolute, names, positions);
+	}
+
+	private static boolean isName(String step, int nameEnd) {
+		if (nameEnd == 0 || !isNameStartChar(step.charAt(0))) {
+			return false;
+		}
+		for (int i = 1; i < nameEnd; i++) {
+			char c = step.charAt(i);
+			if (!isNameStartChar(c) && !Character.isDigit(c) && c != '-' && c != '.') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isNameStartChar(char c) {
+		return Character.isLetter(c) || c == '_';
+	}
+
+	private static int parsePosition(String step, int openBracket) {
+		int closeBracket = step.length() - 1;
+		int digits = closeBracket - openBracket - 1;
+		if (step.charAt(closeBracket) != ']' || digits < 1 || digits > 9) {
+			return -1;
+		}
+		int position = 0;
+		for (int i = openBracket + 1; i < closeBracket; i++) {
+			char c = step.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			position = position * 10 + (c - '0');
+		}
+		return position;
+	}
+
+	/**
+	 * Selects the matching elements in document order, an absolute path is evaluated from the context node's document.
+	 */
+	public NodeList select(Node contextNode) {
+		List<Node> currentNodes;
+		if (absolute && contextNode.getNodeType() != Node.DOCUMENT_NODE) {
+			currentNodes = Collections.<Node> singletonList(contextNode.getOwnerDocument());
+		} else {
+			currentNodes = Collections.singletonList(contextNode);
+		}
+		for (int i = 0; i < names.length && !currentNodes.isEmpty(); i++) {
+			List<Node> nextNodes = new ArrayList<Node>();
+			for (Node currentNode : currentNodes) {
+				selectChildren(currentNode, names[i], positions[i], nextNodes);
+			}
+			currentNodes = nextNodes;
+		}
+		return new SimpleNodeList(currentNodes);
+	}
+
+	private void selectChildren(Node parent, String name, int position, List<Node> selected) {
+		int count = 0;
+		for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE && child.getNamespaceURI() == null && name.equals(child.getNodeName())) {
+				count++;
+				if (position == 0) {
+					selected.add(child);
+				} else if (count == position) {
+					selected.add(child);
+					return;
+				}
+			}
+		}
+	}
+
+	private static class SimpleNodeList implements NodeList {
+
+		private List<Node> nodes;
+
+		public SimpleNodeList(List<Node> nodes) {
+			this.nodes = nodes;
+		}
+
+		@Override
+		public Node item(int index) {
+			return index >= 0 && index < nodes.size() ? nodes.get(index) : null;
+		}
+
+		@Override
+		public int getLength() {
+			return nodes.size();
+		}
+
+	}
+
+}
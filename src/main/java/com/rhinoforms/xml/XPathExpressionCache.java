@@ -0,0 +1,92 @@
+package com.rhinoforms.xml;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import com.rhinoforms.util.ClearableThreadLocal;
+
+/**
+ * Bounded cache of compiled XPath expressions keyed by expression string.
+ * JAXP XPathFactory, XPath and XPathExpression instances are not thread-safe so each thread has its own XPath and
+ * least recently used cache. Expressions returned must only be evaluated by the calling thread.
+ * The caches are released by {@link ClearableThreadLocal#clearAll()} when the application stops.
+ */
+public class XPathExpressionCache {
+
+	public static final int DEFAULT_MAX_SIZE_PER_THREAD = 500;
+
+	private static final XPathExpressionCache instance = new XPathExpressionCache(DEFAULT_MAX_SIZE_PER_THREAD);
+
+	private final int maxSizePerThread;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final ClearableThreadLocal<ThreadCache> threadCache = new ClearableThreadLocal<ThreadCache>() {
+		@Override
+		protected ThreadCache initialValue() {
+			return new ThreadCache(maxSizePerThread);
+		}
+	};
+
+	public XPathExpressionCache(int maxSizePerThread) {
+		this.maxSizePerThread = maxSizePerThread;
+	}
+
+	public static XPathExpressionCache getInstance() {
+		return instance;
+	}
+
+	public XPathExpression compile(String xPathString) throws XPathExpressionException {
+		ThreadCache cache = threadCache.get();
+		XPathExpression expression = cache.expressions.get(xPathString);
+		if (expression != null) {
+			hitCount.incrementAndGet();
+		} else {
+			missCount.incrementAndGet();
+			expression = cache.xPath.compile(xPathString);
+			cache.expressions.put(xPathString, expression);
+		}
+		return expression;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public int getMaxSizePerThread() {
+		return maxSizePerThread;
+	}
+
+	@Override
+	public String toString() {
+		return "XPathExpressionCache hits:" + hitCount + ", misses:" + missCount + ", maxSizePerThread:" + maxSizePerThread;
+	}
+
+	private static class ThreadCache {
+
+		private XPath xPath;
+		private Map<String, XPathExpression> expressions;
+
+		@SuppressWarnings("serial")
+		public ThreadCache(final int maxSize) {
+			xPath = XPathFactory.newInstance().newXPath();
+			expressions = new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+					return size() > maxSize;
+				}
+			};
+		}
+
+	}
+
+}
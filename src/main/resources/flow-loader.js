@@ -4,13 +4,13 @@ function loadFlow(flowMap) {
 		return string.replace(/^\s\s*/, '').replace(/\s\s*$/, '')
 	}
 	
-	formFlow.setFlowDocBase(flowMap.docBase);
+	flowDefinition.setFlowDocBase(flowMap.docBase);
 	if (flowMap.defaultInitalData) {
-		formFlow.setDefaultInitialData(flowMap.defaultInitalData);
+		flowDefinition.setDefaultInitialData(flowMap.defaultInitalData);
 	}
 	if (flowMap.libraries) {
 		var libraries = flowMap.libraries;
-		var librariesJ = formFlow.getLibraries();
+		var librariesJ = flowDefinition.getLibraries();
 		for (var l in libraries) {
 			librariesJ.add(libraries[l]);
 		}
@@ -18,7 +18,7 @@ function loadFlow(flowMap) {
 	if (flowMap.options) {
 		if (typeof flowMap.options.disableInputsOnSubmit != "undefined") {
 			if ("false" == flowMap.options.disableInputsOnSubmit || flowMap.options.disableInputsOnSubmit == false) {
-				formFlow.setDisableInputsOnSubmit(false);
+				flowDefinition.setDisableInputsOnSubmit(false);
 			}
 		}
 	}
@@ -47,7 +47,7 @@ function loadFlow(flowMap) {
 						actionType = action.type;
 					}
 					if (action.dataDocTransform) {
-						actionDataDocTransform = formFlow.resolveResourcePathIfRelative(action.dataDocTransform);
+						actionDataDocTransform = flowDefinition.resolveResourcePathIfRelative(action.dataDocTransform);
 					}
 					if (action.submission) {
 						actionSubmission = action.submission;
@@ -121,10 +121,10 @@ function loadFlow(flowMap) {
 							submissionJ.setDropRootNode(false);
 						}
 						if (thisSubmission.preTransform) {
-							submissionJ.setPreTransform(formFlow.resolveResourcePathIfRelative(thisSubmission.preTransform));
+							submissionJ.setPreTransform(flowDefinition.resolveResourcePathIfRelative(thisSubmission.preTransform));
 						}
 						if (thisSubmission.postTransform) {
-							submissionJ.setPostTransform(formFlow.resolveResourcePathIfRelative(thisSubmission.postTransform));
+							submissionJ.setPostTransform(flowDefinition.resolveResourcePathIfRelative(thisSubmission.postTransform));
 						}
 						if (thisSubmission.messageOnHttpError) {
 							submissionJ.setMessageOnHttpError(thisSubmission.messageOnHttpError);
@@ -138,6 +138,9 @@ function loadFlow(flowMap) {
 						if (typeof thisSubmission.jsonToXmlRootName != 'undefined') {
 							submissionJ.setJsonToXmlRootName(thisSubmission.jsonToXmlRootName);
 						}
+						if (thisSubmission.parallel && (thisSubmission.parallel == true || thisSubmission.parallel.toLowerCase() == "true")) {
+							submissionJ.setParallel(true);
+						}
 						submissionsListJ.add(submissionJ);
 					}
 					flowActionJ.setSubmissions(submissionsListJ);
@@ -151,7 +154,7 @@ function loadFlow(flowMap) {
 			}
 			formListJ.add(formJ);
 		}
-		formFlow.addFormList(formListName, formListJ);
+		flowDefinition.addFormList(formListName, formListJ);
 	}
 	
 }
@@ -0,0 +1,154 @@
+package com.rhinoforms;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * AsyncContext with a recording HttpServletResponse for testing asynchronous request handling without a container.
+ */
+public class TestAsyncContext implements AsyncContext {
+
+	private int status = HttpServletResponse.SC_OK;
+	private String contentType;
+	private ByteArrayOutputStream body = new ByteArrayOutputStream();
+	private StringWriter writer = new StringWriter();
+	private List<AsyncListener> listeners = new ArrayList<AsyncListener>();
+	private long timeout;
+	private int completeCount;
+	private CountDownLatch completed = new CountDownLatch(1);
+	private HttpServletResponse response;
+
+	public TestAsyncContext() {
+		response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { HttpServletResponse.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+						if (name.equals("setStatus") || name.equals("sendError")) {
+							status = (Integer) args[0];
+						} else if (name.equals("setContentType")) {
+							contentType = (String) args[0];
+						} else if (name.equals("getWriter")) {
+							return new PrintWriter(writer, true);
+						} else if (name.equals("getOutputStream")) {
+							return new ServletOutputStream() {
+								@Override
+								public void write(int b) throws IOException {
+									body.write(b);
+								}
+							};
+						}
+						return null;
+					}
+				});
+	}
+
+	@Override
+	public synchronized void complete() {
+		completeCount++;
+		completed.countDown();
+	}
+
+	public boolean awaitComplete(long timeoutMillis) throws InterruptedException {
+		return completed.await(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public ServletResponse getResponse() {
+		return response;
+	}
+
+	@Override
+	public ServletRequest getRequest() {
+		return null;
+	}
+
+	@Override
+	public void addListener(AsyncListener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void addListener(AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean hasOriginalRequestAndResponse() {
+		return true;
+	}
+
+	@Override
+	public void dispatch() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void dispatch(String path) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void dispatch(ServletContext context, String path) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void start(Runnable run) {
+		new Thread(run).start();
+	}
+
+	@Override
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	@Override
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public String getBody() {
+		return new String(body.toByteArray()) + writer.toString();
+	}
+
+	public List<AsyncListener> getListeners() {
+		return listeners;
+	}
+
+	public synchronized int getCompleteCount() {
+		return completeCount;
+	}
+
+}
@@ -24,12 +24,19 @@ public class TestConnectionFactory implements ConnectionFactory {
 	private int testResponseCode = 200;
 	private String testContentType;
 	private String testResponseMessage = "";
+	private Map<String, String> testResponseHeaders = new HashMap<String, String>();
+	private int connectionCount;
+	private int openConnectionCount;
+	private int recordedChunkLength;
 
 	@Override
 	public HttpURLConnection openConnection(String url)
 			throws MalformedURLException, IOException {
 
 		this.recordedRequestUrl = url;
+		this.recordedChunkLength = 0;
+		connectionCount++;
+		openConnectionCount++;
 
 		return new HttpURLConnection(new URL(url)) {
 
@@ -68,7 +75,21 @@ public class TestConnectionFactory implements ConnectionFactory {
 
 			@Override
 			public InputStream getInputStream() throws IOException {
-				return new ByteArrayInputStream(testResponseString.getBytes());
+				return new ByteArrayInputStream(testResponseString.getBytes()) {
+					private boolean closed;
+					@Override
+					public void close() throws IOException {
+						if (!closed) {
+							closed = true;
+							openConnectionCount--;
+						}
+					}
+				};
+			}
+
+			@Override
+			public String getHeaderField(String name) {
+				return testResponseHeaders.get(name);
 			}
 
 			@Override
@@ -76,6 +97,11 @@ public class TestConnectionFactory implements ConnectionFactory {
 				recordedRequestProperties.put(key, value);
 			}
 
+			@Override
+			public void setChunkedStreamingMode(int chunkLength) {
+				recordedChunkLength = chunkLength;
+			}
+
 		};
 	}
 
@@ -95,6 +121,10 @@ public class TestConnectionFactory implements ConnectionFactory {
 		this.testResponseString = resultXmlString;
 	}
 
+	public void setResponseHeader(String name, String value) {
+		testResponseHeaders.put(name, value);
+	}
+
 	public String getRecordedRequestUrl() {
 		return recordedRequestUrl;
 	}
@@ -111,4 +141,22 @@ public class TestConnectionFactory implements ConnectionFactory {
 		return recordedRequestProperties;
 	}
 
+	/**
+	 * @return the chunk length of the last request or 0 if it was not chunked
+	 */
+	public int getRecordedChunkLength() {
+		return recordedChunkLength;
+	}
+
+	public int getConnectionCount() {
+		return connectionCount;
+	}
+
+	/**
+	 * @return the number of connections whose response stream has not been closed
+	 */
+	public int getOpenConnectionCount() {
+		return openConnectionCount;
+	}
+
 }
@@ -0,0 +1,183 @@
+package com.rhinoforms.flow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.rhinoforms.TestAsyncContext;
+import com.rhinoforms.net.ConnectionFactoryImpl;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Compares the container threads held by the blocking and asynchronous field source proxy paths while the upstream is
+ * slow. Each simulated container thread handles one lookup, in blocking mode it waits for the upstream, in async mode it
+ * hands the lookup to the bounded proxy pool and returns.
+ */
+public class FieldSourceProxyAsyncLoadTestManual {
+
+	private static final int REQUESTS = 200;
+	private static final int UPSTREAM_DELAY_MILLIS = 500;
+	private static final int PROXY_THREADS = 20;
+
+	private HttpServer upstream;
+	private ExecutorService upstreamExecutor;
+	private String upstreamUrl;
+	private FieldSourceProxyEngine proxyEngine;
+
+	public static void main(String[] args) throws Exception {
+		FieldSourceProxyAsyncLoadTestManual test = new FieldSourceProxyAsyncLoadTestManual();
+		try {
+			test.run();
+		} finally {
+			test.upstream.stop(0);
+			test.upstreamExecutor.shutdown();
+		}
+	}
+
+	public FieldSourceProxyAsyncLoadTestManual() throws IOException {
+		upstream = HttpServer.create(new InetSocketAddress("localhost", 0), REQUESTS);
+		upstream.createContext("/lookup", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					Thread.sleep(UPSTREAM_DELAY_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				byte[] body = "[[\"1\",\"Result\"]]".getBytes();
+				exchange.getResponseHeaders().add("Content-Type", "application/json");
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream responseBody = exchange.getResponseBody();
+				responseBody.write(body);
+				responseBody.close();
+			}
+		});
+		upstreamExecutor = Executors.newFixedThreadPool(REQUESTS);
+		upstream.setExecutor(upstreamExecutor);
+		upstream.start();
+		upstreamUrl = "http://localhost:" + upstream.getAddress().getPort() + "/lookup?value=";
+		// No caching so that every lookup goes upstream
+		proxyEngine = new FieldSourceProxyEngine(new ConnectionFactoryImpl(), 0, 0, 5000, 10000);
+	}
+
+	public void run() throws Exception {
+		runBlocking();
+		runAsync();
+	}
+
+	private void runBlocking() throws Exception {
+		final AtomicLong containerThreadMillis = new AtomicLong();
+		final CountDownLatch done = new CountDownLatch(REQUESTS);
+		final ConcurrencyCounter busyContainerThreads = new ConcurrencyCounter();
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		threadMXBean.resetPeakThreadCount();
+		long start = new Date().getTime();
+		for (int i = 0; i < REQUESTS; i++) {
+			final String url = upstreamUrl + i;
+			new Thread() {
+				@Override
+				public void run() {
+					long threadStart = new Date().getTime();
+					busyContainerThreads.enter();
+					try {
+						proxyEngine.request(url);
+					} catch (FieldSourceProxyException e) {
+						e.printStackTrace();
+					} finally {
+						busyContainerThreads.exit();
+						containerThreadMillis.addAndGet(new Date().getTime() - threadStart);
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		done.await(60, TimeUnit.SECONDS);
+		report("Blocking", new Date().getTime() - start, busyContainerThreads.getMax(), containerThreadMillis.get(),
+				threadMXBean.getPeakThreadCount());
+	}
+
+	private void runAsync() throws Exception {
+		final AtomicLong containerThreadMillis = new AtomicLong();
+		final ConcurrencyCounter busyContainerThreads = new ConcurrencyCounter();
+		final ThreadPoolExecutor proxyExecutor = new ThreadPoolExecutor(PROXY_THREADS, PROXY_THREADS, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(REQUESTS));
+		final List<TestAsyncContext> asyncContexts = new ArrayList<TestAsyncContext>();
+		final CountDownLatch dispatched = new CountDownLatch(REQUESTS);
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		threadMXBean.resetPeakThreadCount();
+		long start = new Date().getTime();
+		for (int i = 0; i < REQUESTS; i++) {
+			final String url = upstreamUrl + i;
+			final TestAsyncContext asyncContext = new TestAsyncContext();
+			synchronized (asyncContexts) {
+				asyncContexts.add(asyncContext);
+			}
+			new Thread() {
+				@Override
+				public void run() {
+					long threadStart = new Date().getTime();
+					busyContainerThreads.enter();
+					try {
+						proxyExecutor.execute(new FieldSourceProxyAsyncRequest(url, proxyEngine, asyncContext));
+					} finally {
+						busyContainerThreads.exit();
+						containerThreadMillis.addAndGet(new Date().getTime() - threadStart);
+						dispatched.countDown();
+					}
+				}
+			}.start();
+		}
+		dispatched.await(60, TimeUnit.SECONDS);
+		for (TestAsyncContext asyncContext : asyncContexts) {
+			asyncContext.awaitComplete(60000);
+		}
+		report("Async", new Date().getTime() - start, busyContainerThreads.getMax(), containerThreadMillis.get(),
+				threadMXBean.getPeakThreadCount());
+		proxyExecutor.shutdown();
+	}
+
+	private void report(String mode, long elapsed, int maxBusyContainerThreads, long containerThreadMillis, int peakThreadCount) {
+		System.out.println(mode + ": " + REQUESTS + " lookups with a " + UPSTREAM_DELAY_MILLIS + "ms upstream completed in "
+				+ new Float(elapsed) / 1000 + " seconds, container threads busy at once: " + maxBusyContainerThreads
+				+ ", total container thread time: " + new Float(containerThreadMillis) / 1000 + " seconds, peak JVM threads: "
+				+ peakThreadCount);
+	}
+
+	private static class ConcurrencyCounter {
+
+		private AtomicInteger current = new AtomicInteger();
+		private AtomicInteger max = new AtomicInteger();
+
+		public void enter() {
+			int now = current.incrementAndGet();
+			int previousMax;
+			while (now > (previousMax = max.get()) && !max.compareAndSet(previousMax, now)) {
+			}
+		}
+
+		public void exit() {
+			current.decrementAndGet();
+		}
+
+		public int getMax() {
+			return max.get();
+		}
+
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.rhinoforms.flow;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.rhinoforms.TestAsyncContext;
+import com.rhinoforms.TestConnectionFactory;
+
+public class FieldSourceProxyAsyncRequestTest {
+
+	private static final String URL = "http://localhost/postcodes?value=BN1";
+	private TestConnectionFactory connectionFactory;
+	private FieldSourceProxyEngine proxyEngine;
+	private TestAsyncContext asyncContext;
+
+	@Before
+	public void setup() {
+		connectionFactory = new TestConnectionFactory();
+		connectionFactory.setContentType("application/json");
+		connectionFactory.setResponseString("[[\"1\",\"BN1 1AA\"]]");
+		proxyEngine = new FieldSourceProxyEngine(connectionFactory, 0, 10, 1000, 2000);
+		asyncContext = new TestAsyncContext();
+	}
+
+	@Test
+	public void testResponseWrittenAndCompleted() throws Exception {
+		FieldSourceProxyAsyncRequest asyncRequest = new FieldSourceProxyAsyncRequest(URL, proxyEngine, asyncContext);
+		Assert.assertEquals(1, asyncContext.getListeners().size());
+
+		asyncRequest.run();
+
+		Assert.assertEquals(200, asyncContext.getStatus());
+		Assert.assertEquals("application/json", asyncContext.getContentType());
+		Assert.assertEquals("[[\"1\",\"BN1 1AA\"]]", asyncContext.getBody());
+		Assert.assertEquals(1, asyncContext.getCompleteCount());
+	}
+
+	@Test
+	public void testTimeoutBeforeResponse() throws Exception {
+		FieldSourceProxyAsyncRequest asyncRequest = new FieldSourceProxyAsyncRequest(URL, proxyEngine, asyncContext);
+
+		asyncRequest.onTimeout(null);
+		asyncRequest.run();
+
+		Assert.assertEquals(504, asyncContext.getStatus());
+		Assert.assertEquals("Proxy request timed out.", asyncContext.getBody());
+		Assert.assertEquals(1, asyncContext.getCompleteCount());
+	}
+
+	@Test
+	public void testRejected() throws Exception {
+		new FieldSourceProxyAsyncRequest(URL, proxyEngine, asyncContext).reject();
+
+		Assert.assertEquals(503, asyncContext.getStatus());
+		Assert.assertEquals(1, asyncContext.getCompleteCount());
+		Assert.assertEquals(0, connectionFactory.getConnectionCount());
+	}
+
+}
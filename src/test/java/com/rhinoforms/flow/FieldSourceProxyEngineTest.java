@@ -0,0 +1,122 @@
+package com.rhinoforms.flow;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.rhinoforms.TestConnectionFactory;
+
+public class FieldSourceProxyEngineTest {
+
+	private static final String URL = "http://localhost/occupations?value=eng";
+	private TestConnectionFactory connectionFactory;
+
+	@Before
+	public void setup() {
+		connectionFactory = new TestConnectionFactory();
+		connectionFactory.setContentType("application/json");
+		connectionFactory.setResponseString("[[\"1\",\"Engineer\"]]");
+	}
+
+	@Test
+	public void testResponseCached() throws Exception {
+		FieldSourceProxyEngine proxyEngine = new FieldSourceProxyEngine(connectionFactory, 60000, 10, 1000, 2000);
+
+		FieldSourceProxyResponse first = proxyEngine.request(URL);
+		FieldSourceProxyResponse second = proxyEngine.request(URL);
+
+		Assert.assertEquals(1, connectionFactory.getConnectionCount());
+		Assert.assertSame(first, second);
+		Assert.assertEquals("application/json", second.getContentType());
+		Assert.assertEquals("[[\"1\",\"Engineer\"]]", new String(second.getBody()));
+		Assert.assertEquals(1, proxyEngine.getHitCount());
+	}
+
+	@Test
+	public void testErrorResponseNotCached() throws Exception {
+		FieldSourceProxyEngine proxyEngine = new FieldSourceProxyEngine(connectionFactory, 60000, 10, 1000, 2000);
+		connectionFactory.setResponseCode(503);
+		connectionFactory.setResponseMessage("Service Unavailable");
+
+		FieldSourceProxyResponse response = proxyEngine.request(URL);
+		proxyEngine.request(URL);
+
+		Assert.assertEquals(503, response.getResponseCode());
+		Assert.assertEquals("Service Unavailable", response.getResponseMessage());
+		Assert.assertEquals(2, connectionFactory.getConnectionCount());
+	}
+
+	@Test
+	public void testIdenticalInFlightRequestsCoalesced() throws Exception {
+		final CountDownLatch requestStarted = new CountDownLatch(1);
+		final CountDownLatch releaseResponse = new CountDownLatch(1);
+		TestConnectionFactory slowConnectionFactory = new TestConnectionFactory() {
+			@Override
+			public HttpURLConnection openConnection(String url) throws MalformedURLException, IOException {
+				requestStarted.countDown();
+				try {
+					releaseResponse.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					throw new IOException(e.getMessage());
+				}
+				return super.openConnection(url);
+			}
+		};
+		final FieldSourceProxyEngine proxyEngine = new FieldSourceProxyEngine(slowConnectionFactory, 0, 10, 1000, 2000);
+		final FieldSourceProxyResponse[] responses = new FieldSourceProxyResponse[2];
+
+		Thread first = new Thread() {
+			@Override
+			public void run() {
+				try {
+					responses[0] = proxyEngine.request(URL);
+				} catch (FieldSourceProxyException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		first.start();
+		requestStarted.await(5, TimeUnit.SECONDS);
+		Thread second = new Thread() {
+			@Override
+			public void run() {
+				try {
+					responses[1] = proxyEngine.request(URL);
+				} catch (FieldSourceProxyException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		second.start();
+		while (proxyEngine.getCoalescedCount() == 0 && second.isAlive()) {
+			Thread.sleep(1);
+		}
+		releaseResponse.countDown();
+		first.join();
+		second.join();
+
+		Assert.assertEquals(1, slowConnectionFactory.getConnectionCount());
+		Assert.assertEquals(1, proxyEngine.getCoalescedCount());
+		Assert.assertNotNull(responses[0]);
+		Assert.assertSame(responses[0], responses[1]);
+	}
+
+	@Test(expected = FieldSourceProxyException.class)
+	public void testConnectionFailure() throws Exception {
+		TestConnectionFactory failingConnectionFactory = new TestConnectionFactory() {
+			@Override
+			public HttpURLConnection openConnection(String url) throws MalformedURLException, IOException {
+				throw new IOException("Connection refused");
+			}
+		};
+		new FieldSourceProxyEngine(failingConnectionFactory, 60000, 10, 1000, 2000).request(URL);
+	}
+
+}
@@ -1,30 +1,45 @@
 package com.rhinoforms.flow;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import junit.framework.Assert;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mozilla.javascript.Context;
 
 import com.rhinoforms.ApplicationContext;
+import com.rhinoforms.RhinoformsProperties;
 import com.rhinoforms.TestApplicationContext;
+import com.rhinoforms.TestResourceLoader;
 import com.rhinoforms.resourceloader.ResourceLoaderException;
+import com.rhinoforms.resourceloader.ResourceLoaderImpl;
+import com.rhinoforms.xml.DocumentHelper;
 
 public class FormFlowFactoryTest {
 
+	private ApplicationContext applicationContext;
 	private FormFlowFactory formFlowFactory;
 
 	@Before
 	public void setup() throws IOException, ResourceLoaderException {
 		Context.enter();
-		ApplicationContext applicationContext = new TestApplicationContext();
+		applicationContext = new TestApplicationContext();
 		this.formFlowFactory = applicationContext.getFormFlowFactory();
 	}
 	
@@ -219,4 +234,149 @@ public class FormFlowFactoryTest {
 		Assert.assertEquals(null, submission.getPostTransform());
 	}
 	
+	@Test
+	public void testFlowDefinitionShared() throws Exception {
+		FormFlow formFlowA = formFlowFactory.createFlow("test-flow1.js", null);
+		FormFlow formFlowB = formFlowFactory.createFlow("test-flow1.js", null);
+		
+		Assert.assertFalse(formFlowA.getId().equals(formFlowB.getId()));
+		Assert.assertEquals(formFlowA.getId(), formFlowA.getProperties().get("rf.flowId"));
+		Assert.assertEquals(formFlowB.getId(), formFlowB.getProperties().get("rf.flowId"));
+		Assert.assertSame(formFlowA.getFormLists().get("main").get(0), formFlowB.getFormLists().get("main").get(0));
+		Assert.assertEquals(formFlowA.getLibraries(), formFlowB.getLibraries());
+		
+		formFlowFactory.formResourcesChanged();
+		FormFlow formFlowC = formFlowFactory.createFlow("test-flow1.js", null);
+		Assert.assertNotSame(formFlowA.getFormLists().get("main").get(0), formFlowC.getFormLists().get("main").get(0));
+	}
+	
+	@Test
+	public void testFlowDefinitionUsingFlowIdNotShared() throws Exception {
+		FormFlow formFlowA = formFlowFactory.createFlow("test-flow1-flow-id.js", null);
+		FormFlow formFlowB = formFlowFactory.createFlow("test-flow1-flow-id.js", null);
+		
+		Submission submissionA = formFlowA.getFormLists().get("main").get(0).getActions().get("sendToMyServer").getSubmissions().get(0);
+		Submission submissionB = formFlowB.getFormLists().get("main").get(0).getActions().get("sendToMyServer").getSubmissions().get(0);
+		Assert.assertEquals("http://localhost/service/" + formFlowA.getId(), submissionA.getUrl());
+		Assert.assertEquals("http://localhost/service/" + formFlowB.getId(), submissionB.getUrl());
+	}
+	
+	@Test
+	public void testSerialisedFlowReferencesSharedDefinition() throws Exception {
+		DocumentHelper documentHelper = new DocumentHelper();
+		FormFlow formFlow = formFlowFactory.createFlow("test-flow1.js", "<myData/>");
+		formFlow.navigateToFirstForm(documentHelper);
+		formFlow.doAction("next", new HashMap<String, String>(), documentHelper);
+		FlowDefinition flowDefinition = formFlow.getFlowDefinition();
+		Assert.assertTrue(flowDefinition.isShared());
+		
+		FormFlow deserialisedFlow = serialiseAndDeserialise(formFlow);
+		Assert.assertFalse(deserialisedFlow.getFlowDefinition().isResolved());
+		Assert.assertNull(deserialisedFlow.getProperties());
+		
+		formFlowFactory.attachFlowDefinition(deserialisedFlow);
+		Assert.assertSame(flowDefinition, deserialisedFlow.getFlowDefinition());
+		Assert.assertEquals(formFlow.getId(), deserialisedFlow.getProperties().get("rf.flowId"));
+		Assert.assertEquals("two", deserialisedFlow.getCurrentFormId());
+		Assert.assertEquals("three.html", deserialisedFlow.doAction("next", new HashMap<String, String>(), documentHelper));
+	}
+	
+	@Test
+	public void testSerialisedFlowIncludesUnsharedDefinition() throws Exception {
+		FormFlow formFlow = formFlowFactory.createFlow("test-flow1-flow-id.js", null);
+		Assert.assertFalse(formFlow.getFlowDefinition().isShared());
+		
+		FormFlow deserialisedFlow = serialiseAndDeserialise(formFlow);
+		Assert.assertTrue(deserialisedFlow.getFlowDefinition().isResolved());
+		
+		formFlowFactory.attachFlowDefinition(deserialisedFlow);
+		Submission submission = deserialisedFlow.getFormLists().get("main").get(0).getActions().get("sendToMyServer").getSubmissions().get(0);
+		Assert.assertEquals("http://localhost/service/" + formFlow.getId(), submission.getUrl());
+		Assert.assertEquals(formFlow.getId(), deserialisedFlow.getProperties().get("rf.flowId"));
+	}
+	
+	@Test
+	public void testSerialisedFlowKeepsState() throws Exception {
+		DocumentHelper documentHelper = new DocumentHelper();
+		FormFlow formFlow = formFlowFactory.createFlow("test-flow1.js", "<myData><name>Kai</name></myData>");
+		formFlow.navigateToFirstForm(documentHelper);
+		Map<String, String> rfAttributes = new HashMap<String, String>();
+		rfAttributes.put("rf.validation", "required");
+		InputPojo inputPojo = new InputPojo("name", "text", rfAttributes);
+		inputPojo.setValue("Kai");
+		formFlow.setCurrentInputPojos(Collections.singletonList(inputPojo));
+		formFlow.addFieldSourceProxy(new FieldSourceProxy("proxy1", "http://localhost/lookup?q=[value]"));
+
+		RhinoformsProperties rhinoformsProperties = RhinoformsProperties.getInstance();
+		for (boolean compression : new boolean[] { true, false }) {
+			rhinoformsProperties.setFlowSerialisationCompression(compression);
+			try {
+				long serialisedBytes = FormFlow.getSerialisedBytes();
+				FormFlow deserialisedFlow = serialiseAndDeserialise(formFlow);
+				Assert.assertTrue(FormFlow.getSerialisedBytes() > serialisedBytes);
+				Assert.assertFalse(deserialisedFlow.isChanged());
+				formFlowFactory.attachFlowDefinition(deserialisedFlow);
+				Assert.assertFalse(deserialisedFlow.isChanged());
+
+				Assert.assertEquals(formFlow.getId(), deserialisedFlow.getId());
+				Assert.assertEquals(formFlow.getResourcesBase(), deserialisedFlow.getResourcesBase());
+				Assert.assertEquals("one", deserialisedFlow.getCurrentFormId());
+				Assert.assertEquals(formFlow.getCurrentDocBase(), deserialisedFlow.getCurrentDocBase());
+				InputPojo deserialisedInputPojo = deserialisedFlow.getCurrentInputPojos().get(0);
+				Assert.assertEquals("name", deserialisedInputPojo.getName());
+				Assert.assertEquals("Kai", deserialisedInputPojo.getValue());
+				Assert.assertEquals("required", deserialisedInputPojo.getValidation());
+				Assert.assertEquals("http://localhost/lookup?q=[value]", deserialisedFlow.getFieldSourceProxy("proxy1").getUrl());
+				Assert.assertEquals(documentHelper.documentToString(formFlow.getDataDocument()),
+						documentHelper.documentToString(deserialisedFlow.getDataDocument()));
+			} finally {
+				rhinoformsProperties.setFlowSerialisationCompression(true);
+			}
+		}
+	}
+
+	@Test
+	public void testSerialisedFlowWithChangedDefinitionNotAttached() throws Exception {
+		final AtomicBoolean formOneRemoved = new AtomicBoolean();
+		TestResourceLoader resourceLoader = new TestResourceLoader() {
+			@Override
+			public InputStream getResourceAsStream(String path) throws FileNotFoundException {
+				InputStream resourceStream = super.getResourceAsStream(path);
+				if (path.endsWith("test-flow1.js") && formOneRemoved.get()) {
+					try {
+						String definition = IOUtils.toString(resourceStream).replace("{ id: \"one\", url: \"one.html\", actions: [ \"next\" ] },", "");
+						return new ByteArrayInputStream(definition.getBytes());
+					} catch (IOException e) {
+						throw new FileNotFoundException(e.getMessage());
+					}
+				}
+				return resourceStream;
+			}
+		};
+		FormFlowFactory changingFormFlowFactory = new FormFlowFactory(new ResourceLoaderImpl(resourceLoader, resourceLoader),
+				applicationContext.getValueInjector(), applicationContext.getMasterScope(), "", new SubmissionTimeKeeper());
+		FormFlow formFlow = changingFormFlowFactory.createFlow("test-flow1.js", null);
+		formFlow.navigateToFirstForm(new DocumentHelper());
+
+		changingFormFlowFactory.attachFlowDefinition(serialiseAndDeserialise(formFlow));
+
+		formOneRemoved.set(true);
+		changingFormFlowFactory.formResourcesChanged();
+		try {
+			changingFormFlowFactory.attachFlowDefinition(serialiseAndDeserialise(formFlow));
+			Assert.fail("Should have thrown FormFlowFactoryException");
+		} catch (FormFlowFactoryException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("has changed"));
+		}
+	}
+
+	private FormFlow serialiseAndDeserialise(FormFlow formFlow) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
+		objectOutputStream.writeObject(formFlow);
+		objectOutputStream.close();
+		ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+		return (FormFlow) objectInputStream.readObject();
+	}
+	
 }
@@ -0,0 +1,140 @@
+package com.rhinoforms.flow;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+
+import org.mozilla.javascript.Context;
+import org.w3c.dom.Document;
+
+import com.rhinoforms.RhinoformsProperties;
+import com.rhinoforms.TestApplicationContext;
+import com.rhinoforms.xml.DocumentHelper;
+
+/**
+ * Compares the size and time of serialising a flow with a large Data Document using default Java serialisation of the
+ * same fields, as FormFlow used before, against the externalized format with and without compression.
+ */
+public class FormFlowSerialisationTestManual {
+
+	private static final int CUSTOMERS = 500;
+	private static final int ITERATIONS = 2000;
+
+	private FormFlow formFlow;
+
+	public static void main(String[] args) throws Exception {
+		new FormFlowSerialisationTestManual().run();
+	}
+
+	public FormFlowSerialisationTestManual() throws Exception {
+		Context.enter();
+		try {
+			FormFlowFactory formFlowFactory = new TestApplicationContext().getFormFlowFactory();
+			StringBuilder data = new StringBuilder("<myData><customers>");
+			for (int i = 0; i < CUSTOMERS; i++) {
+				data.append("<customer id=\"").append(i).append("\"><name>Customer ").append(i).append("</name>")
+						.append("<address><line1>").append(i).append(" High Street</line1><postcode>AB").append(i % 100)
+						.append(" 1CD</postcode></address><email>customer").append(i).append("@example.com</email></customer>");
+			}
+			data.append("</customers></myData>");
+			formFlow = formFlowFactory.createFlow("test-flow1.js", data.toString());
+			DocumentHelper documentHelper = new DocumentHelper();
+			formFlow.navigateToFirstForm(documentHelper);
+			formFlow.doAction("next", new HashMap<String, String>(), documentHelper);
+		} finally {
+			Context.exit();
+		}
+	}
+
+	public void run() throws Exception {
+		Object defaultForm = new DefaultSerialisedForm(formFlow);
+		RhinoformsProperties rhinoformsProperties = RhinoformsProperties.getInstance();
+
+		// Warm up
+		for (int i = 0; i < ITERATIONS / 4; i++) {
+			roundTrip(defaultForm);
+			roundTrip(formFlow);
+		}
+
+		report("Default serialisation", defaultForm);
+		rhinoformsProperties.setFlowSerialisationCompression(false);
+		report("Externalized", formFlow);
+		rhinoformsProperties.setFlowSerialisationCompression(true);
+		report("Externalized + deflate", formFlow);
+	}
+
+	private void report(String name, Object object) throws Exception {
+		long writeNanos = 0;
+		long readNanos = 0;
+		int size = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			byte[] bytes = serialise(object);
+			long written = System.nanoTime();
+			deserialise(bytes);
+			readNanos += System.nanoTime() - written;
+			writeNanos += written - start;
+			size = bytes.length;
+		}
+		System.out.println(String.format("%-24s %8d bytes  write %7.1f us  read %7.1f us", name, size, writeNanos / 1000.0 / ITERATIONS,
+				readNanos / 1000.0 / ITERATIONS));
+	}
+
+	private void roundTrip(Object object) throws Exception {
+		deserialise(serialise(object));
+	}
+
+	private byte[] serialise(Object object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private Object deserialise(byte[] bytes) throws Exception {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			return in.readObject();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * The fields FormFlow wrote with default serialisation.
+	 */
+	@SuppressWarnings("serial")
+	private static class DefaultSerialisedForm implements Serializable {
+
+		private String flowId;
+		private FlowDefinition flowDefinition;
+		private Document dataDocument;
+		private Object navigationStack;
+		private Object currentInputPojos;
+		private Object fieldSourceProxies;
+		private String resourcesBase;
+
+		DefaultSerialisedForm(FormFlow formFlow) throws Exception {
+			flowId = formFlow.getId();
+			flowDefinition = formFlow.getFlowDefinition();
+			dataDocument = formFlow.getDataDocument();
+			navigationStack = readField(formFlow, "navigationStack");
+			currentInputPojos = formFlow.getCurrentInputPojos();
+			fieldSourceProxies = readField(formFlow, "fieldSourceProxies");
+			resourcesBase = formFlow.getResourcesBase();
+		}
+
+		private static Object readField(FormFlow formFlow, String name) throws Exception {
+			java.lang.reflect.Field field = FormFlow.class.getDeclaredField(name);
+			field.setAccessible(true);
+			return field.get(formFlow);
+		}
+
+	}
+
+}
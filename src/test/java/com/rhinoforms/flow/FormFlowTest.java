@@ -1,8 +1,11 @@
 package com.rhinoforms.flow;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import junit.framework.Assert;
 
@@ -12,13 +15,16 @@ import org.junit.Test;
 import org.mozilla.javascript.Context;
 
 import com.rhinoforms.ApplicationContext;
+import com.rhinoforms.Constants;
 import com.rhinoforms.TestApplicationContext;
+import com.rhinoforms.flowstore.InMemoryFlowStore;
 import com.rhinoforms.resourceloader.ResourceLoaderException;
 import com.rhinoforms.xml.DocumentHelper;
 
 public class FormFlowTest {
 
 	private FormFlowFactory formFlowFactory;
+	private FormSubmissionHelper formSubmissionHelper;
 	private HashMap<String, String> actionParams;
 	private FormFlow formFlow;
 	private DocumentHelper documentHelper;
@@ -32,6 +38,7 @@ public class FormFlowTest {
 		ApplicationContext applicationContext = new TestApplicationContext();
 		
 		this.formFlowFactory = applicationContext.getFormFlowFactory();
+		this.formSubmissionHelper = applicationContext.getFormSubmissionHelper();
 		this.formFlow = formFlowFactory.createFlow("test-flow1.js", "<myData/>");
 	}
 	
@@ -45,6 +52,59 @@ public class FormFlowTest {
 		Assert.assertEquals("one.html", formFlow.navigateToFirstForm(documentHelper));
 	}
 
+	@Test
+	public void testChangeTracking() throws Exception {
+		Assert.assertTrue(formFlow.isChanged());
+		formFlow.clearChanged();
+		formFlow.navigateToFirstForm(documentHelper);
+		Assert.assertTrue(formFlow.isChanged());
+
+		formFlow.clearChanged();
+		formFlow.getCurrentFormId();
+		formFlow.getDataDocument();
+		formFlow.clearFieldSourceProxies();
+		Assert.assertFalse(formFlow.isChanged());
+
+		formFlow.setCurrentInputPojos(new ArrayList<InputPojo>());
+		Assert.assertTrue(formFlow.isChanged());
+
+		formFlow.clearChanged();
+		formFlow.doAction("next", actionParams, documentHelper);
+		Assert.assertTrue(formFlow.isChanged());
+	}
+
+	@Test
+	public void testValidationErrorLeavesFlowUnchanged() throws Exception {
+		formFlow.navigateToFirstForm(documentHelper);
+		List<InputPojo> inputPojos = new ArrayList<InputPojo>();
+		HashMap<String, String> requiredAttributes = new HashMap<String, String>();
+		requiredAttributes.put(Constants.VALIDATION_ATTR, "required");
+		inputPojos.add(new InputPojo("name", "text", requiredAttributes));
+		HashMap<String, String> includeIfAttributes = new HashMap<String, String>();
+		includeIfAttributes.put(Constants.INCLUDE_IF_ATTR, "{ false }");
+		inputPojos.add(new InputPojo("hidden", "text", includeIfAttributes));
+		formFlow.setCurrentInputPojos(inputPojos);
+		InMemoryFlowStore flowStore = new InMemoryFlowStore();
+		flowStore.setFlow(formFlow, null);
+
+		Set<String> fieldsInError = formSubmissionHelper.validateAndPersist(formFlow, "next", FlowActionType.NEXT, actionParams);
+
+		Assert.assertEquals(1, fieldsInError.size());
+		Assert.assertFalse(formFlow.isChanged());
+		Assert.assertFalse(flowStore.updateFlow(formFlow, null));
+		Assert.assertEquals(1, flowStore.getStoreCount());
+		Assert.assertEquals(1, flowStore.getUnchangedCount());
+		Assert.assertEquals(2, formFlow.getCurrentInputPojos().size());
+
+		actionParams.put("name", "Kai");
+		Assert.assertTrue(formSubmissionHelper.validateAndPersist(formFlow, "next", FlowActionType.NEXT, actionParams).isEmpty());
+
+		Assert.assertTrue(formFlow.isChanged());
+		Assert.assertTrue(flowStore.updateFlow(formFlow, null));
+		Assert.assertEquals(2, flowStore.getStoreCount());
+		Assert.assertEquals(1, flowStore.getUnchangedCount());
+	}
+
 	@Test
 	public void testNavNextBack() throws Exception {
 		Assert.assertEquals("one.html", formFlow.navigateToFirstForm(documentHelper));
@@ -11,9 +11,11 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 
 import com.rhinoforms.Constants;
+import com.rhinoforms.TestConnectionFactory;
 import com.rhinoforms.TestNetUtil;
 import com.rhinoforms.TestResourceLoader;
 import com.rhinoforms.js.JSMasterScope;
@@ -40,7 +42,7 @@ public class FormSubmissionHelperTest {
 		RhinoFormsMasterScopeFactory masterScopeFactory = new TestRhinoFormsMasterScopeFactory(testNetUtil);
 		
 		ResourceLoaderImpl resourceLoader = new ResourceLoaderImpl(new TestResourceLoader(), new TestResourceLoader());
-		masterScope = masterScopeFactory.createMasterScope(context, resourceLoader);
+		masterScope = masterScopeFactory.createMasterScope(context, resourceLoader, new TestConnectionFactory());
 		formSubmissionHelper = new FormSubmissionHelper(masterScope);
 		workingScope = masterScope.createWorkingScope();
 		actionName = "next";
@@ -251,4 +253,33 @@ public class FormSubmissionHelperTest {
 		Assert.assertEquals("100", premium.getValue());
 	}
 
+	@Test
+	public void testIncludeIfStatementCompiledOnce() throws Exception {
+		ArrayList<InputPojo> inputs = new ArrayList<InputPojo>();
+		HashMap<String, String> rfAttributes = new HashMap<String, String>();
+		String includeIfStatement = "{ fields.oldAddress.value != 'none' }";
+		rfAttributes.put(Constants.INCLUDE_IF_ATTR, includeIfStatement);
+		InputPojo oldAddressInput = new InputPojo("oldAddress", "text", rfAttributes);
+		inputs.add(oldAddressInput);
+		String sourceName = "oldAddress " + Constants.INCLUDE_IF_ATTR + " statement";
+		
+		oldAddressInput.setValue("none");
+		Assert.assertEquals(1, formSubmissionHelper.getIncludeFalseInputs(inputs, workingScope).size());
+		Script script = masterScope.getExpressionScript(includeIfStatement, sourceName);
+		
+		oldAddressInput.setValue("1 High Street");
+		Assert.assertEquals(0, formSubmissionHelper.getIncludeFalseInputs(inputs, masterScope.createWorkingScope()).size());
+		Assert.assertSame(script, masterScope.getExpressionScript(includeIfStatement, sourceName));
+	}
+	
+	@Test
+	public void testValidationActionNameWithQuote() throws Exception {
+		ArrayList<InputPojo> inputs = new ArrayList<InputPojo>();
+		HashMap<String, String> rfAttributes = new HashMap<String, String>();
+		rfAttributes.put(Constants.VALIDATION_ATTR, "required");
+		inputs.add(new InputPojo("name", "text", rfAttributes));
+		
+		Assert.assertEquals(1, formSubmissionHelper.validateInput(inputs, "it's", workingScope).size());
+	}
+
 }
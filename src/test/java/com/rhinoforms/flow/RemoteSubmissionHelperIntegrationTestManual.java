@@ -27,7 +27,7 @@ public class RemoteSubmissionHelperIntegrationTestManual {
 		dataDocumentString = "<myData><something>aaa</something></myData>";
 		dataDocument = TestUtil.createDocument(dataDocumentString);
 		xsltParameters = new HashMap<String, String>();
-		formFlow = new FormFlow();
+		formFlow = new FormFlow("1");
 		formFlow.setDataDocument(dataDocument);
 	}
 	
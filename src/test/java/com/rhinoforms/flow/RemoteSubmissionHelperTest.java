@@ -1,9 +1,19 @@
 package com.rhinoforms.flow;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.net.URLDecoder;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.transform.TransformerException;
 
@@ -17,6 +27,7 @@ import com.rhinoforms.Constants;
 import com.rhinoforms.TestApplicationContext;
 import com.rhinoforms.TestConnectionFactory;
 import com.rhinoforms.TestUtil;
+import com.rhinoforms.net.ConnectionFactory;
 import com.rhinoforms.xml.DocumentHelper;
 import com.rhinoforms.xml.FlowExceptionXPath;
 
@@ -44,7 +55,7 @@ public class RemoteSubmissionHelperTest {
 		dataDocumentString = "<myData><something>a</something><another>anotherVal</another></myData>";
 		dataDocument = TestUtil.createDocument(dataDocumentString);
 		xsltParameters = new HashMap<String, String>();
-		formFlow = new FormFlow();
+		formFlow = new FormFlow("1");
 		formFlow.setDataDocument(dataDocument);
 		formFlow.setResourcesBase("");
 	}
@@ -311,6 +322,34 @@ public class RemoteSubmissionHelperTest {
 		Assert.assertEquals(dataDocumentString, dataDocumentStringAfterSubmission);
 	}
 	
+	@Test
+	public void testHandleRawSubmissionStreamed() throws Exception {
+		Submission submission = new Submission("http://localhost/dummyURL");
+		submission.setRawXmlRequest(true);
+		submission.setOmitXmlDeclaration(true);
+		submission.setPreTransform("xslt/toServerFormat.xsl");
+		
+		remoteSubmissionHelper.handleSubmission(submission, xsltParameters, formFlow);
+		
+		Assert.assertTrue(testConnectionFactory.getRecordedChunkLength() > 0);
+		String submittedData = new String(testConnectionFactory.getRecordedRequestStream().toByteArray());
+		Assert.assertEquals("<serverData><abc>a</abc></serverData>", submittedData.replaceAll("\\s", ""));
+	}
+	
+	@Test
+	public void testHandleRawSubmissionNotChunked() throws Exception {
+		remoteSubmissionHelper.setChunkedRequests(false);
+		Submission submission = new Submission("http://localhost/dummyURL");
+		submission.setRawXmlRequest(true);
+		submission.setOmitXmlDeclaration(true);
+		
+		remoteSubmissionHelper.handleSubmission(submission, xsltParameters, formFlow);
+		
+		Assert.assertEquals(0, testConnectionFactory.getRecordedChunkLength());
+		String submittedData = new String(testConnectionFactory.getRecordedRequestStream().toByteArray());
+		Assert.assertEquals(dataDocumentString, submittedData);
+	}
+	
 	@Test
 	public void testHandleSubmissionInsertResult() throws Exception {
 		Submission submission = new Submission("http://localhost/dummyURL");
@@ -443,6 +482,47 @@ public class RemoteSubmissionHelperTest {
 		Assert.assertEquals("<myData><something>a</something><another>anotherVal</another><submissionResult><submissionResult><premium>10.00</premium></submissionResult></submissionResult></myData>", dataDocumentStringAfterSubmission);
 	}
 	
+	@Test
+	public void testHandleSubmissionInsertResultReplacesAllChildren() throws Exception {
+		dataDocument = TestUtil.createDocument("<myData><submissionResult><a/><b/><c/></submissionResult></myData>");
+		formFlow.setDataDocument(dataDocument);
+		Submission submission = new Submission("http://localhost/dummyURL");
+		submission.setResultInsertPoint("/myData/submissionResult");
+		testConnectionFactory.setResponseString("<!-- comment --><data>one</data>");
+		
+		remoteSubmissionHelper.handleSubmission(submission, xsltParameters, formFlow);
+		
+		Assert.assertEquals("<myData><submissionResult><data>one</data></submissionResult></myData>", documentHelper.documentToString(dataDocument));
+	}
+	
+	@Test
+	public void testHandleSubmissionInsertResultWithDefaultNamespace() throws Exception {
+		Submission submission = new Submission("http://localhost/dummyURL");
+		submission.setResultInsertPoint("/myData/submissionResult");
+		testConnectionFactory.setResponseString("<quote xmlns=\"urn:rating\"><premium>5</premium></quote>");
+		
+		remoteSubmissionHelper.handleSubmission(submission, xsltParameters, formFlow);
+		
+		Assert.assertEquals(1, documentHelper.lookup(dataDocument, "/myData/submissionResult/quote/premium").getLength());
+	}
+	
+	@Test
+	public void testHandleSubmissionBadXmlLeavesInsertPoint() throws Exception {
+		dataDocument = TestUtil.createDocument("<myData><submissionResult><previous/></submissionResult></myData>");
+		formFlow.setDataDocument(dataDocument);
+		Submission submission = new Submission("http://localhost/dummyURL");
+		submission.setResultInsertPoint("/myData/submissionResult");
+		testConnectionFactory.setResponseString("<data>one</da");
+		
+		try {
+			remoteSubmissionHelper.handleSubmission(submission, xsltParameters, formFlow);
+			Assert.fail("Should have thrown Exception");
+		} catch (RemoteSubmissionHelperException e) {
+			Assert.assertEquals("Failed to insert submission result into the DataDocument.", e.getMessage());
+		}
+		Assert.assertEquals("<myData><submissionResult><previous/></submissionResult></myData>", documentHelper.documentToString(dataDocument));
+	}
+	
 	@Test
 	public void testSimplestHandleSubmissionPlainTextResponse() throws Exception {
 		String requestUrl = "http://localhost/dummyURL";
@@ -492,4 +572,143 @@ public class RemoteSubmissionHelperTest {
 		Assert.assertEquals(expectedParams, decoded);
 	}
 	
+	@Test
+	public void testHandleSubmissionsParallel() throws Exception {
+		SlowConnectionFactory slowConnectionFactory = new SlowConnectionFactory();
+		remoteSubmissionHelper.setConnectionFactory(slowConnectionFactory);
+		remoteSubmissionHelper.setExecutorService(Executors.newFixedThreadPool(3));
+		List<Submission> submissions = new ArrayList<Submission>();
+		// Slowest first so responses arrive in the opposite order to the submissions
+		submissions.add(createParallelSubmission("http://localhost/first?delay=300", "/myData/results/first"));
+		submissions.add(createParallelSubmission("http://localhost/second?delay=200", "/myData/results/second"));
+		submissions.add(createParallelSubmission("http://localhost/third?delay=100", "/myData/results/third"));
+		
+		long startTime = System.currentTimeMillis();
+		List<Integer> times = remoteSubmissionHelper.handleSubmissions(submissions, xsltParameters, formFlow);
+		long timeTaken = System.currentTimeMillis() - startTime;
+		
+		Assert.assertEquals(3, slowConnectionFactory.maxConcurrent.get());
+		Assert.assertTrue("Took " + timeTaken + "ms", timeTaken < 600);
+		Assert.assertEquals(3, times.size());
+		Assert.assertTrue(times.get(0) >= 300);
+		Assert.assertTrue(times.get(2) >= 100);
+		Assert.assertEquals("<myData><something>a</something><another>anotherVal</another><results><first><result>/first</result></first>"
+				+ "<second><result>/second</result></second><third><result>/third</result></third></results></myData>",
+				documentHelper.documentToString(dataDocument));
+	}
+	
+	@Test
+	public void testHandleSubmissionsNotParallelWaits() throws Exception {
+		SlowConnectionFactory slowConnectionFactory = new SlowConnectionFactory();
+		remoteSubmissionHelper.setConnectionFactory(slowConnectionFactory);
+		remoteSubmissionHelper.setExecutorService(Executors.newFixedThreadPool(3));
+		List<Submission> submissions = new ArrayList<Submission>();
+		submissions.add(createParallelSubmission("http://localhost/first?delay=100", "/myData/results/first"));
+		Submission dependent = createParallelSubmission("http://localhost/second?delay=100", "/myData/results/second");
+		dependent.setParallel(false);
+		submissions.add(dependent);
+		submissions.add(createParallelSubmission("http://localhost/third?delay=100", "/myData/results/third"));
+		
+		List<Integer> times = remoteSubmissionHelper.handleSubmissions(submissions, xsltParameters, formFlow);
+		
+		Assert.assertEquals(1, slowConnectionFactory.maxConcurrent.get());
+		Assert.assertEquals(3, times.size());
+		Assert.assertEquals("<myData><something>a</something><another>anotherVal</another><results><first><result>/first</result></first>"
+				+ "<second><result>/second</result></second><third><result>/third</result></third></results></myData>",
+				documentHelper.documentToString(dataDocument));
+	}
+	
+	@Test
+	public void testHandleSubmissionsParallelBadResult() throws Exception {
+		SlowConnectionFactory slowConnectionFactory = new SlowConnectionFactory();
+		remoteSubmissionHelper.setConnectionFactory(slowConnectionFactory);
+		remoteSubmissionHelper.setExecutorService(Executors.newFixedThreadPool(3));
+		List<Submission> submissions = new ArrayList<Submission>();
+		submissions.add(createParallelSubmission("http://localhost/first?delay=100", "/myData/results/first"));
+		Submission failing = createParallelSubmission("http://localhost/second?delay=0&status=500", "/myData/results/second");
+		failing.setMessageOnHttpError("Second service unavailable.");
+		submissions.add(failing);
+		
+		try {
+			remoteSubmissionHelper.handleSubmissions(submissions, xsltParameters, formFlow);
+			Assert.fail("Should have thrown Exception");
+		} catch (RemoteSubmissionHelperException e) {
+			Assert.assertEquals("Second service unavailable.", e.getFrontendMessage());
+		}
+	}
+
+	private Submission createParallelSubmission(String url, String resultInsertPoint) {
+		Submission submission = new Submission(url);
+		submission.setMethod("GET");
+		submission.setResultInsertPoint(resultInsertPoint);
+		submission.setParallel(true);
+		return submission;
+	}
+	
+	/**
+	 * Responds with the request path after the number of milliseconds in the delay parameter.
+	 */
+	private static class SlowConnectionFactory implements ConnectionFactory {
+		
+		private AtomicInteger concurrent = new AtomicInteger();
+		private AtomicInteger maxConcurrent = new AtomicInteger();
+		
+		@Override
+		public HttpURLConnection openConnection(String url) throws MalformedURLException, IOException {
+			final URL parsedUrl = new URL(url);
+			return new HttpURLConnection(parsedUrl) {
+				
+				private int status = 200;
+				
+				@Override
+				public void connect() throws IOException {
+				}
+				
+				@Override
+				public boolean usingProxy() {
+					return false;
+				}
+				
+				@Override
+				public void disconnect() {
+				}
+				
+				@Override
+				public int getResponseCode() throws IOException {
+					int now = concurrent.incrementAndGet();
+					try {
+						int max;
+						while ((max = maxConcurrent.get()) < now && !maxConcurrent.compareAndSet(max, now)) {
+						}
+						for (String param : parsedUrl.getQuery().split("&")) {
+							String[] nameValue = param.split("=");
+							if (nameValue[0].equals("delay")) {
+								Thread.sleep(Long.parseLong(nameValue[1]));
+							} else if (nameValue[0].equals("status")) {
+								status = Integer.parseInt(nameValue[1]);
+							}
+						}
+					} catch (InterruptedException e) {
+						throw new IOException("Interrupted");
+					} finally {
+						concurrent.decrementAndGet();
+					}
+					return status;
+				}
+				
+				@Override
+				public String getContentType() {
+					return "application/xml";
+				}
+				
+				@Override
+				public InputStream getInputStream() throws IOException {
+					return new ByteArrayInputStream(("<result>" + parsedUrl.getPath() + "</result>").getBytes());
+				}
+				
+			};
+		}
+		
+	}
+	
 }
@@ -0,0 +1,84 @@
+package com.rhinoforms.flow;
+
+import java.io.StringWriter;
+
+import javax.xml.transform.stream.StreamResult;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import com.rhinoforms.RhinoformsProperties;
+import com.rhinoforms.TestResourceLoader;
+import com.rhinoforms.TestUtil;
+import com.rhinoforms.resourceloader.ResourceLoaderImpl;
+import com.rhinoforms.xml.DocumentHelper;
+
+public class TransformHelperTest {
+
+	private ResourceLoaderImpl resourceLoader;
+	private TransformHelper transformHelper;
+	private Document dataDocument;
+
+	@Before
+	public void setup() throws Exception {
+		resourceLoader = new ResourceLoaderImpl(new TestResourceLoader(), new TestResourceLoader());
+		transformHelper = new TransformHelper(resourceLoader);
+		resourceLoader.addFormResourcesChangedListener(transformHelper);
+		dataDocument = TestUtil.createDocument("<myData><something>a</something></myData>");
+	}
+
+	@Test
+	public void testTemplatesCached() throws Exception {
+		Assert.assertEquals("<serverData><abc>a</abc></serverData>", transform());
+		Assert.assertEquals("<serverData><abc>a</abc></serverData>", transform());
+
+		Assert.assertEquals(1, transformHelper.getMissCount());
+		Assert.assertEquals(1, transformHelper.getHitCount());
+	}
+
+	@Test
+	public void testTemplatesClearedWhenResourcesChange() throws Exception {
+		transform();
+		resourceLoader.formResourcesChanged();
+		Assert.assertEquals("<serverData><abc>a</abc></serverData>", transform());
+
+		Assert.assertEquals(2, transformHelper.getMissCount());
+		Assert.assertEquals(0, transformHelper.getHitCount());
+	}
+
+	@Test
+	public void testTemplatesNotCachedWhenFormResourceCachingOff() throws Exception {
+		RhinoformsProperties rhinoformsProperties = RhinoformsProperties.getInstance();
+		boolean formResourceCaching = rhinoformsProperties.isFormResourceCaching();
+		rhinoformsProperties.setFormResourceCaching(false);
+		try {
+			transformHelper = new TransformHelper(resourceLoader);
+			transform();
+			Assert.assertEquals("<serverData><abc>a</abc></serverData>", transform());
+
+			Assert.assertEquals(2, transformHelper.getMissCount());
+			Assert.assertEquals(0, transformHelper.getHitCount());
+		} finally {
+			rhinoformsProperties.setFormResourceCaching(formResourceCaching);
+		}
+	}
+
+	@Test
+	public void testNodeTransformUsesCachedTemplates() throws Exception {
+		transform();
+		String result = new DocumentHelper().documentToString(transformHelper.handleTransform("xslt/toServerFormat.xsl", true, dataDocument));
+
+		Assert.assertEquals("<serverData><abc>a</abc></serverData>", result);
+		Assert.assertEquals(1, transformHelper.getHitCount());
+	}
+
+	private String transform() throws Exception {
+		StringWriter writer = new StringWriter();
+		transformHelper.handleTransform("xslt/toServerFormat.xsl", true, null, dataDocument, new StreamResult(writer));
+		return writer.toString().replaceAll("\\s", "");
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.rhinoforms.flowstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutput;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+
+import com.rhinoforms.TestApplicationContext;
+import com.rhinoforms.flow.FormFlow;
+import com.rhinoforms.flow.FormFlowFactory;
+import com.rhinoforms.xml.DocumentHelper;
+
+public class FileFlowStoreTest {
+
+	private File directory;
+	private FileFlowStore flowStore;
+	private FormFlowFactory formFlowFactory;
+
+	@Before
+	public void setup() throws Exception {
+		Context.enter();
+		formFlowFactory = new TestApplicationContext().getFormFlowFactory();
+		directory = File.createTempFile("rhinoforms-flows", "");
+		directory.delete();
+		flowStore = new FileFlowStore(directory, 1, 0, 0);
+	}
+
+	@After
+	public void after() {
+		Context.exit();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testEvictedFlowPassivatedAndActivated() throws Exception {
+		DocumentHelper documentHelper = new DocumentHelper();
+		FormFlow formFlowA = formFlowFactory.createFlow("test-flow1.js", "<myData><name>Kai</name></myData>");
+		formFlowA.navigateToFirstForm(documentHelper);
+		FormFlow formFlowB = formFlowFactory.createFlow("test-flow1.js", null);
+		flowStore.setFlow(formFlowA, null);
+		flowStore.setFlow(formFlowB, null);
+
+		File file = new File(directory, formFlowA.getId() + ".flow");
+		Assert.assertTrue(file.isFile());
+		Assert.assertEquals(1, flowStore.getSize());
+
+		FormFlow activatedFlow = flowStore.getFlow(formFlowA.getId(), null);
+		Assert.assertNotSame(formFlowA, activatedFlow);
+		Assert.assertFalse(file.exists());
+		formFlowFactory.attachFlowDefinition(activatedFlow);
+		Assert.assertEquals("one", activatedFlow.getCurrentFormId());
+		Assert.assertEquals("<myData><name>Kai</name></myData>", documentHelper.documentToString(activatedFlow.getDataDocument()));
+
+		// Flow B was evicted to make room
+		Assert.assertTrue(new File(directory, formFlowB.getId() + ".flow").isFile());
+	}
+
+	@Test
+	public void testClosePassivatesAll() throws Exception {
+		FormFlow formFlow = formFlowFactory.createFlow("test-flow1.js", null);
+		flowStore.setFlow(formFlow, null);
+		flowStore.close();
+		Assert.assertEquals(0, flowStore.getSize());
+
+		FileFlowStore restartedFlowStore = new FileFlowStore(directory, 1, 0, 0);
+		Assert.assertEquals(formFlow.getId(), restartedFlowStore.getFlow(formFlow.getId(), null).getId());
+	}
+
+	@Test
+	public void testRemoveDeletesFile() throws Exception {
+		FormFlow formFlow = formFlowFactory.createFlow("test-flow1.js", null);
+		flowStore.setFlow(formFlow, null);
+		flowStore.close();
+		flowStore.removeFlow(formFlow, null);
+		Assert.assertNull(flowStore.getFlow(formFlow.getId(), null));
+		Assert.assertNull(flowStore.getFlow("../" + formFlow.getId(), null));
+	}
+
+	@Test
+	public void testRemovedWhilePassivatingNotKept() throws Exception {
+		FormFlow formFlow = new FormFlow("1") {
+			@Override
+			public void writeExternal(ObjectOutput out) throws IOException {
+				try {
+					flowStore.removeFlow(this, null);
+				} catch (FlowStoreException e) {
+					throw new IOException(e.getMessage());
+				}
+				super.writeExternal(out);
+			}
+		};
+		flowStore.setFlow(formFlow, null);
+		flowStore.setFlow(new FormFlow("2"), null);
+
+		Assert.assertFalse(new File(directory, "1.flow").exists());
+		Assert.assertNull(flowStore.getFlow("1", null));
+		Assert.assertEquals(0, directory.listFiles().length);
+	}
+
+}
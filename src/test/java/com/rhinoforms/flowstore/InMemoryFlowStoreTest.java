@@ -0,0 +1,79 @@
+package com.rhinoforms.flowstore;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.rhinoforms.flow.FormFlow;
+
+public class InMemoryFlowStoreTest {
+
+	private long now;
+	private InMemoryFlowStore flowStore;
+
+	@Before
+	public void setup() {
+		now = 1000;
+		flowStore = new InMemoryFlowStore(2, 60000) {
+			@Override
+			protected long currentTimeMillis() {
+				return now;
+			}
+		};
+	}
+
+	@Test
+	public void testSetAndGet() throws Exception {
+		FormFlow formFlow = new FormFlow("1");
+		flowStore.setFlow(formFlow, null);
+		Assert.assertFalse(formFlow.isChanged());
+		Assert.assertSame(formFlow, flowStore.getFlow(formFlow.getId(), null));
+		Assert.assertNull(flowStore.getFlow("123", null));
+
+		flowStore.removeFlow(formFlow, null);
+		Assert.assertNull(flowStore.getFlow(formFlow.getId(), null));
+	}
+
+	@Test
+	public void testUpdateOnlyWhenChanged() throws Exception {
+		FormFlow formFlow = new FormFlow("2");
+		flowStore.setFlow(formFlow, null);
+		Assert.assertFalse(flowStore.updateFlow(formFlow, null));
+		formFlow.markChanged();
+		Assert.assertTrue(flowStore.updateFlow(formFlow, null));
+		Assert.assertEquals(2, flowStore.getStoreCount());
+		Assert.assertEquals(1, flowStore.getUnchangedCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() throws Exception {
+		FormFlow formFlowA = new FormFlow("3");
+		FormFlow formFlowB = new FormFlow("4");
+		FormFlow formFlowC = new FormFlow("5");
+		flowStore.setFlow(formFlowA, null);
+		flowStore.setFlow(formFlowB, null);
+		flowStore.getFlow(formFlowA.getId(), null);
+		flowStore.setFlow(formFlowC, null);
+
+		Assert.assertEquals(2, flowStore.getSize());
+		Assert.assertSame(formFlowA, flowStore.getFlow(formFlowA.getId(), null));
+		Assert.assertNull(flowStore.getFlow(formFlowB.getId(), null));
+		Assert.assertSame(formFlowC, flowStore.getFlow(formFlowC.getId(), null));
+	}
+
+	@Test
+	public void testIdleEvicted() throws Exception {
+		FormFlow formFlowA = new FormFlow("6");
+		FormFlow formFlowB = new FormFlow("7");
+		flowStore.setFlow(formFlowA, null);
+		now += 40000;
+		flowStore.setFlow(formFlowB, null);
+		now += 30000;
+
+		Assert.assertNull(flowStore.getFlow(formFlowA.getId(), null));
+		Assert.assertSame(formFlowB, flowStore.getFlow(formFlowB.getId(), null));
+		Assert.assertEquals(1, flowStore.getSize());
+	}
+
+}
@@ -11,6 +11,7 @@ import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import junit.framework.Assert;
@@ -86,6 +87,80 @@ public class FormParserTest {
 		Assert.assertTrue(parsedFormHtml.contains("type=\"checkbox\" name=\"canWalkOnHands\" checked=\"checked\""));
 	}
 	
+	@Test
+	public void testCachedFormTemplateNotModifiedByParse() throws Exception {
+		this.formFlow = formFlowFactory.createFlow("test-flow1.js", "<myData><terms>disagree</terms><title>Miss</title></myData>");
+		this.formFlow.navigateToFirstForm(documentHelper);
+		ByteArrayOutputStream firstOutputStream = new ByteArrayOutputStream();
+		formParser.parseForm("all-input-types.html", formFlow, new PrintWriter(firstOutputStream), masterScope, false);
+		String firstHtml = new String(firstOutputStream.toByteArray());
+		Assert.assertTrue(firstHtml.contains("<option selected=\"selected\">Miss</option>"));
+
+		this.formFlow = formFlowFactory.createFlow("test-flow1.js", "<myData><terms>agree</terms><title>Mr</title></myData>");
+		this.formFlow.navigateToFirstForm(documentHelper);
+		ByteArrayOutputStream secondOutputStream = new ByteArrayOutputStream();
+		formParser.parseForm("all-input-types.html", formFlow, new PrintWriter(secondOutputStream), masterScope, false);
+		String secondHtml = new String(secondOutputStream.toByteArray());
+		Assert.assertTrue(secondHtml.contains("<option selected=\"selected\">Mr</option>"));
+		Assert.assertFalse("Values from the first parse should not be in the cached template.", secondHtml.contains("<option selected=\"selected\">Miss</option>"));
+		Assert.assertEquals("Options should only be added once.", firstHtml.split("<option").length, secondHtml.split("<option").length);
+		Assert.assertEquals(6, formFlow.getCurrentInputPojos().size());
+
+		formParser.formResourcesChanged();
+		ByteArrayOutputStream thirdOutputStream = new ByteArrayOutputStream();
+		formParser.parseForm("all-input-types.html", formFlow, new PrintWriter(thirdOutputStream), masterScope, false);
+		Assert.assertEquals(secondHtml, new String(thirdOutputStream.toByteArray()));
+	}
+
+	@Test
+	public void testCompiledFormRendersSameAsDynamicParse() throws Exception {
+		this.formFlow = formFlowFactory.createFlow("forms/all-types/flow.js", "<data><title>Mrs</title><canWalkOnHands>true</canWalkOnHands></data>");
+		this.formFlow.navigateToFirstForm(documentHelper);
+
+		ByteArrayOutputStream dynamicOutputStream = new ByteArrayOutputStream();
+		formParser.parseForm(new FileInputStream("src/main/webapp/forms/all-types/all-types.html"), formFlow, new PrintWriter(dynamicOutputStream), masterScope, false);
+		List<InputPojo> dynamicInputPojos = formFlow.getCurrentInputPojos();
+
+		ByteArrayOutputStream compiledOutputStream = new ByteArrayOutputStream();
+		formParser.parseForm("/forms/all-types/all-types.html", formFlow, new PrintWriter(compiledOutputStream), masterScope, false);
+		List<InputPojo> compiledInputPojos = formFlow.getCurrentInputPojos();
+
+		Assert.assertEquals(new String(dynamicOutputStream.toByteArray()), new String(compiledOutputStream.toByteArray()));
+		Assert.assertEquals(dynamicInputPojos.size(), compiledInputPojos.size());
+		for (int i = 0; i < dynamicInputPojos.size(); i++) {
+			Assert.assertEquals(dynamicInputPojos.get(i).getName(), compiledInputPojos.get(i).getName());
+			Assert.assertEquals(dynamicInputPojos.get(i).getRfAttributes(), compiledInputPojos.get(i).getRfAttributes());
+		}
+	}
+
+	@Test
+	public void testCompileFormWithForEachIsNotPrecompiled() throws Exception {
+		TagNode html = htmlCleaner.clean(new FileInputStream("src/test/resources/fishes.html"));
+		Assert.assertFalse(formParser.compileForm(html).isPrecompiled());
+
+		html = htmlCleaner.clean(new FileInputStream("src/test/resources/all-input-types.html"));
+		Assert.assertTrue(formParser.compileForm(html).isPrecompiled());
+	}
+
+	@Test
+	public void performanceTestNoAssertions() throws Exception {
+		this.formFlow = formFlowFactory.createFlow("forms/all-types/flow.js", "<data><title>Mrs</title></data>");
+		this.formFlow.navigateToFirstForm(documentHelper);
+		int a = 200;
+
+		long start = new Date().getTime();
+		for (int i = 0; i < a; i++) {
+			formParser.parseForm(new FileInputStream("src/main/webapp/forms/all-types/all-types.html"), formFlow, new PrintWriter(new ByteArrayOutputStream()), masterScope, false);
+		}
+		System.out.println("Parsed all-types form " + a + " times in " + new Float(new Date().getTime() - start) / 1000 + " seconds");
+
+		start = new Date().getTime();
+		for (int i = 0; i < a; i++) {
+			formParser.parseForm("/forms/all-types/all-types.html", formFlow, new PrintWriter(new ByteArrayOutputStream()), masterScope, false);
+		}
+		System.out.println("Rendered compiled all-types form " + a + " times in " + new Float(new Date().getTime() - start) / 1000 + " seconds");
+	}
+
 	@Test
 	public void testSelectFromCSV() throws Exception {
 		this.formFlow = formFlowFactory.createFlow("test-flow1.js", null);
@@ -137,29 +137,111 @@ public class ValueInjectorTest {
 	}
 	
 	@Test
-	public void testStringBuilderToNode() throws Exception {
-		String html = "<div><span>one</span><span>two</span></div>";
-		TagNode node = valueInjector.stringBuilderToNode(new StringBuilder(html));
-		String actual = serialiseHtmlCleanerNode(node);
-		Assert.assertEquals(html, actual);
+	public void testProcessCurlyBracketsInPlace() throws Exception {
+		dataDocument = createDocument("<myData><name>Pacific</name><css>big</css></myData>");
+		formHtml = htmlCleaner.clean(new StringReader("<div class=\"{{css}}\"><span>{{name}}</span></div>"));
+		TagNode span = formHtml.findElementByName("span", true);
+
+		valueInjector.processCurlyBrackets(dataDocument, formHtml, properties, "/myData");
+
+		Assert.assertSame("Html is not re-parsed.", span, formHtml.findElementByName("span", true));
+		Assert.assertEquals("<html><head></head><body><div class=\"big\"><span>Pacific</span></div></body></html>", serialiseHtmlCleanerNode(formHtml));
 	}
-	
+
 	@Test
-	public void testStringBuilderBodyToNode() throws Exception {
-		String html = "<body><span>one</span><span>two</span></body>";
-		TagNode node = valueInjector.stringBuilderBodyToNode(new StringBuilder(html));
-		String actual = serialiseHtmlCleanerNode(node);
-		Assert.assertEquals(html, actual);
+	public void testReplaceCurlyBracketsUnresolvedAndMalformed() throws Exception {
+		StringBuilder builder = new StringBuilder("a {{$missing}} b {{}} c {{name}} d {{name} e {{$someUrl}}");
+		properties.put("someUrl", "url");
+
+		valueInjector.replaceCurlyBrackets(properties, builder, createDocument("<ocean><name>Pacific</name></ocean>").getDocumentElement());
+
+		Assert.assertEquals("a {{$missing}} b {{}} c Pacific d {{name} e url", builder.toString());
 	}
-	
+
 	@Test
-	public void testNodeToStringBuilder() throws Exception {
-		String html = "<div><span>one</span><span>two</span></div>";
-		TagNode node = valueInjector.stringBuilderToNode(new StringBuilder(html));
-		StringBuilder stringBuilder = valueInjector.nodeToStringBuilder(node);
-		Assert.assertEquals(html, stringBuilder.toString());
+	public void testReplaceCurlyBracketsValueNotReprocessed() throws Exception {
+		StringBuilder builder = new StringBuilder("{{$one}}{{$two}}");
+		properties.put("one", "{{$two}}");
+		properties.put("two", "2");
+
+		valueInjector.replaceCurlyBrackets(properties, builder, dataDocument);
+
+		Assert.assertEquals("{{$two}}2", builder.toString());
 	}
-	
+
+	@Test
+	public void testCurlyBracketTemplateParse() throws Exception {
+		CurlyBracketTemplate template = CurlyBracketTemplate.parse("<span>{{aFish.index}}</span>{{$prop}}");
+		Assert.assertEquals(3, template.getLiterals().length);
+		Assert.assertEquals("<span>", template.getLiterals()[0]);
+		Assert.assertEquals("</span>", template.getLiterals()[1]);
+		Assert.assertEquals("", template.getLiterals()[2]);
+		Assert.assertEquals("aFish", template.getPlaceholders()[0].getContextName());
+		Assert.assertEquals("index", template.getPlaceholders()[0].getContextPath());
+		Assert.assertEquals("prop", template.getPlaceholders()[1].getPropertyName());
+
+		Assert.assertFalse(CurlyBracketTemplate.parse("<span>{ {not} }</span>").hasPlaceholders());
+	}
+
+	@Test
+	public void testProcessCurlyBracketsValuesInsertedAsText() throws Exception {
+		dataDocument = createDocument("<myData><name>A&lt;i&gt; &amp; &quot;B&quot;</name></myData>");
+		formHtml = htmlCleaner.clean(new StringReader("<div title=\"{{name}}\"><span>{{name}}</span><script>var name = '{{name}}';</script></div>"));
+
+		valueInjector.processCurlyBrackets(dataDocument, formHtml, properties, "/myData");
+
+		Assert.assertEquals("<html><head></head><body><div title=\"A&lt;i&gt; &amp; &quot;B&quot;\"><span>A&lt;i&gt; &amp; &quot;B&quot;</span>"
+				+ "<script>var name = 'A<i> & \"B\"';</script></div></body></html>", serialiseHtmlCleanerNode(formHtml));
+	}
+
+	@Test
+	public void testCompiledTemplateSharedByCopies() throws Exception {
+		formHtml = htmlCleaner.clean(new StringReader("<div class=\"{{css}}\"><span>{{name}}</span></div>"));
+		TagNode compiled = new CurlyBracketCompiler().deepCopy(formHtml);
+
+		TagNode copy = new TagNodeCopier().deepCopy(compiled);
+
+		CurlyBracketTagNode compiledDiv = (CurlyBracketTagNode) compiled.findElementByName("div", true);
+		CurlyBracketTagNode copyDiv = (CurlyBracketTagNode) copy.findElementByName("div", true);
+		Assert.assertSame(compiledDiv.getAttributeTemplates(), copyDiv.getAttributeTemplates());
+		CurlyBracketContentNode compiledText = (CurlyBracketContentNode) compiled.findElementByName("span", true).getChildren().get(0);
+		CurlyBracketContentNode copyText = (CurlyBracketContentNode) copy.findElementByName("span", true).getChildren().get(0);
+		Assert.assertSame(compiledText.getTemplate(), copyText.getTemplate());
+	}
+
+	@Test
+	public void testCompiledTemplateRendersSameAsParsed() throws Exception {
+		dataDocument = createDocument("<myData><ocean><name>Atlantic</name><fishes><fish><name>A One</name></fish><fish><name>A Two</name></fish></fishes></ocean><ocean><name>Pacific</name><fishes><fish><name>P One</name></fish><fish><name>P Two</name></fish><fish><name>P Three</name></fish></fishes></ocean></myData>");
+		String expectedHtml = new String(streamUtils.readStream(getClass().getResourceAsStream("nested-for-each-with-nested-iteration-expected.html")));
+		TagNode compiled = new CurlyBracketCompiler().deepCopy(htmlCleaner.clean(getClass().getResourceAsStream("nested-for-each-with-nested-iteration-source.html")));
+		TagNodeCopier tagNodeCopier = new TagNodeCopier();
+
+		for (int i = 0; i < 2; i++) {
+			formHtml = tagNodeCopier.deepCopy(compiled);
+			valueInjector.processForEachStatements(null, formHtml, dataDocument, "/myData");
+			Assert.assertEquals(expectedHtml, serialiseHtmlCleanerNode(formHtml));
+		}
+
+		dataDocument = createDocument("<myData><fishes><fish_one>One</fish_one><fish_two>Two</fish_two><fish_three/></fishes></myData>");
+		TagNode parsed = htmlCleaner.clean(new FileInputStream("src/test/resources/fishes-text-nodes.html"));
+		formHtml = new CurlyBracketCompiler().deepCopy(parsed);
+		valueInjector.processForEachStatements(properties, parsed, dataDocument, "/myData");
+		valueInjector.processCurlyBrackets(dataDocument, parsed, properties, "/myData");
+		valueInjector.processForEachStatements(properties, formHtml, dataDocument, "/myData");
+		valueInjector.processCurlyBrackets(dataDocument, formHtml, properties, "/myData");
+		Assert.assertEquals(serialiseHtmlCleanerNode(parsed), serialiseHtmlCleanerNode(formHtml));
+
+		// Leading newlines are removed from compiled text
+		parsed = htmlCleaner.clean(new StringReader("<div><rf.forEach select=\"fishes/*\" as=\"aFish\">\n\t{{aFish}},</rf.forEach>\n\n{{fishes/fish_one}}</div>"));
+		formHtml = new CurlyBracketCompiler().deepCopy(parsed);
+		valueInjector.processForEachStatements(properties, parsed, dataDocument, "/myData");
+		valueInjector.processCurlyBrackets(dataDocument, parsed, properties, "/myData");
+		valueInjector.processForEachStatements(properties, formHtml, dataDocument, "/myData");
+		valueInjector.processCurlyBrackets(dataDocument, formHtml, properties, "/myData");
+		Assert.assertEquals("<html><head></head><body><div> One, Two, ,One</div></body></html>", serialiseHtmlCleanerNode(parsed));
+		Assert.assertEquals(serialiseHtmlCleanerNode(parsed), serialiseHtmlCleanerNode(formHtml));
+	}
+
 	@Test
 	public void testProcessFlowDefinitionCurlyBrackets() throws Exception {
 		String initialFlowDef = "{ docBase: '{{$baseNode}}', formLists: { main: [ { id: 'customer', url: '/forms/simplest/{{$firstForm}}', actions: [ 'finish' ] } ] } }";
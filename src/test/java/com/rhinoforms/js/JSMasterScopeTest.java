@@ -1,7 +1,10 @@
 package com.rhinoforms.js;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import junit.framework.Assert;
 
@@ -12,9 +15,11 @@ import org.mozilla.javascript.Context;
 import org.mozilla.javascript.EvaluatorException;
 import org.mozilla.javascript.Scriptable;
 
+import com.rhinoforms.TestConnectionFactory;
 import com.rhinoforms.TestResourceLoader;
 import com.rhinoforms.resourceloader.ResourceLoaderException;
 import com.rhinoforms.resourceloader.ResourceLoaderImpl;
+import com.rhinoforms.resourceloader.SingleSourceResourceLoader;
 
 public class JSMasterScopeTest {
 
@@ -25,7 +30,7 @@ public class JSMasterScopeTest {
 	public void setup() throws IOException, ResourceLoaderException {
 		context = Context.enter();
 		TestResourceLoader loader = new TestResourceLoader();
-		masterScope = new RhinoFormsMasterScopeFactory().createMasterScope(context, new ResourceLoaderImpl(loader, loader));
+		masterScope = new RhinoFormsMasterScopeFactory().createMasterScope(context, new ResourceLoaderImpl(loader, loader), new TestConnectionFactory());
 	}
 	
 	@Test
@@ -41,6 +46,37 @@ public class JSMasterScopeTest {
 		context.evaluateString(workingScope, "rf.getCurrentAction = function() { return 'hello'; }", "test", 1, null);
 	}
 	
+	@Test
+	public void testLibraryCompiledOnceAndRunInEachWorkingScope() throws Exception {
+		List<String> libraries = Collections.singletonList("/js/testUtil.js");
+		Scriptable workingScopeA = masterScope.createWorkingScope(libraries);
+		Scriptable workingScopeB = masterScope.createWorkingScope(libraries);
+		
+		Assert.assertEquals(1, masterScope.getLibraryScriptCacheSize());
+		Assert.assertEquals(1, Context.toNumber(context.evaluateString(workingScopeA, "myTestUtilFunction();", "test", 1, null)), 0);
+		Assert.assertEquals(1, Context.toNumber(context.evaluateString(workingScopeB, "myTestUtilFunction();", "test", 1, null)), 0);
+		Assert.assertNotSame(workingScopeA.get("myTestUtilFunction", workingScopeA), workingScopeB.get("myTestUtilFunction", workingScopeB));
+		
+		masterScope.formResourcesChanged();
+		Assert.assertEquals(0, masterScope.getLibraryScriptCacheSize());
+	}
+	
+	@Test(expected = FlowExceptionFileNotFound.class)
+	public void testLibraryNotFound() throws Exception {
+		TestResourceLoader webappLoader = new TestResourceLoader();
+		SingleSourceResourceLoader emptyFormLoader = new SingleSourceResourceLoader() {
+			@Override
+			public InputStream getResourceAsStream(String path) {
+				return null;
+			}
+			@Override
+			public void initialise(String resourcesSource) {
+			}
+		};
+		masterScope = new RhinoFormsMasterScopeFactory().createMasterScope(context, new ResourceLoaderImpl(webappLoader, emptyFormLoader), new TestConnectionFactory());
+		masterScope.createWorkingScope(Collections.singletonList("/js/missing.js"));
+	}
+	
 	@Test
 	public void performanceTestNoAssertions() throws IOException {
 		long start = new Date().getTime();
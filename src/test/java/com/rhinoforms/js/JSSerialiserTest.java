@@ -7,6 +7,9 @@ import junit.framework.Assert;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 
 import com.rhinoforms.Constants;
 import com.rhinoforms.flow.InputPojo;
@@ -108,4 +111,39 @@ public class JSSerialiserTest {
 		Assert.assertEquals("{\"one\":{name:\"one\",value:\"\",validation:\"required\",validationFunction:\"{ if(fields.veggie.value == false) { this.validate('required'); } }\",rfAttributes:{\"rf.customType\":\"auto-complete-select\",\"rf.source\":\"http://somewhere/something?occupation=bricklayer\"},included:true}}", js);
 	}
 	
+	@Test
+	public void testNativeObject() throws Exception {
+		Context context = Context.enter();
+		try {
+			Scriptable scope = context.initStandardObjects();
+			ArrayList<InputPojo> inputPojos = new ArrayList<InputPojo>();
+			HashMap<String, String> rfAttributes = new HashMap<String, String>();
+			rfAttributes.put(Constants.VALIDATION_ATTR, "required");
+			rfAttributes.put(Constants.SELECT_SOURCE_ATTR, "http://somewhere/something?occupation=\"bricklayer\"");
+			InputPojo input = new InputPojo("parent.one", "text", rfAttributes);
+			input.setValue("say \"hello\"\r\nagain");
+			inputPojos.add(input);
+			inputPojos.add(new InputPojo("veggie", "checkbox", "true"));
+			inputPojos.add(new InputPojo("", "text", "no name"));
+			
+			Scriptable fields = jsSerialiser.inputPOJOListToNativeObject(inputPojos, context, scope);
+			ScriptableObject.putProperty(scope, "fields", fields);
+			
+			Assert.assertEquals(2, fields.getIds().length);
+			Assert.assertEquals("parent.one", evaluate(context, scope, "fields.parent_one.name"));
+			Assert.assertEquals("say \"hello\"\nagain", evaluate(context, scope, "fields.parent_one.value"));
+			Assert.assertEquals("required", evaluate(context, scope, "fields.parent_one.validation"));
+			Assert.assertEquals("http://somewhere/something?occupation=\"bricklayer\"", evaluate(context, scope, "fields.parent_one.rfAttributes['rf.source']"));
+			Assert.assertEquals("undefined", evaluate(context, scope, "typeof fields.parent_one.rfAttributes['" + Constants.VALIDATION_ATTR + "']"));
+			Assert.assertEquals("true", evaluate(context, scope, "fields.parent_one.included === true"));
+			Assert.assertEquals("true", evaluate(context, scope, "fields.veggie.value === true"));
+		} finally {
+			Context.exit();
+		}
+	}
+	
+	private String evaluate(Context context, Scriptable scope, String source) {
+		return Context.toString(context.evaluateString(scope, source, "test", 1, null));
+	}
+	
 }
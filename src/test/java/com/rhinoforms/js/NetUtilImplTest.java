@@ -0,0 +1,95 @@
+package com.rhinoforms.js;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.NativeArray;
+
+import com.rhinoforms.TestConnectionFactory;
+import com.rhinoforms.TestResourceLoader;
+import com.rhinoforms.resourceloader.ResourceLoaderImpl;
+
+public class NetUtilImplTest {
+
+	private static final String URL = "http://localhost/lookup?value=bri";
+	private Context context;
+	private JSMasterScope masterScope;
+	private TestConnectionFactory connectionFactory;
+
+	@Before
+	public void setup() throws Exception {
+		context = Context.enter();
+		TestResourceLoader loader = new TestResourceLoader();
+		masterScope = new RhinoFormsMasterScopeFactory().createMasterScope(context, new ResourceLoaderImpl(loader, loader), new TestConnectionFactory());
+		connectionFactory = new TestConnectionFactory();
+		connectionFactory.setResponseString("[['1', 'Brighton'], ['2', 'Bristol']]");
+	}
+
+	@Test
+	public void testResponseCachedAndNotShared() throws Exception {
+		NetUtilImpl netUtil = new NetUtilImpl(masterScope, connectionFactory, 60000, 10, 1000, 2000);
+
+		NativeArray first = (NativeArray) netUtil.httpGetJsObject(URL);
+		NativeArray second = (NativeArray) netUtil.httpGetJsObject(URL);
+
+		Assert.assertEquals(1, connectionFactory.getConnectionCount());
+		Assert.assertEquals(2, first.getLength());
+		Assert.assertEquals(2, second.getLength());
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals(1, netUtil.getHitCount());
+		Assert.assertEquals(1, netUtil.getMissCount());
+	}
+
+	@Test
+	public void testExpiredResponseRevalidated() throws Exception {
+		NetUtilImpl netUtil = new NetUtilImpl(masterScope, connectionFactory, 1, 10, 1000, 2000);
+		connectionFactory.setResponseHeader("ETag", "\"abc\"");
+		connectionFactory.setResponseHeader("Last-Modified", "Tue, 15 Nov 1994 12:45:26 GMT");
+
+		netUtil.httpGetJsObject(URL);
+		Assert.assertNull(connectionFactory.getRecordedRequestProperties().get("If-None-Match"));
+		Thread.sleep(5);
+
+		connectionFactory.setResponseCode(304);
+		connectionFactory.setResponseString("");
+		NativeArray revalidated = (NativeArray) netUtil.httpGetJsObject(URL);
+
+		Assert.assertEquals(2, connectionFactory.getConnectionCount());
+		Assert.assertEquals("\"abc\"", connectionFactory.getRecordedRequestProperties().get("If-None-Match"));
+		Assert.assertEquals("Tue, 15 Nov 1994 12:45:26 GMT", connectionFactory.getRecordedRequestProperties().get("If-Modified-Since"));
+		Assert.assertEquals(2, revalidated.getLength());
+		Assert.assertEquals(1, netUtil.getRevalidatedCount());
+		Assert.assertEquals(0, connectionFactory.getOpenConnectionCount());
+	}
+
+	@Test
+	public void testCacheDisabled() throws Exception {
+		NetUtilImpl netUtil = new NetUtilImpl(masterScope, connectionFactory, 0, 10, 1000, 2000);
+
+		netUtil.httpGetJsObject(URL);
+		netUtil.httpGetJsObject(URL);
+
+		Assert.assertEquals(2, connectionFactory.getConnectionCount());
+		Assert.assertEquals(0, netUtil.getHitCount());
+	}
+
+	@Test
+	public void testNoStoreNotCached() throws Exception {
+		NetUtilImpl netUtil = new NetUtilImpl(masterScope, connectionFactory, 60000, 10, 1000, 2000);
+		connectionFactory.setResponseHeader("Cache-Control", "no-store");
+
+		netUtil.httpGetJsObject(URL);
+		netUtil.httpGetJsObject(URL);
+
+		Assert.assertEquals(2, connectionFactory.getConnectionCount());
+	}
+
+	@After
+	public void after() {
+		Context.exit();
+	}
+
+}
@@ -0,0 +1,214 @@
+package com.rhinoforms.js;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import com.rhinoforms.Constants;
+import com.rhinoforms.TestConnectionFactory;
+import com.rhinoforms.TestResourceLoader;
+import com.rhinoforms.flow.InputPojo;
+import com.rhinoforms.resourceloader.ResourceLoaderException;
+import com.rhinoforms.resourceloader.ResourceLoaderImpl;
+
+public class RhinoformsContextFactoryTest {
+
+	@Test
+	public void testContextConfigured() throws Exception {
+		final RhinoformsContextFactory contextFactory = new RhinoformsContextFactory(-1, Context.VERSION_1_7, 5000, false);
+		Context context = enterContextOnNewThread(contextFactory);
+		Assert.assertEquals(-1, context.getOptimizationLevel());
+		Assert.assertEquals(Context.VERSION_1_7, context.getLanguageVersion());
+		Assert.assertEquals(5000, context.getInstructionObserverThreshold());
+		Assert.assertTrue(context.hasFeature(Context.FEATURE_DYNAMIC_SCOPE));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidOptimizationLevel() throws Exception {
+		new RhinoformsContextFactory(10, Context.VERSION_DEFAULT, 0, false);
+	}
+
+	@Test
+	public void testContextReusedByThread() throws Exception {
+		final RhinoformsContextFactory contextFactory = new RhinoformsContextFactory(0, Context.VERSION_DEFAULT, 0, true);
+		final Context[] contexts = new Context[2];
+		runOnNewThread(new Runnable() {
+			@Override
+			public void run() {
+				contexts[0] = contextFactory.enterContext();
+				Context.exit();
+				contexts[1] = contextFactory.enterContext();
+				Context.exit();
+			}
+		});
+		Assert.assertNotNull(contexts[0]);
+		Assert.assertSame(contexts[0], contexts[1]);
+		Assert.assertNotSame(contexts[0], enterContextOnNewThread(contextFactory));
+	}
+
+	@Test
+	public void testContextNotReused() throws Exception {
+		final RhinoformsContextFactory contextFactory = new RhinoformsContextFactory(0, Context.VERSION_DEFAULT, 0, false);
+		final Context[] contexts = new Context[2];
+		runOnNewThread(new Runnable() {
+			@Override
+			public void run() {
+				contexts[0] = contextFactory.enterContext();
+				Context.exit();
+				contexts[1] = contextFactory.enterContext();
+				Context.exit();
+			}
+		});
+		Assert.assertNotSame(contexts[0], contexts[1]);
+	}
+
+	@Test
+	public void testInstructionBudgetExceeded() throws Exception {
+		final RhinoformsContextFactory contextFactory = new RhinoformsContextFactory(0, Context.VERSION_DEFAULT, 0, false);
+		contextFactory.setExecutionLimits(100000, 0);
+		final Throwable[] thrown = new Throwable[1];
+		runOnNewThread(new Runnable() {
+			@Override
+			public void run() {
+				Context context = contextFactory.enterContext();
+				try {
+					Assert.assertEquals(10000, context.getInstructionObserverThreshold());
+					Scriptable scope = context.initStandardObjects();
+					// Each evaluation has its own budget
+					for (int i = 0; i < 5; i++) {
+						context.evaluateString(scope, "var a = 0; for (var i = 0; i < 1000; i++) { a++; }", "small", 1, null);
+					}
+					try {
+						context.evaluateString(scope, "try { while (true) {} } catch (e) {}", "loop", 1, null);
+					} catch (JSExecutionBudgetExceededError e) {
+						thrown[0] = e;
+					}
+				} finally {
+					Context.exit();
+				}
+			}
+		});
+		Assert.assertNotNull(thrown[0]);
+		Assert.assertEquals("Script exceeded the instruction budget of 100000.", thrown[0].getMessage());
+		Assert.assertEquals(1, contextFactory.getExecutionBudgetExceededCount());
+	}
+
+	@Test
+	public void testTimeLimitExceeded() throws Exception {
+		final RhinoformsContextFactory contextFactory = new RhinoformsContextFactory(-1, Context.VERSION_DEFAULT, 1000, false);
+		contextFactory.setExecutionLimits(0, 100);
+		final Throwable[] thrown = new Throwable[1];
+		runOnNewThread(new Runnable() {
+			@Override
+			public void run() {
+				Context context = contextFactory.enterContext();
+				try {
+					context.evaluateString(context.initStandardObjects(), "while (true) {}", "loop", 1, null);
+				} catch (JSExecutionBudgetExceededError e) {
+					thrown[0] = e;
+				} finally {
+					Context.exit();
+				}
+			}
+		});
+		Assert.assertNotNull(thrown[0]);
+		Assert.assertEquals("Script exceeded the time limit of 100ms.", thrown[0].getMessage());
+		Assert.assertEquals(1, contextFactory.getExecutionBudgetExceededCount());
+	}
+
+	@Test
+	public void performanceTestNoAssertions() throws Exception {
+		List<InputPojo> inputPojos = new ArrayList<InputPojo>();
+		for (int i = 0; i < 50; i++) {
+			HashMap<String, String> rfAttributes = new HashMap<String, String>();
+			rfAttributes.put(Constants.VALIDATION_ATTR, i % 2 == 0 ? "required email" : "required pattern({regex:'^[A-Z]+[0-9]*$'})");
+			InputPojo inputPojo = new InputPojo("field" + i, "text", rfAttributes);
+			inputPojo.setValue(i % 2 == 0 ? "someone@example.com" : "ABC" + i);
+			inputPojos.add(inputPojo);
+		}
+		for (final int optimizationLevel : new int[] { -1, 0, 9 }) {
+			// A new thread so that no Context is already entered
+			final List<InputPojo> benchmarkInputPojos = inputPojos;
+			runOnNewThread(new Runnable() {
+				@Override
+				public void run() {
+					runValidationBenchmark(optimizationLevel, benchmarkInputPojos);
+				}
+			});
+		}
+	}
+
+	private void runValidationBenchmark(int optimizationLevel, List<InputPojo> inputPojos) {
+		RhinoformsContextFactory contextFactory = new RhinoformsContextFactory(optimizationLevel, Context.VERSION_DEFAULT, 0, true);
+		Context context = contextFactory.enterContext();
+		try {
+			long start = new Date().getTime();
+			TestResourceLoader loader = new TestResourceLoader();
+			JSMasterScope masterScope = new RhinoFormsMasterScopeFactory().createMasterScope(context, new ResourceLoaderImpl(loader, loader), new TestConnectionFactory());
+			long masterScopeTime = new Date().getTime() - start;
+
+			JSSerialiser jsSerialiser = new JSSerialiser();
+			int submissions = 500;
+			start = new Date().getTime();
+			for (int i = 0; i < submissions; i++) {
+				Scriptable workingScope = masterScope.createWorkingScope();
+				Scriptable fields = jsSerialiser.inputPOJOListToNativeObject(inputPojos, context, workingScope);
+				Scriptable rf = (Scriptable) ScriptableObject.getProperty(workingScope, "rf");
+				Function validateFields = (Function) ScriptableObject.getProperty(rf, "validateFields");
+				NativeArray errors = (NativeArray) validateFields.call(context, workingScope, rf, new Object[] { fields, "next" });
+				if (errors.getLength() != 0) {
+					throw new IllegalStateException("Unexpected validation errors");
+				}
+			}
+			System.out.println("Optimization level " + optimizationLevel + ": master scope created in " + new Float(masterScopeTime) / 1000
+					+ " seconds, validated " + submissions + " submissions of " + inputPojos.size() + " fields in "
+					+ new Float(new Date().getTime() - start) / 1000 + " seconds");
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} catch (ResourceLoaderException e) {
+			throw new RuntimeException(e);
+		} finally {
+			Context.exit();
+		}
+	}
+
+	private Context enterContextOnNewThread(final RhinoformsContextFactory contextFactory) throws InterruptedException {
+		final Context[] context = new Context[1];
+		runOnNewThread(new Runnable() {
+			@Override
+			public void run() {
+				context[0] = contextFactory.enterContext();
+				Context.exit();
+			}
+		});
+		return context[0];
+	}
+
+	private void runOnNewThread(Runnable runnable) throws InterruptedException {
+		final Throwable[] thrown = new Throwable[1];
+		Thread thread = new Thread(runnable);
+		thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread t, Throwable e) {
+				thrown[0] = e;
+			}
+		});
+		thread.start();
+		thread.join();
+		if (thrown[0] != null) {
+			throw new RuntimeException(thrown[0]);
+		}
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.rhinoforms.js;
 
+import com.rhinoforms.net.ConnectionFactory;
+
 public class TestRhinoFormsMasterScopeFactory extends RhinoFormsMasterScopeFactory {
 
 	private NetUtil testNetUtil;
@@ -9,7 +11,7 @@ public class TestRhinoFormsMasterScopeFactory extends RhinoFormsMasterScopeFacto
 	}
 	
 	@Override
-	NetUtil createNetUtil(JSMasterScope masterScope) {
+	NetUtil createNetUtil(JSMasterScope masterScope, ConnectionFactory connectionFactory) {
 		return testNetUtil;
 	}
 	
@@ -0,0 +1,149 @@
+package com.rhinoforms.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class PooledConnectionFactoryTest {
+
+	private HttpServer server;
+	private String baseUrl;
+	private String host;
+	private String recordedAuthorization;
+
+	@Before
+	public void setup() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 10);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				recordedAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+				byte[] body = "<result>ok</result>".getBytes();
+				String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+				if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+					exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+					exchange.sendResponseHeaders(200, 0);
+					GZIPOutputStream gzipOutputStream = new GZIPOutputStream(exchange.getResponseBody());
+					gzipOutputStream.write(body);
+					gzipOutputStream.close();
+				} else {
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream responseBody = exchange.getResponseBody();
+					responseBody.write(body);
+					responseBody.close();
+				}
+			}
+		});
+		server.start();
+		host = "localhost:" + server.getAddress().getPort();
+		baseUrl = "http://" + host + "/";
+	}
+
+	@Test
+	public void testMetricsRecordedAndConnectionReleased() throws Exception {
+		PooledConnectionFactory connectionFactory = new PooledConnectionFactory(2, 1000, 1000, false, false);
+
+		Assert.assertEquals("<result>ok</result>", read(connectionFactory.openConnection(baseUrl + "one")));
+		Assert.assertEquals("<result>ok</result>", read(connectionFactory.openConnection(baseUrl + "two")));
+
+		PooledConnectionFactory.HostMetrics hostMetrics = connectionFactory.getHostMetrics().get(host);
+		Assert.assertEquals(2, hostMetrics.getRequestCount());
+		Assert.assertEquals(0, hostMetrics.getFailureCount());
+		Assert.assertEquals(0, hostMetrics.getConnectionsInUse());
+	}
+
+	@Test
+	public void testConnectionsPerHostLimited() throws Exception {
+		PooledConnectionFactory connectionFactory = new PooledConnectionFactory(1, 100, 1000, false, false);
+		HttpURLConnection first = connectionFactory.openConnection(baseUrl);
+		Assert.assertEquals(200, first.getResponseCode());
+		try {
+			connectionFactory.openConnection(baseUrl);
+			Assert.fail("Expected ConnectException");
+		} catch (ConnectException e) {
+			// expected
+		}
+
+		read(first);
+		Assert.assertEquals("<result>ok</result>", read(connectionFactory.openConnection(baseUrl)));
+
+		PooledConnectionFactory.HostMetrics hostMetrics = connectionFactory.getHostMetrics().get(host);
+		Assert.assertEquals(3, hostMetrics.getRequestCount());
+		Assert.assertEquals(1, hostMetrics.getWaitCount());
+		Assert.assertEquals(1, hostMetrics.getFailureCount());
+	}
+
+	@Test
+	public void testGzipResponseDecompressed() throws Exception {
+		PooledConnectionFactory connectionFactory = new PooledConnectionFactory(2, 1000, 1000, true, false);
+		HttpURLConnection connection = connectionFactory.openConnection(baseUrl);
+
+		Assert.assertEquals("<result>ok</result>", read(connection));
+		Assert.assertEquals(-1, connection.getContentLength());
+	}
+
+	@Test
+	public void testConnectionReleasedWhenGzipResponseCorrupt() throws Exception {
+		server.createContext("/corrupt-gzip", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				byte[] body = "not gzip".getBytes();
+				exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream responseBody = exchange.getResponseBody();
+				responseBody.write(body);
+				responseBody.close();
+			}
+		});
+		PooledConnectionFactory connectionFactory = new PooledConnectionFactory(1, 100, 1000, true, false);
+		try {
+			read(connectionFactory.openConnection(baseUrl + "corrupt-gzip"));
+			Assert.fail("Expected IOException");
+		} catch (IOException e) {
+			// expected
+		}
+
+		PooledConnectionFactory.HostMetrics hostMetrics = connectionFactory.getHostMetrics().get(host);
+		Assert.assertEquals(0, hostMetrics.getConnectionsInUse());
+		Assert.assertEquals(1, hostMetrics.getFailureCount());
+		Assert.assertEquals("<result>ok</result>", read(connectionFactory.openConnection(baseUrl)));
+	}
+
+	@Test
+	public void testBasicAuth() throws Exception {
+		PooledConnectionFactory connectionFactory = new PooledConnectionFactory(2, 1000, 1000, false, false);
+		read(connectionFactory.openConnection("http://user:pass@" + host + "/"));
+
+		Assert.assertEquals("Basic dXNlcjpwYXNz", recordedAuthorization);
+	}
+
+	private String read(HttpURLConnection connection) throws IOException {
+		InputStream inputStream = connection.getInputStream();
+		try {
+			return IOUtils.toString(inputStream);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	@After
+	public void after() {
+		server.stop(0);
+	}
+
+}
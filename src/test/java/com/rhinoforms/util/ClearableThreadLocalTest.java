@@ -0,0 +1,73 @@
+package com.rhinoforms.util;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClearableThreadLocalTest {
+
+	private ClearableThreadLocal<Object> threadLocal;
+	private ExecutorService otherThread;
+
+	@Before
+	public void setup() {
+		threadLocal = new ClearableThreadLocal<Object>() {
+			@Override
+			protected Object initialValue() {
+				return new Object();
+			}
+		};
+		otherThread = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void after() {
+		otherThread.shutdown();
+	}
+
+	@Test
+	public void testValuePerThread() throws Exception {
+		Object value = threadLocal.get();
+		Assert.assertSame(value, threadLocal.get());
+		Assert.assertNotSame(value, getOnOtherThread());
+		Assert.assertSame(getOnOtherThread(), getOnOtherThread());
+	}
+
+	@Test
+	public void testClearAllReleasesValuesOfLiveThreads() throws Exception {
+		Object value = threadLocal.get();
+		WeakReference<Object> otherThreadValue = new WeakReference<Object>(getOnOtherThread());
+		collectGarbage(otherThreadValue);
+		Assert.assertNotNull("Held until cleared", otherThreadValue.get());
+
+		ClearableThreadLocal.clearAll();
+
+		Assert.assertNotSame(value, threadLocal.get());
+		collectGarbage(otherThreadValue);
+		Assert.assertNull(otherThreadValue.get());
+	}
+
+	private Object getOnOtherThread() throws Exception {
+		return otherThread.submit(new Callable<Object>() {
+			@Override
+			public Object call() {
+				return threadLocal.get();
+			}
+		}).get();
+	}
+
+	private void collectGarbage(WeakReference<Object> reference) throws InterruptedException {
+		for (int i = 0; i < 20 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.rhinoforms.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+public class BinaryDocumentCodecTest {
+
+	private BinaryDocumentCodec codec;
+	private DocumentHelper documentHelper;
+
+	@Before
+	public void setup() {
+		codec = new BinaryDocumentCodec();
+		documentHelper = new DocumentHelper();
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		String xml = "<?xml-stylesheet href=\"a.xsl\"?><!--first--><myData><customer id=\"1\" type=\"new\"><name>Kai</name><name>Jo &amp; Al</name>"
+				+ "<empty/></customer><notes>café ☃ <![CDATA[<raw>]]></notes></myData>";
+		Document document = documentHelper.streamToDocument(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+
+		Document copy = roundTrip(document);
+
+		Assert.assertEquals(documentHelper.documentToString(document), documentHelper.documentToString(copy));
+		Node cdata = copy.getDocumentElement().getLastChild().getLastChild();
+		Assert.assertEquals(Node.CDATA_SECTION_NODE, cdata.getNodeType());
+		Assert.assertEquals("<raw>", cdata.getNodeValue());
+		Assert.assertEquals("Kai", documentHelper.lookup(copy, "/myData/customer[@id='1']/name[1]").item(0).getTextContent());
+	}
+
+	@Test
+	public void testNamespaces() throws Exception {
+		DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+		documentBuilderFactory.setNamespaceAware(true);
+		String xml = "<a:root xmlns:a=\"urn:a\" xmlns=\"urn:default\" a:attr=\"x\" plain=\"y\"><child/></a:root>";
+		Document document = documentBuilderFactory.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+
+		Element root = roundTrip(document).getDocumentElement();
+
+		Assert.assertEquals("urn:a", root.getNamespaceURI());
+		Assert.assertEquals("root", root.getLocalName());
+		Assert.assertEquals("x", root.getAttributeNS("urn:a", "attr"));
+		Assert.assertEquals("y", root.getAttribute("plain"));
+		Assert.assertEquals("urn:default", root.getFirstChild().getNamespaceURI());
+	}
+
+	@Test
+	public void testLargeTextAndNull() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			text.append("éabc");
+		}
+		Document document = documentHelper.newDocument();
+		document.appendChild(document.createElement("big")).setTextContent(text.toString());
+
+		Assert.assertEquals(text.toString(), roundTrip(document).getDocumentElement().getTextContent());
+		Assert.assertNull(roundTrip(null));
+	}
+
+	@Test
+	public void testNamesWrittenOnce() throws Exception {
+		StringBuilder xml = new StringBuilder("<myData>");
+		for (int i = 0; i < 100; i++) {
+			xml.append("<someLongElementName someLongAttributeName=\"1\"/>");
+		}
+		xml.append("</myData>");
+		Document document = documentHelper.streamToDocument(new ByteArrayInputStream(xml.toString().getBytes("UTF-8")));
+
+		byte[] bytes = write(document);
+
+		Assert.assertTrue("Size " + bytes.length, bytes.length < xml.length() / 5);
+	}
+
+	@Test
+	public void testConcurrentReads() throws Exception {
+		Document document = documentHelper.streamToDocument(new ByteArrayInputStream("<myData><a>1</a><b>2</b></myData>".getBytes("UTF-8")));
+		final byte[] bytes = write(document);
+		final String expected = documentHelper.documentToString(document);
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int i = 0; i < 200; i++) {
+				results.add(executorService.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						return documentHelper.documentToString(codec.readDocument(new DataInputStream(new ByteArrayInputStream(bytes))));
+					}
+				}));
+			}
+			for (Future<String> result : results) {
+				Assert.assertEquals(expected, result.get());
+			}
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	private Document roundTrip(Document document) throws IOException {
+		return codec.readDocument(new DataInputStream(new ByteArrayInputStream(write(document))));
+	}
+
+	private byte[] write(Document document) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		codec.writeDocument(document, out);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+}
@@ -14,6 +14,7 @@ import junit.framework.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 import com.rhinoforms.flow.InputPojo;
@@ -54,6 +55,25 @@ public class DocumentHelperTest {
 		Assert.assertEquals("<myData><name>&lt; &gt; &amp; ' \"</name></myData>", documentHelper.documentToString(dataDocument));
 	}
 	
+	@Test
+	public void testStreamToNode() throws Exception {
+		setDoc("<myData><result/></myData>");
+		String response = "<?xml version=\"1.0\"?><!-- quote --><quote xmlns=\"urn:rating\" id=\"1\"><premium>5</premium><note><![CDATA[a < b]]></note><!-- end --></quote>";
+		
+		documentHelper.streamToNode(new ByteArrayInputStream(response.getBytes()), dataDocument.getDocumentElement().getFirstChild());
+		
+		// Same nodes as parsing a document and importing its contents
+		Document expectedDocument = documentHelper.stringToDocument("<myData><result/></myData>");
+		Document responseDocument = documentHelper.stringToDocument(response);
+		for (int i = 0; i < responseDocument.getChildNodes().getLength(); i++) {
+			expectedDocument.getDocumentElement().getFirstChild().appendChild(expectedDocument.importNode(responseDocument.getChildNodes().item(i), true));
+		}
+		Assert.assertEquals(documentHelper.documentToString(expectedDocument), documentHelper.documentToString(dataDocument));
+		Assert.assertEquals(Node.CDATA_SECTION_NODE, dataDocument.getElementsByTagName("note").item(0).getFirstChild().getNodeType());
+		// Same lookup behaviour as a parsed document
+		Assert.assertEquals(1, documentHelper.lookup(dataDocument, "/myData/result/quote/premium").getLength());
+	}
+	
 	@Test
 	public void testPersistOneNewFieldOneDeep() throws Exception {
 		setDoc("<myData/>");
@@ -0,0 +1,101 @@
+package com.rhinoforms.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+import junit.framework.Assert;
+import net.sf.json.JSONSerializer;
+import net.sf.json.xml.XMLSerializer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class JsonToXmlConverterTest {
+
+	private DocumentHelper documentHelper;
+
+	@Before
+	public void setup() {
+		documentHelper = new DocumentHelper();
+	}
+
+	@Test
+	public void testObject() throws Exception {
+		Assert.assertEquals("<JsonResponse><name type=\"string\">Kai</name></JsonResponse>", convert("{ name: 'Kai' }", true, "JsonResponse"));
+	}
+
+	@Test
+	public void testNoTypeHints() throws Exception {
+		Assert.assertEquals("<o><a><e>1</e><e null=\"true\"/></a><b><c>x</c></b></o>", convert("{\"b\":{\"c\":\"x\"},\"a\":[1,null]}", false, null));
+	}
+
+	@Test
+	public void testDirectlyIntoExistingDocument() throws Exception {
+		Document dataDocument = documentHelper.stringToDocument("<myData><result/></myData>");
+		Element element = new JsonToXmlConverter(false, "quote").convert(new StringReader("{\"premium\":12.5}"), dataDocument);
+		dataDocument.getDocumentElement().getFirstChild().appendChild(element);
+		Assert.assertEquals("<myData><result><quote><premium>12.5</premium></quote></result></myData>", documentHelper.documentToString(dataDocument));
+	}
+
+	@Test
+	public void testInvalidJson() throws Exception {
+		try {
+			convert("{\"a\":1", true, null);
+			Assert.fail("Should have thrown Exception");
+		} catch (JsonToXmlException e) {
+			Assert.assertEquals("Expected ',' or '}' at character 6", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testSameAsJsonLib() throws Exception {
+		String[] inputs = {
+				"{ name: 'Kai' }",
+				"{\"a\":1,\"b\":2.5,\"c\":true,\"d\":null,\"e\":\"x<y&z\",\"f\":[1,\"two\",{\"g\":3},[4]],\"h\":{},\"i\":[]}",
+				"[1,2,{\"a\":\"b\"}]",
+				"{\"@attr\":\"v\",\"#text\":\"t\",\"child\":{\"@id\":\"5\",\"x\":\"y\"}}",
+				"{\"n\":1e10,\"m\":0.1,\"k\":1.50,\"j\":-0,\"h\":1E-7,\"g\":3.0,\"big\":1.2345678901234567890123}",
+				"{\"a\":3.14159265358979,\"b\":1e39,\"c\":123456.789,\"d\":99999999999,\"e\":2147483648,\"f\":1.0e400}",
+				"{\"s\":\"\\u00e9\\n\\t\\/\",\"q\":'it\\'s'}",
+				"{\"arr\":[null,true,[],{}]}",
+				"{\"o\":{\"p\":{\"q\":null}}}",
+				"{\"a\":\"null\",\"b\":\"true\",\"c\":\"1\",\"d\":\"[1,2]\",\"f\":\"\"}",
+				"{\"k\":{\"@a\":1,\"@b\":true,\"#text\":5}}",
+				"{\"k\":[{\"@a\":\"x\"}]}",
+				"{\"dup\":1,\"dup\":2}",
+				"{\"a\":[1],\"a\":2}",
+				"{\"a\":1,\"a\":[2]}",
+				"{\"a\":{\"x\":1},\"a\":{\"y\":2},\"b\":0}",
+				"{\"#text\":[1,2]}",
+				"{\"a\":{\"#text\":\"x\",\"b\":1}}",
+				"{\"z\":1,\"y\":{\"x\":[{\"w\":\"v\"}]},/* comment */\"a\":1,}",
+		};
+		for (String input : inputs) {
+			for (boolean typeHints : new boolean[] { true, false }) {
+				for (String rootName : new String[] { null, "Root" }) {
+					String message = input + " typeHints:" + typeHints + " rootName:" + rootName;
+					Assert.assertEquals(message, convertWithJsonLib(input, typeHints, rootName), convert(input, typeHints, rootName));
+				}
+			}
+		}
+	}
+
+	private String convert(String json, boolean typeHints, String rootName) throws Exception {
+		Document document = documentHelper.newDocument();
+		document.appendChild(new JsonToXmlConverter(typeHints, rootName).convert(new StringReader(json), document));
+		return documentHelper.documentToString(document);
+	}
+
+	private String convertWithJsonLib(String json, boolean typeHints, String rootName) throws Exception {
+		XMLSerializer xmlSerializer = new XMLSerializer();
+		xmlSerializer.setTypeHintsEnabled(typeHints);
+		if (rootName != null) {
+			xmlSerializer.setRootName(rootName);
+		}
+		String xml = xmlSerializer.write(JSONSerializer.toJSON(json));
+		return documentHelper.documentToString(documentHelper.streamToDocument(new ByteArrayInputStream(xml.getBytes("UTF-8"))));
+	}
+
+}
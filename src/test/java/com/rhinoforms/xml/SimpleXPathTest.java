@@ -0,0 +1,69 @@
+package com.rhinoforms.xml;
+
+import static com.rhinoforms.TestUtil.createDocument;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+public class SimpleXPathTest {
+
+	private Document document;
+
+	@Before
+	public void setup() throws Exception {
+		document = createDocument("<myData><customer><name>One</name><address><line1>A</line1></address><address><line1>B</line1><line1>C</line1></address></customer><customer><name>Two</name></customer></myData>");
+	}
+
+	@Test
+	public void testParseRejectsExpressions() throws Exception {
+		Assert.assertNull(SimpleXPath.parse(""));
+		Assert.assertNull(SimpleXPath.parse("//name"));
+		Assert.assertNull(SimpleXPath.parse("/myData/"));
+		Assert.assertNull(SimpleXPath.parse("/myData/customer[@id='1']"));
+		Assert.assertNull(SimpleXPath.parse("/myData/customer[last()]"));
+		Assert.assertNull(SimpleXPath.parse("/myData/customer[0]"));
+		Assert.assertNull(SimpleXPath.parse("/myData/@id"));
+		Assert.assertNull(SimpleXPath.parse("/myData/text()"));
+		Assert.assertNull(SimpleXPath.parse("/myData/../name"));
+		Assert.assertNull(SimpleXPath.parse("/ns:myData"));
+		Assert.assertNull(SimpleXPath.parse("count(/myData/customer)"));
+		Assert.assertNotNull(SimpleXPath.parse("/myData/customer[2]/address_1/line-1"));
+		Assert.assertNotNull(SimpleXPath.parse("customer/name"));
+	}
+
+	@Test
+	public void testSelectMatchesXPath() throws Exception {
+		assertSameAsXPath("/myData/customer/name");
+		assertSameAsXPath("/myData/customer[2]/name");
+		assertSameAsXPath("/myData/customer/address/line1");
+		assertSameAsXPath("/myData/customer/address[2]/line1[2]");
+		assertSameAsXPath("/myData/customer[3]/name");
+		assertSameAsXPath("/myData/nothing/name");
+		assertSameAsXPath("/otherData");
+	}
+
+	@Test
+	public void testSelectRelative() throws Exception {
+		NodeList nodeList = SimpleXPath.parse("address[2]/line1").select(document.getDocumentElement().getFirstChild());
+		Assert.assertEquals(2, nodeList.getLength());
+		Assert.assertEquals("B", nodeList.item(0).getTextContent());
+		Assert.assertEquals("C", nodeList.item(1).getTextContent());
+	}
+
+	private void assertSameAsXPath(String xpath) throws Exception {
+		NodeList expected = (NodeList) XPathFactory.newInstance().newXPath().compile(xpath).evaluate(document, XPathConstants.NODESET);
+		NodeList actual = SimpleXPath.parse(xpath).select(document);
+		Assert.assertEquals(xpath, expected.getLength(), actual.getLength());
+		for (int i = 0; i < expected.getLength(); i++) {
+			Assert.assertSame(xpath, expected.item(i), actual.item(i));
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.rhinoforms.xml;
+
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class XPathExpressionCacheTest {
+
+	private XPathExpressionCache xPathExpressionCache;
+
+	@Before
+	public void setup() {
+		xPathExpressionCache = new XPathExpressionCache(2);
+	}
+
+	@Test
+	public void testHitAndMissCounts() throws Exception {
+		XPathExpression first = xPathExpressionCache.compile("/myData/name");
+		XPathExpression second = xPathExpressionCache.compile("/myData/name");
+
+		Assert.assertSame(first, second);
+		Assert.assertEquals(1, xPathExpressionCache.getHitCount());
+		Assert.assertEquals(1, xPathExpressionCache.getMissCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() throws Exception {
+		XPathExpression one = xPathExpressionCache.compile("/one");
+		xPathExpressionCache.compile("/two");
+		xPathExpressionCache.compile("/one");
+		xPathExpressionCache.compile("/three");
+
+		Assert.assertSame(one, xPathExpressionCache.compile("/one"));
+		xPathExpressionCache.compile("/two");
+		Assert.assertEquals(2, xPathExpressionCache.getHitCount());
+		Assert.assertEquals(4, xPathExpressionCache.getMissCount());
+	}
+
+	@Test
+	public void testThreadsDoNotShareExpressions() throws Exception {
+		final XPathExpression[] otherThreadExpression = new XPathExpression[1];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					otherThreadExpression[0] = xPathExpressionCache.compile("/myData/name");
+				} catch (XPathExpressionException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+
+		Assert.assertNotNull(otherThreadExpression[0]);
+		Assert.assertNotSame(otherThreadExpression[0], xPathExpressionCache.compile("/myData/name"));
+		Assert.assertEquals(2, xPathExpressionCache.getMissCount());
+	}
+
+	@Test(expected = XPathExpressionException.class)
+	public void testInvalidExpression() throws Exception {
+		xPathExpressionCache.compile("/myData/[");
+	}
+
+}
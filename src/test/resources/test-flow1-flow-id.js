@@ -0,0 +1,18 @@
+{
+	docBase: "/myData",
+	formLists: {
+		main: [
+				{ id: "one", url: "one.html",
+					actions: [
+						{
+							name: "sendToMyServer",
+							submission: {
+								url: "http://localhost/service/{{$rf.flowId}}",
+								resultInsertPoint: "/myData/submissionResult"
+							}
+						}
+					]
+				}
+		]
+	}
+}